@@ -1,20 +1,40 @@
 package com.example.pos;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
-import com.example.pos.db.DatabaseInitializer;
+import com.example.pos.controller.MainController;
+import com.example.pos.service.NumberAllocator;
+import com.example.pos.service.TableSessionStore;
+
+import java.util.concurrent.TimeUnit;
 
 public class MainApp extends Application {
 
+    private final Label splashStatus = new Label("Starting…");
+    private final ProgressIndicator splashProgress = new ProgressIndicator();
+    private final Button retryButton = new Button("Retry");
+    private MainController mainController;
+
     @Override
-    public void start(@SuppressWarnings("exports") Stage primaryStage) throws Exception {
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/pos/view/MainLayout.fxml"));
-        DatabaseInitializer.initialize();
-        Parent root = loader.load();
-        Scene scene = new Scene(root, 1440, 900);
+    public void start(@SuppressWarnings("exports") Stage primaryStage) {
+        // Show the window straight away; database and cache setup run behind the splash
+        Label brand = new Label("RestaurantPOS");
+        brand.getStyleClass().add("brand");
+        splashStatus.getStyleClass().add("splash-status");
+        retryButton.setVisible(false);
+        retryButton.setOnAction(event -> startBackgroundWork(primaryStage.getScene()));
+        VBox splash = new VBox(brand, splashProgress, splashStatus, retryButton);
+        splash.getStyleClass().add("splash");
+
+        Scene scene = new Scene(splash, 1440, 900);
         scene.getStylesheets().addAll(
                 getClass().getResource("/com/example/pos/styles/app.css").toExternalForm(),
                 getClass().getResource("/com/example/pos/styles/transaction.css").toExternalForm()
@@ -23,6 +43,73 @@ public class MainApp extends Application {
         primaryStage.setScene(scene);
         primaryStage.setMaximized(true); // Open maximized, but with native window controls
         primaryStage.show();
+
+        startBackgroundWork(scene);
+    }
+
+    private void startBackgroundWork(Scene scene) {
+        splashStatus.getStyleClass().remove("error");
+        splashProgress.setVisible(true);
+        retryButton.setVisible(false);
+
+        StartupPipeline startup = new StartupPipeline(
+                message -> Platform.runLater(() -> splashStatus.setText(message))).start();
+        startup.ready().whenComplete((done, error) -> Platform.runLater(() -> {
+            if (error == null) {
+                showMainLayout(scene);
+            } else {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                showStartupError("The database is not ready: " + rootMessage(cause));
+            }
+        }));
+    }
+
+    /**
+     * Replace the splash with the main layout, once the database is ready
+     */
+    private void showMainLayout(Scene scene) {
+        long start = System.nanoTime();
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/pos/view/MainLayout.fxml"));
+            Parent root = loader.load();
+            mainController = loader.getController();
+            scene.setRoot(root);
+            System.out.printf("✓ Main layout shown in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            e.printStackTrace();
+            showStartupError("Failed to load the main window: " + rootMessage(e));
+        }
+    }
+
+    private void showStartupError(String message) {
+        System.err.println("✗ " + message);
+        splashProgress.setVisible(false);
+        splashStatus.setText(message);
+        if (!splashStatus.getStyleClass().contains("error")) {
+            splashStatus.getStyleClass().add("error");
+        }
+        retryButton.setVisible(true);
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    @Override
+    public void stop() {
+        // Stop the cached views' background threads and subscriptions
+        if (mainController != null) {
+            mainController.dispose();
+        }
+        // Table session edits are written behind; don't lose the last ones on exit
+        TableSessionStore.getInstance().flushAll(5, TimeUnit.SECONDS);
+        // Keep unused reserved bill/KOT numbers for the next start
+        NumberAllocator.bills().close();
+        NumberAllocator.kots().close();
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,149 @@
+package com.example.pos;
+
+import com.example.pos.db.DatabaseConnection;
+import com.example.pos.db.DatabaseInitializer;
+import com.example.pos.model.RestaurantInfo;
+import com.example.pos.service.MenuService;
+import com.example.pos.service.RestaurantInfoService;
+import com.example.pos.service.TableService;
+import com.example.pos.util.ThermalPrinter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Background startup work, so the window can show while it runs.
+ *
+ * Phases that do not need each other run in parallel: the print spooler and
+ * printer lookup start straight away; the connection pool is created
+ * (including the online database probe) and the schema checked after it;
+ * then the menu, table names and restaurant details are loaded into their
+ * caches together. ready() completes once the database is usable, which is
+ * all the main layout needs; the cache warmups may still be running.
+ * A failed phase is logged and does not stop the others, except that
+ * nothing that needs the database runs after the pool fails.
+ */
+final class StartupPipeline {
+
+    /**
+     * How long a phase took, measured from its own start
+     */
+    record PhaseTiming(String phase, long millis, boolean succeeded) {
+    }
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4, runnable -> {
+        Thread thread = new Thread(runnable, "startup-" + THREAD_IDS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+
+    private final List<PhaseTiming> timings = new ArrayList<>();
+    private final long startNanos = System.nanoTime();
+    private final Consumer<String> onProgress;
+
+    private CompletableFuture<Void> ready;
+    private CompletableFuture<List<PhaseTiming>> complete;
+
+    /**
+     * onProgress receives a short message as each phase starts, on the
+     * phase's thread
+     */
+    StartupPipeline(Consumer<String> onProgress) {
+        this.onProgress = onProgress;
+    }
+
+    StartupPipeline start() {
+        CompletableFuture<Void> spooler = phase("Print spooler", "Checking print queue…",
+            ThermalPrinter::startSpooler);
+        CompletableFuture<Void> printer = phase("Printer lookup", "Finding receipt printer…",
+            ThermalPrinter::preloadPrinter);
+
+        // Creating the pool is the work; the connection goes straight back
+        CompletableFuture<Void> pool = phase("Connection pool", "Connecting to database…",
+            () -> DatabaseConnection.getConnection().close());
+        // Migrations need a working pool; later phases need the schema
+        ready = pool.thenCompose(done -> phase("Schema", "Checking database schema…",
+            DatabaseInitializer::initialize));
+
+        CompletableFuture<Void> menu = ready.thenCompose(done -> phase("Menu cache", "Loading menu…",
+            () -> new MenuService().loadMenuItemsForBilling()));
+        CompletableFuture<Void> tables = ready.thenCompose(done -> phase("Table cache", "Loading tables…",
+            () -> new TableService().loadTableNames()));
+        CompletableFuture<Void> restaurant = ready.thenCompose(done -> phase("Restaurant info",
+            "Loading restaurant details…", () -> {
+                RestaurantInfo info = new RestaurantInfoService().getRestaurantInfo();
+                if (info != null) {
+                    ThermalPrinter.refreshHeader(info);
+                }
+            }));
+
+        complete = CompletableFuture.allOf(spooler, printer, menu, tables, restaurant)
+            .handle((done, error) -> {
+                executor.shutdown();
+                logTimings();
+                return timings();
+            });
+        return this;
+    }
+
+    /**
+     * Completes when the database is ready for the main layout, exceptionally
+     * if the pool could not be created or the schema not brought up to date
+     */
+    CompletableFuture<Void> ready() {
+        return ready;
+    }
+
+    /**
+     * Completes with every phase's timing once all phases have finished
+     */
+    CompletableFuture<List<PhaseTiming>> complete() {
+        return complete;
+    }
+
+    synchronized List<PhaseTiming> timings() {
+        return List.copyOf(timings);
+    }
+
+    @FunctionalInterface
+    private interface Phase {
+        void run() throws Exception;
+    }
+
+    private CompletableFuture<Void> phase(String name, String message, Phase work) {
+        return CompletableFuture.runAsync(() -> {
+            onProgress.accept(message);
+            long start = System.nanoTime();
+            boolean succeeded = false;
+            try {
+                work.run();
+                succeeded = true;
+            } catch (Exception e) {
+                System.err.println("⚠ Startup phase '" + name + "' failed: " + e.getMessage());
+                throw new IllegalStateException(name + " failed", e);
+            } finally {
+                record(new PhaseTiming(name, (System.nanoTime() - start) / 1_000_000, succeeded));
+            }
+        }, executor);
+    }
+
+    private synchronized void record(PhaseTiming timing) {
+        timings.add(timing);
+    }
+
+    private void logTimings() {
+        StringBuilder summary = new StringBuilder();
+        for (PhaseTiming timing : timings()) {
+            summary.append(String.format("%n   %-18s %6d ms%s", timing.phase(), timing.millis(),
+                timing.succeeded() ? "" : "  (failed)"));
+        }
+        System.out.printf("✓ Startup finished in %d ms:%s%n",
+            (System.nanoTime() - startNanos) / 1_000_000, summary);
+    }
+}
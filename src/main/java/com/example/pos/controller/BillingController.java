@@ -1,6 +1,5 @@
 package com.example.pos.controller;
 
-import java.io.File;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -18,13 +17,19 @@ import com.example.pos.model.TableModel;
 import com.example.pos.model.TableSession;
 import com.example.pos.model.TableSessionItem;
 import com.example.pos.service.InventoryService;
+import com.example.pos.service.MenuSearchIndex;
 import com.example.pos.service.MenuService;
+import com.example.pos.service.NumberAllocator;
 import com.example.pos.service.SalesService;
 import com.example.pos.service.SalesService.SaleItem;
 import com.example.pos.service.SalesService.SaleRequest;
 import com.example.pos.service.TableService;
+import com.example.pos.service.TableSessionStore;
+import com.example.pos.util.PrintSpooler;
 import com.example.pos.util.ThermalPrinter;
 
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.concurrent.Task;
@@ -38,6 +43,7 @@ import javafx.scene.control.ButtonType;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
 import javafx.scene.control.RadioButton;
 import javafx.scene.control.Separator;
 import javafx.scene.control.TabPane;
@@ -47,17 +53,15 @@ import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
 import javafx.scene.control.ToggleButton;
 import javafx.scene.control.ToggleGroup;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
 import javafx.scene.Node;
 import javafx.scene.layout.FlowPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Region;
-import javafx.scene.layout.TilePane;
 import javafx.scene.layout.VBox;
+import javafx.util.Duration;
 
-public class BillingController {
+public class BillingController implements ManagedView {
 
     private static final String PAYMENT_SELECTED_STYLE = "-fx-background-color: #3b82f6; -fx-text-fill: white;";
     private static final BillingViewState VIEW_STATE = new BillingViewState();
@@ -80,7 +84,8 @@ public class BillingController {
     @FXML
     private FlowPane categoryFilterPane;
     @FXML
-    private TilePane menuGrid;
+    private ListView<List<MenuItem>> menuGrid;
+    private MenuTileGrid menuTileGrid;
 
     // Center Panel - Order Details (Main Tab)
     @FXML
@@ -136,7 +141,8 @@ public class BillingController {
 
     // Data
     private ObservableList<OrderItem> orderItems = FXCollections.observableArrayList();
-    private ObservableList<MenuItem> menuItems = FXCollections.observableArrayList();
+    private MenuSearchIndex menuSearchIndex = MenuSearchIndex.empty();
+    private final PauseTransition searchDebounce = new PauseTransition(Duration.millis(120));
     private List<String> categories = new ArrayList<>();
     private String selectedCategory = "All";
     private String selectedOrderType = "Dine-In";
@@ -149,6 +155,13 @@ public class BillingController {
 
     // Tables & inventory
     private TableService tableService = new TableService();
+    private final TableSessionStore sessionStore = TableSessionStore.getInstance();
+    private final ThermalPrinter thermalPrinter = new ThermalPrinter();
+    private Runnable sessionSubscription;
+    // Failures of receipts reprinted from the spool after a restart
+    private Runnable printSubscription;
+    // The next table save carries lines merged in from another terminal
+    private boolean sessionRebased = false;
     private final InventoryService inventoryService = new InventoryService();
     private final MenuService menuService = new MenuService();
     private final SalesService salesService = new SalesService();
@@ -172,6 +185,7 @@ public class BillingController {
         setupOrderTable();
 
         // Populate menu grid
+        menuTileGrid = new MenuTileGrid(menuGrid, this::addItemToOrder);
         populateMenuGrid();
 
         // Setup event handlers
@@ -183,6 +197,8 @@ public class BillingController {
 
         populateTableChoices();
 
+        printSubscription = PrintSpooler.getInstance().onStatus(ThermalPrinter.RECEIPT_PRINTER, this::onPrintJobUpdate);
+
         // Make the first tab non-closable or handle tab close events
         if (billTabs != null && !billTabs.getTabs().isEmpty()) {
             billTabs.getTabs().get(0).setClosable(false);
@@ -310,12 +326,36 @@ public class BillingController {
         this.activeTable = table;
         this.tableSessionMode = table != null;
         populateTableChoices();
+        // Only the main billing view reports reprinted receipts
+        stopPrintUpdates();
 
         if (tableChoice != null && table != null) {
             tableChoice.setValue(table.getTableName());
             tableChoice.setDisable(true);
         }
 
+        if (table != null && table.getId() != null) {
+            sessionStore.track(table.getId(), session);
+            closeForTable();
+            String tableId = table.getId();
+            Runnable conflicts = sessionStore.onConflict(conflict -> {
+                if (tableId.equals(conflict.tableId())) {
+                    Platform.runLater(() -> applySessionConflict(conflict));
+                }
+            });
+            Runnable failures = sessionStore.onSaveFailed(failedId -> {
+                if (tableId.equals(failedId)) {
+                    Platform.runLater(() -> showAlert("Order Not Saved",
+                            "This table's order could not be saved to the database. "
+                                    + "It is still on this screen and will be saved again on the next change."));
+                }
+            });
+            sessionSubscription = () -> {
+                conflicts.run();
+                failures.run();
+            };
+        }
+
         if (session != null) {
             loadTableSession(session);
         } else if (table != null) {
@@ -324,6 +364,52 @@ public class BillingController {
         }
     }
 
+    private void stopPrintUpdates() {
+        if (printSubscription != null) {
+            printSubscription.run();
+            printSubscription = null;
+        }
+    }
+
+    /**
+     * Stop listening for changes to the table, e.g. when its billing window closes
+     */
+    private void closeForTable() {
+        if (sessionSubscription != null) {
+            sessionSubscription.run();
+            sessionSubscription = null;
+        }
+    }
+
+    /**
+     * Menu, stock and tables may have been edited in other views. The order,
+     * tabs and search are kept as they were.
+     */
+    @Override
+    public void activate() {
+        loadMenuItemsFromDb();
+        if (tableChoice != null) {
+            String selectedTable = tableChoice.getValue();
+            restoringState = true;
+            populateTableChoices();
+            if (selectedTable != null && tableChoice.getItems().contains(selectedTable)) {
+                tableChoice.setValue(selectedTable);
+            }
+            restoringState = false;
+        }
+    }
+
+    /**
+     * Release the data threads once this billing view is no longer used;
+     * queued work such as spooling a receipt still finishes
+     */
+    @Override
+    public void dispose() {
+        closeForTable();
+        stopPrintUpdates();
+        dataExecutor.shutdown();
+    }
+
     private void persistState() {
         if (restoringState) {
             return;
@@ -357,17 +443,50 @@ public class BillingController {
             return;
         }
 
+        // Queued and written off the FX thread; rapid edits are coalesced
+        boolean rebased = sessionRebased;
+        sessionRebased = false;
         if (orderItems.isEmpty()) {
-            tableService.clearSession(activeTable.getId(), "Available");
+            sessionStore.clear(activeTable.getId(), "Available");
             return;
         }
 
+        TableSession session = currentTableSession();
+        if (rebased) {
+            sessionStore.saveRebased(session);
+        } else {
+            sessionStore.save(session);
+        }
+    }
+
+    /**
+     * Show the order merged with another terminal's changes to this table,
+     * or tell the cashier the table was closed there
+     */
+    private void applySessionConflict(TableSessionStore.SessionConflict conflict) {
+        if (activeTable == null || !conflict.tableId().equals(activeTable.getId())) {
+            return;
+        }
+        if (conflict.closedElsewhere()) {
+            showAlert("Table Closed Elsewhere",
+                    "This table was settled or cleared on another terminal. "
+                            + "The order on this screen was not saved; reopen the table to start a new order.");
+            return;
+        }
+        sessionRebased = true;
+        loadTableSession(conflict.rebase(currentTableSession()));
+        showAlert("Table Updated Elsewhere",
+                "This table's order was changed on another terminal. "
+                        + "Items from both terminals have been kept and are shown here.");
+    }
+
+    private TableSession currentTableSession() {
         List<TableSessionItem> items = new ArrayList<>();
         for (OrderItem item : orderItems) {
             items.add(new TableSessionItem(item.getName(), item.getQuantity(), item.getPrice()));
         }
 
-        TableSession session = new TableSession(
+        return new TableSession(
                 activeTable.getId(),
                 activeTable.getTableName(),
                 billNumberLabel != null ? billNumberLabel.getText() : "",
@@ -377,7 +496,6 @@ public class BillingController {
                 items,
                 "Occupied",
                 LocalDateTime.now());
-        tableService.saveSession(session);
     }
 
     private void loadCategoriesFromDb() {
@@ -537,14 +655,14 @@ public class BillingController {
                             "",
                             item.getQuantity()));
                 }
-                return new MenuData(items, retail);
+                return new MenuData(MenuSearchIndex.build(items), retail);
             }
         };
         task.setOnSucceeded(e -> {
             MenuData data = task.getValue();
             retailInventoryByName.clear();
             retailInventoryByName.putAll(data.retailInventory());
-            menuItems.setAll(data.items());
+            menuSearchIndex = data.searchIndex();
             ensureRetailCategoryPresence();
             populateMenuGrid();
         });
@@ -556,134 +674,12 @@ public class BillingController {
     }
 
     private void populateMenuGrid() {
-        menuGrid.getChildren().clear();
-
-        String searchText = searchField != null ? searchField.getText().toLowerCase() : "";
-
-        for (MenuItem item : menuItems) {
-            // Filter by category
-            if (!selectedCategory.equals("All") && !item.getCategory().equals(selectedCategory)) {
-                continue;
-            }
-
-            // Filter by search
-            if (!searchText.isEmpty() && !item.getName().toLowerCase().contains(searchText)) {
-                continue;
-            }
-
-            VBox tile = createMenuTile(item);
-            menuGrid.getChildren().add(tile);
-        }
-    }
-
-    private VBox createMenuTile(MenuItem item) {
-        VBox tile = new VBox(6);
-        tile.getStyleClass().add("tile");
-        tile.setAlignment(Pos.CENTER);
-        tile.setPadding(new Insets(12));
-        tile.setFocusTraversable(false);
-        
-        // Base style with white background and subtle shadow
-        tile.setStyle("-fx-cursor: hand; " +
-                      "-fx-background-color: white; " +
-                      "-fx-border-color: #e5e7eb; " +
-                      "-fx-border-width: 1; " +
-                      "-fx-border-radius: 8; " +
-                      "-fx-background-radius: 8; " +
-                      "-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.06), 4, 0.3, 0, 1);");
-        
-        // Image thumbnail or icon placeholder
-        javafx.scene.Node visual;
-        String imgPath = item.getImageUrl();
-        if (imgPath != null && !imgPath.isBlank()) {
-            File f = new File(imgPath);
-            if (!f.exists()) {
-                // Icon placeholder with colored background
-                VBox iconBox = new VBox();
-                iconBox.setAlignment(Pos.CENTER);
-                iconBox.setPrefSize(56, 56);
-                iconBox.setStyle("-fx-background-color: #eff6ff; " +
-                               "-fx-background-radius: 8; " +
-                               "-fx-border-color: #bfdbfe; " +
-                               "-fx-border-width: 1; " +
-                               "-fx-border-radius: 8;");
-                Label iconLabel = new Label(item.getName().substring(0, Math.min(2, item.getName().length())).toUpperCase());
-                iconLabel.setStyle("-fx-font-size: 20px; -fx-font-weight: bold; -fx-text-fill: #2563eb;");
-                iconBox.getChildren().add(iconLabel);
-                visual = iconBox;
-            } else {
-                ImageView iv = new ImageView(new Image(f.toURI().toString(), 56, 56, true, true));
-                iv.setFitWidth(56);
-                iv.setFitHeight(56);
-                iv.setStyle("-fx-background-radius: 8;");
-                visual = iv;
-            }
-        } else {
-            // Icon placeholder with colored background
-            VBox iconBox = new VBox();
-            iconBox.setAlignment(Pos.CENTER);
-            iconBox.setPrefSize(56, 56);
-            iconBox.setStyle("-fx-background-color: #eff6ff; " +
-                           "-fx-background-radius: 8; " +
-                           "-fx-border-color: #bfdbfe; " +
-                           "-fx-border-width: 1; " +
-                           "-fx-border-radius: 8;");
-            Label iconLabel = new Label(item.getName().substring(0, Math.min(2, item.getName().length())).toUpperCase());
-            iconLabel.setStyle("-fx-font-size: 20px; -fx-font-weight: bold; -fx-text-fill: #2563eb;");
-            iconBox.getChildren().add(iconLabel);
-            visual = iconBox;
-        }
-
-        Label name = new Label(item.getName());
-        name.setWrapText(true);
-        name.setMaxWidth(90);
-        name.setAlignment(Pos.CENTER);
-        name.setStyle("-fx-font-weight: 600; -fx-font-size: 12px; -fx-text-fill: #111827; -fx-text-alignment: center;");
-
-        Label price = new Label("₹" + String.format("%.0f", item.getPrice()));
-        price.setStyle("-fx-text-fill: #10b981; -fx-font-weight: 700; -fx-font-size: 14px;");
-
-        tile.getChildren().addAll(visual, name, price);
-
-        if (item.hasLimitedInventory()) {
-            int qty = item.getAvailableQuantity() != null ? item.getAvailableQuantity() : 0;
-            Label stockLabel = new Label(qty > 0 ? "Stock: " + qty : "Out of stock");
-            stockLabel.setStyle("-fx-font-size: 10px; " +
-                              "-fx-padding: 2 6; " +
-                              "-fx-background-radius: 4; " +
-                              (qty > 0 
-                                  ? "-fx-background-color: #dbeafe; -fx-text-fill: #1e40af;" 
-                                  : "-fx-background-color: #fee2e2; -fx-text-fill: #991b1b;"));
-            tile.getChildren().add(stockLabel);
-            if (qty <= 0) {
-                tile.setOpacity(0.5);
-            }
-        }
-
-        // Click to add item to order
-        tile.setOnMouseClicked(e -> addItemToOrder(item));
-
-        // Hover effect - subtle border and shadow change
-        final String baseStyle = "-fx-cursor: hand; " +
-                                "-fx-background-color: white; " +
-                                "-fx-border-color: #e5e7eb; " +
-                                "-fx-border-width: 1; " +
-                                "-fx-border-radius: 8; " +
-                                "-fx-background-radius: 8; " +
-                                "-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.06), 4, 0.3, 0, 1);";
-        
-        final String hoverStyle = "-fx-cursor: hand; " +
-                                 "-fx-background-color: white; " +
-                                 "-fx-border-color: #2563eb; " +
-                                 "-fx-border-width: 2; " +
-                                 "-fx-border-radius: 8; " +
-                                 "-fx-background-radius: 8; " +
-                                 "-fx-effect: dropshadow(gaussian, rgba(37,99,235,0.15), 8, 0.4, 0, 2);";
-        
-        tile.setOnMouseEntered(e -> tile.setStyle(hoverStyle));
-        tile.setOnMouseExited(e -> tile.setStyle(baseStyle));
+        long start = System.nanoTime();
+        String searchText = searchField != null ? searchField.getText() : "";
+        String category = selectedCategory.equals("All") ? null : selectedCategory;
 
-        return tile;
+        List<MenuItem> visibleItems = menuSearchIndex.search(searchText, category);
+        menuTileGrid.setItems(visibleItems, start);
     }
 
     private void addItemToOrder(MenuItem menuItem) {
@@ -804,10 +800,7 @@ public class BillingController {
     }
 
     private long generateBillNumber() {
-        // Generate unique bill number based on timestamp
-        LocalDateTime now = LocalDateTime.now();
-        // Format: yyMMddHHmmss (removes first 2 digits of year)
-        return Long.parseLong(now.format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")).substring(2));
+        return NumberAllocator.bills().next();
     }
 
     private void setupOrderTypeToggleStyles() {
@@ -863,7 +856,9 @@ public class BillingController {
     private void setupEventHandlers() {
         // Search field
         if (searchField != null) {
-            searchField.textProperty().addListener((obs, old, newVal) -> populateMenuGrid());
+            // Debounced so a burst of keystrokes triggers one search
+            searchDebounce.setOnFinished(e -> populateMenuGrid());
+            searchField.textProperty().addListener((obs, old, newVal) -> searchDebounce.playFromStart());
         }
 
         // Payment method buttons
@@ -1012,33 +1007,54 @@ public class BillingController {
         billData.setTotal(currentTotal);
         billData.setCashTendered(0); // Can be enhanced later with cash tendered dialog
 
-        // Print on thermal printer
-        ThermalPrinter printer = new ThermalPrinter();
-        boolean printSuccess = printer.printBill(billData);
+        // Printed in the background; settling does not wait for the printer
+        spoolReceipt(billData);
+        settleBillAfterPrint(billNum, customerName, currentSubtotal, currentTax, currentTotal);
+    }
 
-        if (printSuccess) {
-            // After successful print, settle the bill
-            settleBillAfterPrint(billNum, customerName, currentSubtotal, currentTax, currentTotal);
-        } else {
-            // Show error but ask if user wants to settle anyway
+    /**
+     * Queue a receipt on the print spooler off the FX thread. Only a failed
+     * print comes back to the cashier, who can retry it.
+     */
+    private void spoolReceipt(ThermalPrinter.BillData billData) {
+        dataExecutor.submit(() -> {
+            try {
+                thermalPrinter.spoolBill(billData, this::onPrintJobUpdate);
+            } catch (RuntimeException e) {
+                System.err.println("Error preparing receipt: " + e.getMessage());
+                Platform.runLater(() -> showAlert("Print Failed",
+                        "Bill #" + billData.getBillNumber() + " could not be printed: " + e.getMessage()));
+            }
+        });
+    }
+
+    private void onPrintJobUpdate(PrintSpooler.PrintJob job) {
+        if (job.status() != PrintSpooler.JobStatus.FAILED) {
+            return;
+        }
+        Platform.runLater(() -> {
             Alert alert = new Alert(Alert.AlertType.WARNING);
             alert.setTitle("Print Failed");
-            alert.setHeaderText("Failed to print bill");
-            alert.setContentText("The bill could not be printed. Do you want to settle the bill anyway?");
-            
-            ButtonType settleButton = new ButtonType("Settle Anyway");
-            ButtonType cancelButton = new ButtonType("Cancel", ButtonData.CANCEL_CLOSE);
-            alert.getButtonTypes().setAll(settleButton, cancelButton);
-            
+            alert.setHeaderText(job.description() + " could not be printed");
+            alert.setContentText((job.lastError() != null ? job.lastError() + "\n" : "")
+                    + "The bill is settled. Do you want to try printing it again?\n"
+                    + "Dismissed receipts are not printed again.");
+
+            ButtonType retryButton = new ButtonType("Retry");
+            ButtonType dismissButton = new ButtonType("Dismiss", ButtonData.CANCEL_CLOSE);
+            alert.getButtonTypes().setAll(retryButton, dismissButton);
+
             Optional<ButtonType> result = alert.showAndWait();
-            if (result.isPresent() && result.get() == settleButton) {
-                settleBillAfterPrint(billNum, customerName, currentSubtotal, currentTax, currentTotal);
+            if (result.isPresent() && result.get() == retryButton) {
+                PrintSpooler.getInstance().resubmit(job);
+            } else {
+                PrintSpooler.getInstance().cancel(job);
             }
-        }
+        });
     }
 
     /**
-     * Settle bill after printing
+     * Settle bill once its receipt is queued for printing
      */
     private void settleBillAfterPrint(long billNumber, String customerName, 
                                       double currentSubtotal, double currentTax, double currentTotal) {
@@ -1070,7 +1086,9 @@ public class BillingController {
             protected Long call() {
                 long saleId = salesService.recordSale(request);
                 if (tableSessionMode && activeTableIdSnapshot != null) {
-                    tableService.clearSession(activeTableIdSnapshot, "Available");
+                    // Through the store so a queued save cannot reopen the settled table
+                    sessionStore.clear(activeTableIdSnapshot, "Available");
+                    sessionStore.flush(activeTableIdSnapshot).join();
                 }
                 return saleId;
             }
@@ -1078,7 +1096,7 @@ public class BillingController {
         
         task.setOnSucceeded(e -> {
             showAlert("Bill Settled", 
-                "Bill #" + billNumber + " printed and settled successfully!\n" +
+                "Bill #" + billNumber + " settled successfully! Receipt sent to printer.\n" +
                 "Payment: " + selectedPaymentMethod + "\n" +
                 "Total: ₹" + String.format("%.2f", currentTotal));
             
@@ -1152,29 +1170,9 @@ public class BillingController {
         billData.setTotal(currentTotal);
         billData.setCashTendered(0);
 
-        // Print on thermal printer
-        ThermalPrinter printer = new ThermalPrinter();
-        boolean printSuccess = printer.printBill(billData);
-
-        if (printSuccess) {
-            // After successful print, settle the bill for this tab
-            settleBillForTab(tab);
-        } else {
-            // Show error but ask if user wants to settle anyway
-            Alert alert = new Alert(Alert.AlertType.WARNING);
-            alert.setTitle("Print Failed");
-            alert.setHeaderText("Failed to print bill");
-            alert.setContentText("The bill could not be printed. Do you want to settle the bill anyway?");
-            
-            ButtonType settleButton = new ButtonType("Settle Anyway");
-            ButtonType cancelButton = new ButtonType("Cancel", ButtonData.CANCEL_CLOSE);
-            alert.getButtonTypes().setAll(settleButton, cancelButton);
-            
-            Optional<ButtonType> result = alert.showAndWait();
-            if (result.isPresent() && result.get() == settleButton) {
-                settleBillForTab(tab);
-            }
-        }
+        // Printed in the background; settling does not wait for the printer
+        spoolReceipt(billData);
+        settleBillForTab(tab);
     }
 
     private void settleBill() {
@@ -1261,7 +1259,9 @@ public class BillingController {
             protected Long call() {
                 long saleId = salesService.recordSale(request);
                 if (tableSessionMode && activeTableIdSnapshot != null) {
-                    tableService.clearSession(activeTableIdSnapshot, "Available");
+                    // Through the store so a queued save cannot reopen the settled table
+                    sessionStore.clear(activeTableIdSnapshot, "Available");
+                    sessionStore.flush(activeTableIdSnapshot).join();
                 }
                 return saleId;
             }
@@ -1523,7 +1523,7 @@ public class BillingController {
         populateMenuGrid();
     }
 
-    private record MenuData(List<MenuItem> items, Map<String, InventoryItem> retailInventory) {
+    private record MenuData(MenuSearchIndex searchIndex, Map<String, InventoryItem> retailInventory) {
     }
 
     private void showAlert(String title, String message) {
@@ -1545,7 +1545,7 @@ public class BillingController {
         Label billNumberLabel;
         Label dateLabel;
         TextField customerField;
-        int billNumber;
+        long billNumber;
         String paymentMethod = "Cash";
         Button cashBtn;
         Button cardBtn;
@@ -1558,7 +1558,7 @@ public class BillingController {
         Button newBillBtn;
 
         BillTab(int tabNumber, BillingController controller) {
-            this.billNumber = (int) generateBillNumber();
+            this.billNumber = generateBillNumber();
             this.orderItems = FXCollections.observableArrayList();
 
             // Create table
@@ -1882,7 +1882,7 @@ public class BillingController {
         private String customerName = "";
         private String paymentMethod = "Cash";
         private String title;
-        private int billNumber;
+        private long billNumber;
         private String dateLabel;
     }
 
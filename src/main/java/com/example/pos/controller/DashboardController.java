@@ -36,11 +36,14 @@ import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
-public class DashboardController {
+public class DashboardController implements ManagedView {
     
     private final DashboardService dashboardService = new DashboardService();
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // Opens a view in the main window; set by MainController
+    private Consumer<String> navigator;
 
     @FXML private Button btnNewBill;
     @FXML private Button btnKOT;
@@ -354,6 +357,10 @@ public class DashboardController {
     }
     
     private void navigateToView(String fxmlName) {
+        if (navigator != null) {
+            navigator.accept(fxmlName);
+            return;
+        }
         try {
             // Find the main content area (StackPane in MainLayout)
             Node currentNode = scrollPane;
@@ -376,11 +383,30 @@ public class DashboardController {
 
     /* ---------- Public Methods ---------- */
 
+    public void setNavigator(Consumer<String> navigator) {
+        this.navigator = navigator;
+    }
+
     public void refreshData() {
         dashboardService.clearCache();
         loadDashboardData();
     }
 
+    /**
+     * Sales and orders may have changed while another view was open; the
+     * service's short-lived cache still applies, as it did when the view was
+     * rebuilt on every visit
+     */
+    @Override
+    public void activate() {
+        loadDashboardData();
+    }
+
+    @Override
+    public void dispose() {
+        executor.shutdown();
+    }
+
     public void updateQuickActionCounts(int kotCount, int inventoryCount, int onlineOrdersCount) {
         // Update button graphics with counts
         updateButtonCount(btnKOT, kotCount);
@@ -154,7 +154,8 @@ public class InventoryController {
             InventoryService.ImportResult result = inventoryService.importCsv(file);
             refreshTable();
             showInfo("Import complete",
-                    "Added: " + result.added() + ", Updated: " + result.updated() + ", Skipped: " + result.skipped());
+                    "Added: " + result.added() + ", Updated: " + result.updated() + ", Skipped: " + result.skipped()
+                            + String.format(" (%.0f rows/s)", result.rowsPerSecond()));
         } catch (IOException ex) {
             showError("Failed to import CSV", ex.getMessage());
         } catch (Exception ex) {
@@ -2,8 +2,12 @@ package com.example.pos.controller;
 
 import com.example.pos.model.KOT;
 import com.example.pos.model.KOTItem;
+import com.example.pos.service.KOTEventBus;
+import com.example.pos.service.KOTEventBus.KOTEvent;
 import com.example.pos.service.KOTService;
 
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -11,15 +15,24 @@ import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
+import javafx.util.Duration;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-public class KOTController {
+public class KOTController implements ManagedView {
 
     @FXML private FlowPane kotContainer;
     @FXML private Label pendingCountLabel;
@@ -33,15 +46,34 @@ public class KOTController {
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final ObservableList<KOT> activeKOTs = FXCollections.observableArrayList();
     private String currentFilter = "All";
+    private Runnable unsubscribe;
+    private Timeline elapsedTicker;
+    private boolean disposed;
+
+    // Rendered cards keyed by KOT id, patched in place on refresh
+    private final Map<Long, KOTCard> cardCache = new HashMap<>();
+    private final Label emptyLabel = new Label("No KOTs found");
+
+    private static final long FRAME_BUDGET_NANOS = 16_666_667L; // one frame at 60 Hz
+    private static final boolean LOG_REFRESH_TIMES = Boolean.getBoolean("pos.kot.perf");
+    private long maxRefreshNanos;
+
+    private static final Comparator<KOT> ACTIVE_ORDER = Comparator
+        .comparingInt((KOT kot) -> priorityRank(kot.getPriority()))
+        .thenComparing(KOT::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder()));
+    private static final Comparator<KOT> RECENT_ORDER =
+        Comparator.comparing(KOT::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()));
 
     @FXML
     private void initialize() {
+        emptyLabel.setStyle("-fx-font-size: 16px; -fx-text-fill: #6b7280;");
         setupEventHandlers();
         setupFilter();
         loadKOTs();
         
-        // Auto-refresh every 30 seconds
-        startAutoRefresh();
+        // React to ticket changes as they happen instead of polling
+        subscribeToEvents();
+        startElapsedTicker();
     }
 
     private void setupEventHandlers() {
@@ -96,8 +128,8 @@ public class KOTController {
     private void displayKOTs(List<KOT> kots) {
         Platform.runLater(() -> {
             if (kotContainer == null) return;
-            
-            kotContainer.getChildren().clear();
+
+            long start = System.nanoTime();
 
             // Filter based on current filter
             List<KOT> filteredKOTs = kots;
@@ -107,125 +139,250 @@ public class KOTController {
                     .toList();
             }
 
-            if (filteredKOTs.isEmpty()) {
-                Label emptyLabel = new Label("No KOTs found");
-                emptyLabel.setStyle("-fx-font-size: 16px; -fx-text-fill: #6b7280;");
-                kotContainer.getChildren().add(emptyLabel);
-                return;
+            // Drop cards for tickets that are no longer shown
+            Set<Long> visibleIds = new HashSet<>();
+            for (KOT kot : filteredKOTs) {
+                visibleIds.add(kot.getId());
             }
+            cardCache.keySet().retainAll(visibleIds);
 
+            // Patch existing cards in place, create only the new ones
+            List<Node> desired = new ArrayList<>(filteredKOTs.size());
             for (KOT kot : filteredKOTs) {
-                VBox kotCard = createKOTCard(kot);
-                kotContainer.getChildren().add(kotCard);
+                KOTCard card = cardCache.get(kot.getId());
+                if (card == null) {
+                    card = new KOTCard(kot);
+                    cardCache.put(kot.getId(), card);
+                } else {
+                    card.update(kot);
+                }
+                desired.add(card.root);
+            }
+            if (desired.isEmpty()) {
+                desired.add(emptyLabel);
             }
+
+            reorderChildren(kotContainer.getChildren(), desired);
+            measureRefresh(start, filteredKOTs.size());
         });
     }
 
-    private VBox createKOTCard(KOT kot) {
-        VBox card = new VBox(8);
-        card.setPadding(new Insets(12));
-        card.setStyle(getCardStyle(kot.getStatus()));
-        card.setPrefWidth(280);
-        card.setMinHeight(200);
+    /**
+     * Bring the container's children into the desired order while leaving
+     * nodes that are already in place untouched.
+     */
+    private static void reorderChildren(ObservableList<Node> children, List<Node> desired) {
+        if (children.equals(desired)) {
+            return;
+        }
+        Set<Node> keep = new HashSet<>(desired);
+        children.removeIf(node -> !keep.contains(node));
+        for (int i = 0; i < desired.size(); i++) {
+            Node node = desired.get(i);
+            if (i < children.size() && children.get(i) == node) {
+                continue;
+            }
+            children.remove(node);
+            children.add(i, node);
+        }
+    }
+
+    /**
+     * Record how long the patch took on the FX thread and how long until the
+     * following pulse finished CSS and layout, and warn when a refresh
+     * does not fit in one 60 Hz frame.
+     */
+    private void measureRefresh(long start, int cardCount) {
+        long patchNanos = System.nanoTime() - start;
+        Scene scene = kotContainer.getScene();
+        if (scene == null) {
+            return;
+        }
 
-        // Header
-        HBox header = new HBox(8);
-        header.setAlignment(Pos.CENTER_LEFT);
+        Runnable[] listener = new Runnable[1];
+        listener[0] = () -> {
+            scene.removePostLayoutPulseListener(listener[0]);
+            long pulseNanos = System.nanoTime() - start;
+            maxRefreshNanos = Math.max(maxRefreshNanos, pulseNanos);
+            if (pulseNanos > FRAME_BUDGET_NANOS || LOG_REFRESH_TIMES) {
+                System.out.printf("KOT board refresh: %d cards, patch %.2f ms, pulse %.2f ms (max %.2f ms)%n",
+                    cardCount, patchNanos / 1_000_000.0, pulseNanos / 1_000_000.0,
+                    maxRefreshNanos / 1_000_000.0);
+            }
+        };
+        scene.addPostLayoutPulseListener(listener[0]);
+    }
 
-        Label kotNumber = new Label("KOT #" + kot.getKotNumber());
-        kotNumber.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
+    /**
+     * A rendered ticket. Keeps references to the nodes that depend on ticket
+     * state so a refresh only touches what actually changed.
+     */
+    private final class KOTCard {
+        private final VBox root = new VBox(8);
+        private final Label customer = new Label();
+        private final Label kotNumber = new Label();
+        private final Label priority = new Label();
+        private final Label time = new Label();
+        private final Label tableInfo = new Label();
+        private final Label elapsed = new Label();
+        private final VBox itemsList = new VBox(4);
+        private final HBox statusButtons = new HBox(4);
+
+        private KOT kot;
+        private String status;
+        private String itemsSignature;
+
+        KOTCard(KOT kot) {
+            root.setPadding(new Insets(12));
+            root.setPrefWidth(280);
+            root.setMinHeight(200);
+
+            // Header
+            HBox header = new HBox(8);
+            header.setAlignment(Pos.CENTER_LEFT);
+
+            kotNumber.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
+            priority.setPadding(new Insets(2, 8, 2, 8));
+
+            Region spacer = new Region();
+            HBox.setHgrow(spacer, Priority.ALWAYS);
+
+            time.setStyle("-fx-text-fill: #6b7280; -fx-font-size: 12px;");
+
+            header.getChildren().addAll(kotNumber, priority, spacer, time);
+
+            // Table/Order info
+            tableInfo.setStyle("-fx-text-fill: #374151; -fx-font-size: 12px;");
+            customer.setStyle("-fx-text-fill: #6b7280; -fx-font-size: 11px;");
 
-        Label priority = new Label(kot.getPriority());
-        priority.setStyle(getPriorityStyle(kot.getPriority()));
-        priority.setPadding(new Insets(2, 8, 2, 8));
+            // Items list
+            itemsList.setStyle("-fx-background-color: #f9fafb; -fx-padding: 8; -fx-background-radius: 6;");
 
-        Region spacer = new Region();
-        HBox.setHgrow(spacer, Priority.ALWAYS);
+            statusButtons.setAlignment(Pos.CENTER);
 
-        Label time = new Label(kot.getDisplayTime());
-        time.setStyle("-fx-text-fill: #6b7280; -fx-font-size: 12px;");
+            root.getChildren().addAll(customer, header, tableInfo, elapsed, new Separator(), itemsList, statusButtons);
+            update(kot);
+        }
 
-        header.getChildren().addAll(kotNumber, priority, spacer, time);
+        void update(KOT kot) {
+            this.kot = kot;
 
-        // Table/Order info
-        Label tableInfo = new Label(kot.getTableName() + " • " + kot.getOrderType());
-        tableInfo.setStyle("-fx-text-fill: #374151; -fx-font-size: 12px;");
+            setText(kotNumber, "KOT #" + kot.getKotNumber());
+            setText(time, kot.getDisplayTime());
+            setText(tableInfo, kot.getTableName() + " • " + kot.getOrderType());
 
-        if (kot.getCustomerName() != null && !kot.getCustomerName().isEmpty()) {
-            Label customer = new Label("Customer: " + kot.getCustomerName());
-            customer.setStyle("-fx-text-fill: #6b7280; -fx-font-size: 11px;");
-            card.getChildren().add(customer);
-        }
+            boolean hasCustomer = kot.getCustomerName() != null && !kot.getCustomerName().isEmpty();
+            setText(customer, hasCustomer ? "Customer: " + kot.getCustomerName() : "");
+            customer.setVisible(hasCustomer);
+            customer.setManaged(hasCustomer);
 
-        // Elapsed time
-        Label elapsed = new Label("⏱ " + kot.getElapsedTime());
-        elapsed.setStyle(getElapsedTimeStyle(kot));
+            if (!kot.getPriority().equals(priority.getText())) {
+                priority.setText(kot.getPriority());
+                priority.setStyle(getPriorityStyle(kot.getPriority()));
+            }
 
-        // Items list
-        VBox itemsList = new VBox(4);
-        itemsList.setStyle("-fx-background-color: #f9fafb; -fx-padding: 8; -fx-background-radius: 6;");
-        
-        for (KOTItem item : kot.getItems()) {
-            HBox itemRow = new HBox(8);
-            itemRow.setAlignment(Pos.CENTER_LEFT);
-            
-            Label qty = new Label(item.getQuantity() + "x");
-            qty.setStyle("-fx-font-weight: bold; -fx-min-width: 30;");
-            
-            Label itemName = new Label(item.getItemName());
-            itemName.setStyle("-fx-text-fill: #111827;");
-            
-            if (item.getSpecialNotes() != null && !item.getSpecialNotes().isEmpty()) {
-                Label notes = new Label("(" + item.getSpecialNotes() + ")");
-                notes.setStyle("-fx-text-fill: #f59e0b; -fx-font-size: 10px;");
-                itemRow.getChildren().addAll(qty, itemName, notes);
-            } else {
-                itemRow.getChildren().addAll(qty, itemName);
+            if (!kot.getStatus().equals(status)) {
+                status = kot.getStatus();
+                root.setStyle(getCardStyle(status));
+                buildStatusButtons();
             }
-            
-            itemsList.getChildren().add(itemRow);
+
+            String signature = itemsSignature(kot.getItems());
+            if (!signature.equals(itemsSignature)) {
+                itemsSignature = signature;
+                buildItems();
+            }
+
+            refreshElapsed();
         }
 
-        // Status buttons
-        HBox statusButtons = new HBox(4);
-        statusButtons.setAlignment(Pos.CENTER);
-
-        if (kot.getStatus().equals("Pending")) {
-            Button startBtn = new Button("Start");
-            startBtn.setStyle("-fx-background-color: #3b82f6; -fx-text-fill: white; -fx-cursor: hand;");
-            startBtn.setOnAction(e -> updateKOTStatus(kot, "Preparing"));
-            
-            Button cancelBtn = new Button("Cancel");
-            cancelBtn.setStyle("-fx-background-color: #ef4444; -fx-text-fill: white; -fx-cursor: hand;");
-            cancelBtn.setOnAction(e -> updateKOTStatus(kot, "Cancelled"));
-            
-            statusButtons.getChildren().addAll(startBtn, cancelBtn);
-        } else if (kot.getStatus().equals("Preparing")) {
-            Button readyBtn = new Button("Mark Ready");
-            readyBtn.setStyle("-fx-background-color: #10b981; -fx-text-fill: white; -fx-cursor: hand;");
-            readyBtn.setOnAction(e -> updateKOTStatus(kot, "Ready"));
-            
-            statusButtons.getChildren().add(readyBtn);
-        } else if (kot.getStatus().equals("Ready")) {
-            Button completeBtn = new Button("Complete");
-            completeBtn.setStyle("-fx-background-color: #6b7280; -fx-text-fill: white; -fx-cursor: hand;");
-            completeBtn.setOnAction(e -> updateKOTStatus(kot, "Completed"));
-            
-            statusButtons.getChildren().add(completeBtn);
+        void refreshElapsed() {
+            setText(elapsed, "⏱ " + kot.getElapsedTime());
+            String style = getElapsedTimeStyle(kot);
+            if (!style.equals(elapsed.getStyle())) {
+                elapsed.setStyle(style);
+            }
         }
 
-        // Priority buttons
-        if (!kot.getStatus().equals("Completed") && !kot.getStatus().equals("Cancelled")) {
-            Button priorityBtn = new Button("⚡");
-            priorityBtn.setStyle("-fx-background-color: #f59e0b; -fx-text-fill: white; -fx-cursor: hand;");
-            priorityBtn.setTooltip(new Tooltip("Set as Urgent"));
-            priorityBtn.setOnAction(e -> updateKOTPriority(kot, "Urgent"));
-            statusButtons.getChildren().add(priorityBtn);
+        private void buildItems() {
+            itemsList.getChildren().clear();
+            for (KOTItem item : kot.getItems()) {
+                HBox itemRow = new HBox(8);
+                itemRow.setAlignment(Pos.CENTER_LEFT);
+
+                Label qty = new Label(item.getQuantity() + "x");
+                qty.setStyle("-fx-font-weight: bold; -fx-min-width: 30;");
+
+                Label itemName = new Label(item.getItemName());
+                itemName.setStyle("-fx-text-fill: #111827;");
+
+                if (item.getSpecialNotes() != null && !item.getSpecialNotes().isEmpty()) {
+                    Label notes = new Label("(" + item.getSpecialNotes() + ")");
+                    notes.setStyle("-fx-text-fill: #f59e0b; -fx-font-size: 10px;");
+                    itemRow.getChildren().addAll(qty, itemName, notes);
+                } else {
+                    itemRow.getChildren().addAll(qty, itemName);
+                }
+
+                itemsList.getChildren().add(itemRow);
+            }
         }
 
-        card.getChildren().addAll(header, tableInfo, elapsed, new Separator(), itemsList, statusButtons);
+        private void buildStatusButtons() {
+            statusButtons.getChildren().clear();
+
+            // Handlers read the card's current ticket, so they stay valid across updates
+            if (status.equals("Pending")) {
+                Button startBtn = new Button("Start");
+                startBtn.setStyle("-fx-background-color: #3b82f6; -fx-text-fill: white; -fx-cursor: hand;");
+                startBtn.setOnAction(e -> updateKOTStatus(kot, "Preparing"));
+
+                Button cancelBtn = new Button("Cancel");
+                cancelBtn.setStyle("-fx-background-color: #ef4444; -fx-text-fill: white; -fx-cursor: hand;");
+                cancelBtn.setOnAction(e -> updateKOTStatus(kot, "Cancelled"));
 
-        return card;
+                statusButtons.getChildren().addAll(startBtn, cancelBtn);
+            } else if (status.equals("Preparing")) {
+                Button readyBtn = new Button("Mark Ready");
+                readyBtn.setStyle("-fx-background-color: #10b981; -fx-text-fill: white; -fx-cursor: hand;");
+                readyBtn.setOnAction(e -> updateKOTStatus(kot, "Ready"));
+
+                statusButtons.getChildren().add(readyBtn);
+            } else if (status.equals("Ready")) {
+                Button completeBtn = new Button("Complete");
+                completeBtn.setStyle("-fx-background-color: #6b7280; -fx-text-fill: white; -fx-cursor: hand;");
+                completeBtn.setOnAction(e -> updateKOTStatus(kot, "Completed"));
+
+                statusButtons.getChildren().add(completeBtn);
+            }
+
+            // Priority buttons
+            if (!status.equals("Completed") && !status.equals("Cancelled")) {
+                Button priorityBtn = new Button("⚡");
+                priorityBtn.setStyle("-fx-background-color: #f59e0b; -fx-text-fill: white; -fx-cursor: hand;");
+                priorityBtn.setTooltip(new Tooltip("Set as Urgent"));
+                priorityBtn.setOnAction(e -> updateKOTPriority(kot, "Urgent"));
+                statusButtons.getChildren().add(priorityBtn);
+            }
+        }
+    }
+
+    private static void setText(Label label, String text) {
+        if (!text.equals(label.getText())) {
+            label.setText(text);
+        }
+    }
+
+    private static String itemsSignature(List<KOTItem> items) {
+        StringBuilder sb = new StringBuilder();
+        for (KOTItem item : items) {
+            sb.append(item.getId()).append('|')
+              .append(item.getQuantity()).append('|')
+              .append(item.getItemName()).append('|')
+              .append(item.getSpecialNotes()).append('|')
+              .append(item.getStatus()).append('\n');
+        }
+        return sb.toString();
     }
 
     private String getCardStyle(String status) {
@@ -276,10 +433,8 @@ public class KOTController {
             }
         };
 
-        task.setOnSucceeded(e -> {
-            kot.setStatus(newStatus);
-            loadKOTs();
-        });
+        // The board is refreshed by the resulting KOT event
+        task.setOnSucceeded(e -> kot.setStatus(newStatus));
 
         task.setOnFailed(e -> {
             Throwable ex = task.getException();
@@ -299,10 +454,7 @@ public class KOTController {
             }
         };
 
-        task.setOnSucceeded(e -> {
-            kot.setPriority(newPriority);
-            loadKOTs();
-        });
+        task.setOnSucceeded(e -> kot.setPriority(newPriority));
 
         task.setOnFailed(e -> {
             Throwable ex = task.getException();
@@ -368,19 +520,124 @@ public class KOTController {
         executor.submit(task);
     }
 
-    private void startAutoRefresh() {
-        Thread refreshThread = new Thread(() -> {
-            while (true) {
-                try {
-                    Thread.sleep(30000); // 30 seconds
-                    Platform.runLater(this::loadKOTs);
-                } catch (InterruptedException e) {
-                    break;
-                }
+    private void subscribeToEvents() {
+        KOTEventBus bus = KOTEventBus.getInstance();
+        // Kept while the board is hidden, so it is current when shown again;
+        // MainController disposes it when the cached view is evicted
+        unsubscribe = bus.subscribe(event -> Platform.runLater(() -> onKOTEvent(event)));
+        bus.startRemoteListener();
+    }
+
+    /**
+     * Apply a single ticket change: reload only that ticket and patch it into the board
+     */
+    private void onKOTEvent(KOTEvent event) {
+        switch (event.type()) {
+            case RESYNC -> loadKOTs();
+            case DELETED -> {
+                activeKOTs.removeIf(kot -> kot.getId() == event.kotId());
+                displayKOTs(List.copyOf(activeKOTs));
+                updateCounts();
             }
+            default -> {
+                Task<KOT> task = new Task<>() {
+                    @Override
+                    protected KOT call() throws Exception {
+                        return kotService.getKOTById(event.kotId());
+                    }
+                };
+
+                task.setOnSucceeded(e -> {
+                    applyKOTChange(event.kotId(), task.getValue());
+                    displayKOTs(List.copyOf(activeKOTs));
+                    updateCounts();
+                });
+
+                task.setOnFailed(e -> {
+                    Throwable ex = task.getException();
+                    System.err.println("Failed to reload KOT " + event.kotId() + ": " +
+                        (ex != null ? ex.getMessage() : "Unknown error"));
+                });
+
+                executor.submit(task);
+            }
+        }
+    }
+
+    private void applyKOTChange(long kotId, KOT updated) {
+        activeKOTs.removeIf(kot -> kot.getId() == kotId);
+        if (updated == null) {
+            return;
+        }
+
+        boolean showAll = currentFilter.equals("All");
+        if (!showAll && !isActiveStatus(updated.getStatus())) {
+            return;
+        }
+
+        activeKOTs.add(updated);
+        FXCollections.sort(activeKOTs, showAll ? RECENT_ORDER : ACTIVE_ORDER);
+    }
+
+    private static boolean isActiveStatus(String status) {
+        return status.equals("Pending") || status.equals("Preparing") || status.equals("Ready");
+    }
+
+    private static int priorityRank(String priority) {
+        return switch (priority) {
+            case "Urgent" -> 1;
+            case "High" -> 2;
+            default -> 3;
+        };
+    }
+
+    /**
+     * Update elapsed times on the existing cards every 30 s; no database
+     * access. initialize() may run on the view preloader thread, so the
+     * ticker is created and started on the FX thread, ahead of any
+     * activate/deactivate.
+     */
+    private void startElapsedTicker() {
+        Platform.runLater(() -> {
+            if (disposed) {
+                return;
+            }
+            elapsedTicker = new Timeline(new KeyFrame(Duration.seconds(30),
+                e -> cardCache.values().forEach(KOTCard::refreshElapsed)));
+            elapsedTicker.setCycleCount(Timeline.INDEFINITE);
+            elapsedTicker.play();
         });
-        refreshThread.setDaemon(true);
-        refreshThread.start();
+    }
+
+    @Override
+    public void activate() {
+        cardCache.values().forEach(KOTCard::refreshElapsed);
+        if (elapsedTicker != null) {
+            elapsedTicker.play();
+        }
+    }
+
+    /**
+     * Elapsed times only matter while the board is visible
+     */
+    @Override
+    public void deactivate() {
+        if (elapsedTicker != null) {
+            elapsedTicker.stop();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        if (unsubscribe != null) {
+            unsubscribe.run();
+            unsubscribe = null;
+        }
+        if (elapsedTicker != null) {
+            elapsedTicker.stop();
+        }
+        executor.shutdown();
     }
 
     private void showAlert(String title, String message) {
@@ -2,16 +2,21 @@ package com.example.pos.controller;
 
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.StackPane;
 
+import java.util.List;
+
 public class MainController {
 
+    // Views reached most often from the dashboard, built while it is shown
+    private static final List<String> PRELOADED_VIEWS = List.of("BillingView.fxml", "KOTView.fxml");
+
+    private final ViewRegistry views = new ViewRegistry();
+
     @FXML
     private BorderPane root;
     @FXML
@@ -47,6 +52,14 @@ public class MainController {
             outletChoice.setValue("Main Outlet");
         }
         loadView("DashboardView.fxml");
+        views.preload(PRELOADED_VIEWS);
+    }
+
+    /**
+     * Release the cached views' threads and subscriptions, e.g. on exit
+     */
+    public void dispose() {
+        views.disposeAll();
     }
 
     @FXML
@@ -101,8 +114,11 @@ public class MainController {
 
     private void loadView(String fxmlName) {
         try {
-            Node view = FXMLLoader.load(getClass().getResource("/com/example/pos/view/" + fxmlName));
-            contentArea.getChildren().setAll(view);
+            ViewRegistry.LoadedView view = views.show(fxmlName);
+            if (view.controller() instanceof DashboardController dashboard) {
+                dashboard.setNavigator(this::loadView);
+            }
+            contentArea.getChildren().setAll(view.node());
         } catch (Exception e) {
             e.printStackTrace(); // 👈 print full cause
             Label errorLabel = new Label(" Failed to load: " + fxmlName + "\n" + e.getMessage());
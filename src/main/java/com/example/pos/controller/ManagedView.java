@@ -0,0 +1,32 @@
+package com.example.pos.controller;
+
+/**
+ * Lifecycle hooks for a controller whose view MainController keeps alive
+ * between visits (see ViewRegistry). All hooks run on the FX thread, but
+ * initialize() of a preloaded view runs on the preloader thread, so timers
+ * and animations must be started with Platform.runLater or from activate().
+ */
+public interface ManagedView {
+
+    /**
+     * The view is shown again after being hidden; refresh whatever may have
+     * changed meanwhile. Not called for the first showing, which initialize()
+     * already covers.
+     */
+    default void activate() {
+    }
+
+    /**
+     * The view was navigated away from but stays cached; pause timers and
+     * other work only the visible view needs
+     */
+    default void deactivate() {
+    }
+
+    /**
+     * The view was evicted or the app is closing; release threads and
+     * subscriptions. The view is not used again.
+     */
+    default void dispose() {
+    }
+}
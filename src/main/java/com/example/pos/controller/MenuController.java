@@ -10,6 +10,7 @@ import java.util.Map;
 
 import com.example.pos.model.MenuProduct;
 import com.example.pos.service.MenuService;
+import com.example.pos.util.ThumbnailCache;
 
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleDoubleProperty;
@@ -31,6 +32,7 @@ import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
 import javafx.scene.control.TextInputDialog;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 
@@ -54,6 +56,9 @@ public class MenuController {
     @FXML private TableColumn<MenuProduct, Number> qtyCol;
     @FXML private TableColumn<MenuProduct, MenuProduct> actionsCol;
 
+    private static final int LIST_THUMBNAIL_SIZE = 28;
+    private static final int PREVIEW_SIZE = 96;
+
     // Local state
     private final ObservableList<MenuProduct> data = FXCollections.observableArrayList();
     private final MenuService menuService = new MenuService();
@@ -87,6 +92,34 @@ public class MenuController {
 
     private void setupTable() {
         nameCol.setCellValueFactory(cd -> new SimpleStringProperty(cd.getValue().getName()));
+        nameCol.setCellFactory(col -> new TableCell<>() {
+            private final ImageView thumbnail = new ImageView();
+
+            {
+                thumbnail.setFitWidth(LIST_THUMBNAIL_SIZE);
+                thumbnail.setFitHeight(LIST_THUMBNAIL_SIZE);
+                thumbnail.setPreserveRatio(true);
+                setGraphicTextGap(8);
+            }
+
+            @Override
+            protected void updateItem(String name, boolean empty) {
+                super.updateItem(name, empty);
+                MenuProduct product = empty ? null : getTableRow().getItem();
+                setText(empty ? null : name);
+                thumbnail.setImage(null);
+                setGraphic(product != null && product.getImageUrl() != null && !product.getImageUrl().isBlank()
+                        ? thumbnail : null);
+                if (product != null) {
+                    // Decoded off the FX thread; ignore the result if this cell was reused meanwhile
+                    ThumbnailCache.getInstance().load(product.getImageUrl(), LIST_THUMBNAIL_SIZE, image -> {
+                        if (getTableRow() != null && getTableRow().getItem() == product) {
+                            thumbnail.setImage(image);
+                        }
+                    });
+                }
+            }
+        });
         categoryCol.setCellValueFactory(cd -> new SimpleStringProperty(cd.getValue().getCategory()));
         priceCol.setCellValueFactory(cd -> new SimpleDoubleProperty(cd.getValue().getPrice()));
         qtyCol.setCellValueFactory(cd -> new SimpleIntegerProperty(cd.getValue().getQuantity()));
@@ -274,6 +307,12 @@ public class MenuController {
         // Image chooser
         TextField imageField = new TextField(initial == null ? "" : (initial.getImageUrl() == null ? "" : initial.getImageUrl()));
         imageField.setPromptText("images/filename.png");
+        ImageView preview = new ImageView();
+        preview.setFitWidth(PREVIEW_SIZE);
+        preview.setFitHeight(PREVIEW_SIZE);
+        preview.setPreserveRatio(true);
+        imageField.textProperty().addListener((o, a, path) -> showPreview(preview, imageField));
+        showPreview(preview, imageField);
         Button browseImage = new Button("Choose Image");
         browseImage.setOnAction(e -> {
             javafx.stage.FileChooser chooser = new javafx.stage.FileChooser();
@@ -284,6 +323,7 @@ public class MenuController {
             if (f != null) {
                 try {
                     String stored = storeImageToLocalFolder(f);
+                    ThumbnailCache.getInstance().invalidate(stored);
                     imageField.setText(stored);
                 } catch (IOException ex) {
                     new Alert(Alert.AlertType.ERROR, "Failed to copy image: " + ex.getMessage()).showAndWait();
@@ -299,6 +339,7 @@ public class MenuController {
         grid.addRow(3, new Label("Category"), category);
         grid.addRow(4, new Label("Quantity"), qty);
         grid.addRow(5, new Label("Image"), new HBox(8, imageField, browseImage));
+        grid.add(preview, 1, 6);
         dialog.getDialogPane().setContent(grid);
 
         dialog.setResultConverter(btn -> {
@@ -326,6 +367,7 @@ public class MenuController {
 
     private void insertItem(MenuProduct p) {
         if (p == null) return;
+        ThumbnailCache.getInstance().invalidate(p.getImageUrl());
         MenuProduct created = menuService.createProduct(p);
         if (created != null) {
             data.add(created);
@@ -336,6 +378,7 @@ public class MenuController {
     private void updateItem(long id, MenuProduct updated) {
         if (updated == null) return;
         updated.setId(id);
+        ThumbnailCache.getInstance().invalidate(updated.getImageUrl());
         menuService.updateProduct(updated);
         for (int i = 0; i < data.size(); i++) {
             if (data.get(i).getId() == id) {
@@ -372,6 +415,19 @@ public class MenuController {
         return id;
     }
 
+    /**
+     * Show the image named in the field; a result for text that has since changed is dropped
+     */
+    private void showPreview(ImageView preview, TextField imageField) {
+        String path = imageField.getText();
+        preview.setImage(null);
+        ThumbnailCache.getInstance().load(path == null ? null : path.trim(), PREVIEW_SIZE, image -> {
+            if (path != null && path.equals(imageField.getText())) {
+                preview.setImage(image);
+            }
+        });
+    }
+
     private String storeImageToLocalFolder(File source) throws IOException {
         File imagesDir = new File("images");
         if (!imagesDir.exists()) {
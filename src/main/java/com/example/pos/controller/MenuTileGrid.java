@@ -0,0 +1,236 @@
+package com.example.pos.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.example.pos.model.MenuItem;
+import com.example.pos.util.ThumbnailCache;
+
+import javafx.css.PseudoClass;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+
+/**
+ * Virtualized grid of menu tiles for the billing screen.
+ *
+ * Items are grouped into rows shown by a ListView, so only rows in view have
+ * nodes. Scrolling and filtering rebind the existing tiles to other items
+ * instead of building new ones; a filter change costs the same whether the
+ * catalog has 50 items or 5,000.
+ */
+final class MenuTileGrid {
+
+    static final double TILE_WIDTH = 105;
+    static final double TILE_HEIGHT = 140;
+    static final double GAP = 12;
+    static final int THUMBNAIL_SIZE = 56;
+
+    private static final double SIDE_ALLOWANCE = 8 + 16; // list padding + vertical scrollbar
+    private static final long FRAME_BUDGET_NANOS = 16_666_667L; // one frame at 60 Hz
+    private static final boolean LOG_FILTER_TIMES = Boolean.getBoolean("pos.menu.perf");
+    private static final PseudoClass OUT_OF_STOCK = PseudoClass.getPseudoClass("out-of-stock");
+
+    private final ListView<List<MenuItem>> view;
+    private final Consumer<MenuItem> onSelect;
+    private List<MenuItem> items = List.of();
+    private int columns = 3;
+
+    MenuTileGrid(ListView<List<MenuItem>> view, Consumer<MenuItem> onSelect) {
+        this.view = view;
+        this.onSelect = onSelect;
+
+        view.setFixedCellSize(TILE_HEIGHT + GAP);
+        view.setCellFactory(list -> new RowCell());
+        view.widthProperty().addListener((obs, oldWidth, newWidth) -> {
+            int fitted = columnsFor(newWidth.doubleValue());
+            if (fitted != columns) {
+                columns = fitted;
+                regroup();
+            }
+        });
+    }
+
+    /**
+     * Show the given items from the top. requestedAt is the System.nanoTime()
+     * when filtering started, used to check the change fits in one frame.
+     */
+    void setItems(List<MenuItem> items, long requestedAt) {
+        this.items = List.copyOf(items);
+        regroup();
+        view.scrollTo(0);
+        measure(requestedAt);
+    }
+
+    private void regroup() {
+        List<List<MenuItem>> rows = new ArrayList<>(items.size() / columns + 1);
+        for (int i = 0; i < items.size(); i += columns) {
+            rows.add(items.subList(i, Math.min(i + columns, items.size())));
+        }
+        view.getItems().setAll(rows);
+    }
+
+    private static int columnsFor(double width) {
+        if (width <= 0) {
+            return 3;
+        }
+        return Math.max(1, (int) ((width - SIDE_ALLOWANCE + GAP) / (TILE_WIDTH + GAP)));
+    }
+
+    /**
+     * Log filter time and the following CSS/layout pulse when over one frame
+     * (always with -Dpos.menu.perf=true)
+     */
+    private void measure(long start) {
+        long filterNanos = System.nanoTime() - start;
+        Scene scene = view.getScene();
+        if (scene == null) {
+            return;
+        }
+
+        int shown = items.size();
+        Runnable[] listener = new Runnable[1];
+        listener[0] = () -> {
+            scene.removePostLayoutPulseListener(listener[0]);
+            long pulseNanos = System.nanoTime() - start;
+            if (pulseNanos > FRAME_BUDGET_NANOS || LOG_FILTER_TIMES) {
+                System.out.printf("Menu grid refresh: %d items, filter %.2f ms, pulse %.2f ms%n",
+                    shown, filterNanos / 1_000_000.0, pulseNanos / 1_000_000.0);
+            }
+        };
+        scene.addPostLayoutPulseListener(listener[0]);
+    }
+
+    /**
+     * One row of tiles. Tiles are created the first time a row needs them and
+     * then rebound as the cell is reused for other rows.
+     */
+    private final class RowCell extends ListCell<List<MenuItem>> {
+        private final HBox row = new HBox(GAP);
+        private final List<Tile> tiles = new ArrayList<>();
+
+        RowCell() {
+            row.setAlignment(Pos.TOP_LEFT);
+            setText(null);
+        }
+
+        @Override
+        protected void updateItem(List<MenuItem> rowItems, boolean empty) {
+            super.updateItem(rowItems, empty);
+            if (empty || rowItems == null) {
+                setGraphic(null);
+                return;
+            }
+
+            while (tiles.size() < rowItems.size()) {
+                tiles.add(new Tile());
+            }
+            for (int i = 0; i < rowItems.size(); i++) {
+                tiles.get(i).bind(rowItems.get(i));
+            }
+            if (row.getChildren().size() != rowItems.size()) {
+                List<VBox> roots = new ArrayList<>(rowItems.size());
+                for (int i = 0; i < rowItems.size(); i++) {
+                    roots.add(tiles.get(i).root);
+                }
+                row.getChildren().setAll(roots);
+            }
+            setGraphic(row);
+        }
+    }
+
+    /**
+     * A menu tile; static styling lives in app.css (.menu-tile)
+     */
+    private final class Tile {
+        private final VBox root = new VBox(6);
+        private final StackPane visual = new StackPane();
+        private final StackPane iconBox = new StackPane();
+        private final Label iconLabel = new Label();
+        private final ImageView imageView = new ImageView();
+        private final Label name = new Label();
+        private final Label price = new Label();
+        private final Label stock = new Label();
+        private MenuItem item;
+
+        Tile() {
+            root.getStyleClass().add("menu-tile");
+            root.setAlignment(Pos.CENTER);
+            root.setPrefSize(TILE_WIDTH, TILE_HEIGHT);
+            root.setMinSize(TILE_WIDTH, TILE_HEIGHT);
+            root.setMaxSize(TILE_WIDTH, TILE_HEIGHT);
+            root.setFocusTraversable(false);
+
+            iconBox.getStyleClass().add("menu-tile-icon");
+            iconBox.getChildren().add(iconLabel);
+            imageView.setFitWidth(THUMBNAIL_SIZE);
+            imageView.setFitHeight(THUMBNAIL_SIZE);
+            imageView.setPreserveRatio(true);
+            visual.setPrefSize(THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+            visual.setMaxSize(THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+            visual.getChildren().addAll(iconBox, imageView);
+
+            name.getStyleClass().add("menu-tile-name");
+            name.setWrapText(true);
+            name.setMaxWidth(90);
+            name.setAlignment(Pos.CENTER);
+            price.getStyleClass().add("menu-tile-price");
+            stock.getStyleClass().add("menu-tile-stock");
+            stock.managedProperty().bind(stock.visibleProperty());
+
+            root.getChildren().addAll(visual, name, price, stock);
+            root.setOnMouseClicked(e -> {
+                if (item != null) {
+                    onSelect.accept(item);
+                }
+            });
+        }
+
+        void bind(MenuItem next) {
+            if (next == item) {
+                return;
+            }
+            item = next;
+
+            String itemName = next.getName();
+            name.setText(itemName);
+            price.setText("₹" + String.format("%.0f", next.getPrice()));
+            iconLabel.setText(itemName.substring(0, Math.min(2, itemName.length())).toUpperCase());
+            bindImage(next);
+
+            boolean limited = next.hasLimitedInventory();
+            int qty = limited && next.getAvailableQuantity() != null ? next.getAvailableQuantity() : 0;
+            stock.setVisible(limited);
+            if (limited) {
+                stock.setText(qty > 0 ? "Stock: " + qty : "Out of stock");
+            }
+            root.pseudoClassStateChanged(OUT_OF_STOCK, limited && qty <= 0);
+        }
+
+        /**
+         * Show the initials placeholder until the thumbnail is decoded; the
+         * tile may have been rebound to another item by then
+         */
+        private void bindImage(MenuItem requested) {
+            showImage(null);
+            ThumbnailCache.getInstance().load(requested.getImageUrl(), THUMBNAIL_SIZE, image -> {
+                if (item == requested) {
+                    showImage(image);
+                }
+            });
+        }
+
+        private void showImage(Image image) {
+            imageView.setImage(image);
+            iconBox.setVisible(image == null);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.pos.controller;
 
 import com.example.pos.model.RestaurantInfo;
 import com.example.pos.service.RestaurantInfoService;
+import com.example.pos.util.ThermalPrinter;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.TextField;
@@ -88,13 +89,25 @@ public class RestaurantInfoController {
             null
         );
 
-        service.saveRestaurantInfo(info);
+        try {
+            service.saveRestaurantInfo(info);
+        } catch (IllegalStateException e) {
+            // Keep the receipt header as it was; only saved details are printed
+            showError("Could not save restaurant information: "
+                + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()), "Save Failed");
+            return;
+        }
+        ThermalPrinter.refreshHeader(info);
         showSuccess("Restaurant information saved successfully!");
     }
 
     private void showError(String message) {
+        showError(message, "Validation Error");
+    }
+
+    private void showError(String message, String title) {
         Alert alert = new Alert(Alert.AlertType.ERROR);
-        alert.setTitle("Validation Error");
+        alert.setTitle(title);
         alert.setHeaderText(null);
         alert.setContentText(message);
         alert.showAndWait();
@@ -3,12 +3,15 @@ package com.example.pos.controller;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import com.example.pos.model.TableFormData;
 import com.example.pos.model.TableModel;
 import com.example.pos.model.TableSession;
 import com.example.pos.service.TableService;
+import com.example.pos.service.TableSessionStore;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -46,6 +49,7 @@ public class TablesController {
 
     private final ObservableList<TableModel> tables = FXCollections.observableArrayList();
     private final TableService tableService = new TableService();
+    private final TableSessionStore sessionStore = TableSessionStore.getInstance();
 
     @FXML
     private void initialize() {
@@ -60,6 +64,8 @@ public class TablesController {
     private void loadTables() {
         try {
             System.out.println("TablesController: Loading tables from database...");
+            // Read our own queued session edits back
+            sessionStore.flushAll(2, TimeUnit.SECONDS);
             List<TableModel> loadedTables = tableService.loadTables();
             System.out.println("TablesController: Loaded " + loadedTables.size() + " tables successfully");
             tables.setAll(loadedTables);
@@ -146,6 +152,10 @@ public class TablesController {
     }
 
     private void onRefresh(ActionEvent event) {
+        refreshTables();
+    }
+
+    private void refreshTables() {
         loadTables();
         createTableCards();
         updateSummaryCards();
@@ -165,6 +175,7 @@ public class TablesController {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/pos/view/BillingView.fxml"));
             Parent root = loader.load();
             BillingController controller = loader.getController();
+            sessionStore.flushAll(2, TimeUnit.SECONDS);
             TableSession session = tableService.loadSession(table.getId());
             controller.openForTable(tableService, table, session);
 
@@ -172,6 +183,12 @@ public class TablesController {
             stage.setTitle("Billing - " + table.getTableName());
             stage.initModality(Modality.NONE);
             stage.setScene(new Scene(root));
+            // Write the table's last edits as soon as its billing window closes
+            stage.setOnHidden(e -> {
+                controller.dispose();
+                sessionStore.flush(table.getId()).whenComplete(
+                        (ok, ex) -> Platform.runLater(this::refreshTables));
+            });
             stage.show();
         } catch (IOException ex) {
             logError("Unable to open billing view", ex);
@@ -1,17 +1,26 @@
 package com.example.pos.controller;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 import java.util.ResourceBundle;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import com.example.pos.model.Transaction;
 import com.example.pos.service.SalesService;
+import com.example.pos.service.SalesService.PageCursor;
+import com.example.pos.service.SalesService.TransactionFilter;
+import com.example.pos.service.SalesService.TransactionPage;
+import com.example.pos.service.TransactionReportService;
+import com.example.pos.util.XlsxWriter;
+
+import javafx.animation.PauseTransition;
 
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -29,13 +38,15 @@ import javafx.scene.control.DatePicker;
 import javafx.scene.control.Label;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
 import javafx.stage.FileChooser;
+import javafx.util.Duration;
 
-public class TransactionHistoryController implements Initializable {
+public class TransactionHistoryController implements Initializable, ManagedView {
 
     // Header Controls
     @FXML
@@ -81,20 +92,55 @@ public class TransactionHistoryController implements Initializable {
     @FXML
     private Label lblPaginationInfo;
 
+    private static final int PAGE_SIZE = 100;
+    // Start fetching the next page when a row this close to the end is shown
+    private static final int PREFETCH_ROWS = 20;
+
     private final SalesService salesService = new SalesService();
+    private final TransactionReportService reportService = new TransactionReportService();
     private final ExecutorService dataExecutor = Executors.newSingleThreadExecutor();
+    private final PauseTransition searchDebounce = new PauseTransition(Duration.millis(300));
 
     private ObservableList<Transaction> transactionList;
     private FilteredList<Transaction> filteredData;
 
+    // Paging state; pages are fetched from the database as the user scrolls
+    private TransactionFilter currentFilter;
+    private PageCursor nextCursor;
+    private boolean hasMorePages;
+    private boolean pageLoading;
+    private int loadGeneration;
+    // Sample rows are shown when the database has no sales; they are filtered in memory
+    private boolean sampleMode;
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         setupTableColumns();
-        loadTransactionsFromDb();
         setupFilters();
+        setupLazyPaging();
+        reloadFromFirstPage();
         setupEventHandlers();
     }
 
+    /**
+     * New bills may have been made since the view was last shown; reload
+     * from the first page with the filters as they were
+     */
+    @Override
+    public void activate() {
+        reloadFromFirstPage();
+    }
+
+    @Override
+    public void deactivate() {
+        searchDebounce.stop();
+    }
+
+    @Override
+    public void dispose() {
+        dataExecutor.shutdown();
+    }
+
     private void setupTableColumns() {
         // Bill Number Column
         colBillNumber.setCellValueFactory(new PropertyValueFactory<>("billNumber"));
@@ -316,26 +362,78 @@ public class TransactionHistoryController implements Initializable {
         });
     }
 
-    private void loadTransactionsFromDb() {
-        Task<List<Transaction>> task = new Task<>() {
+    private void setupLazyPaging() {
+        tableTransactions.setRowFactory(tv -> new TableRow<>() {
+            @Override
+            protected void updateItem(Transaction item, boolean empty) {
+                super.updateItem(item, empty);
+                if (!empty && getIndex() >= getTableView().getItems().size() - PREFETCH_ROWS) {
+                    loadNextPage();
+                }
+            }
+        });
+    }
+
+    /**
+     * Discard loaded rows and fetch the first page for the current filters
+     */
+    private void reloadFromFirstPage() {
+        sampleMode = false;
+        currentFilter = readFilter();
+        nextCursor = null;
+        hasMorePages = true;
+        pageLoading = false;
+        loadGeneration++;
+        transactionList = FXCollections.observableArrayList();
+        filteredData = new FilteredList<>(transactionList, p -> true);
+        tableTransactions.setItems(filteredData);
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        if (sampleMode || pageLoading || !hasMorePages) {
+            return;
+        }
+        pageLoading = true;
+
+        int generation = loadGeneration;
+        TransactionFilter filter = currentFilter;
+        PageCursor cursor = nextCursor;
+        boolean firstPage = cursor == null;
+
+        Task<TransactionPage> task = new Task<>() {
             @Override
-            protected List<Transaction> call() {
-                return salesService.loadTransactions();
+            protected TransactionPage call() {
+                return salesService.loadTransactionPage(filter, cursor, PAGE_SIZE);
             }
         };
         task.setOnSucceeded(e -> {
-            List<Transaction> result = task.getValue();
-            if (result == null || result.isEmpty()) {
+            if (generation != loadGeneration) {
+                return; // filters changed while this page was loading
+            }
+            pageLoading = false;
+            TransactionPage page = task.getValue();
+            if (firstPage && page.transactions().isEmpty() && isUnfiltered(filter)) {
                 loadSampleData("No transactions found. Showing sample data.");
                 return;
             }
-            transactionList = FXCollections.observableArrayList(result);
-            filteredData = new FilteredList<>(transactionList, p -> true);
-            tableTransactions.setItems(filteredData);
+            transactionList.addAll(page.transactions());
+            nextCursor = page.next();
+            hasMorePages = page.next() != null;
             updateResultInfo();
         });
         task.setOnFailed(e -> {
+            if (generation != loadGeneration) {
+                return;
+            }
+            pageLoading = false;
             Throwable ex = task.getException();
+            if (!firstPage) {
+                hasMorePages = false;
+                showAlert("Load Failed", "Failed to load more transactions."
+                        + (ex != null && ex.getMessage() != null ? "\n" + ex.getMessage() : ""));
+                return;
+            }
             String reason = "Failed to load transactions. Showing sample data.";
             if (ex != null && ex.getMessage() != null) {
                 reason += "\n" + ex.getMessage();
@@ -345,7 +443,26 @@ public class TransactionHistoryController implements Initializable {
         dataExecutor.submit(task);
     }
 
+    private TransactionFilter readFilter() {
+        return new TransactionFilter(
+                txtSearch.getText(),
+                dateFrom.getValue(),
+                dateTo.getValue(),
+                cmbPaymentMode.getValue(),
+                cmbStatus.getValue());
+    }
+
+    private static boolean isUnfiltered(TransactionFilter filter) {
+        return (filter.search() == null || filter.search().isBlank())
+                && filter.from() == null
+                && filter.to() == null
+                && (filter.paymentMode() == null || filter.paymentMode().equals("All"))
+                && (filter.status() == null || filter.status().equals("All"));
+    }
+
     private void loadSampleData(String reason) {
+        sampleMode = true;
+        hasMorePages = false;
         transactionList = FXCollections.observableArrayList(
                 new Transaction("#12345", LocalDateTime.of(2025, 10, 9, 18, 16), "John Doe", "Dine-in", 1250, "Card", "Completed"),
                 new Transaction("#12344", LocalDateTime.of(2025, 10, 9, 15, 30), "Walk-in", "Dine-in", 3400, "Cash", "Completed"),
@@ -363,7 +480,7 @@ public class TransactionHistoryController implements Initializable {
 
         filteredData = new FilteredList<>(transactionList, p -> true);
         tableTransactions.setItems(filteredData);
-        updateResultInfo();
+        applyFilters();
 
         if (reason != null && !reason.isBlank()) {
             showAlert("Sample Data", reason);
@@ -383,8 +500,9 @@ public class TransactionHistoryController implements Initializable {
         ));
         cmbStatus.getSelectionModel().selectFirst();
 
-        // Add listeners
-        txtSearch.textProperty().addListener((obs, old, newVal) -> applyFilters());
+        // Add listeners; typing is debounced so each keystroke does not hit the database
+        searchDebounce.setOnFinished(e -> applyFilters());
+        txtSearch.textProperty().addListener((obs, old, newVal) -> searchDebounce.playFromStart());
         dateFrom.valueProperty().addListener((obs, old, newVal) -> applyFilters());
         dateTo.valueProperty().addListener((obs, old, newVal) -> applyFilters());
         cmbPaymentMode.valueProperty().addListener((obs, old, newVal) -> applyFilters());
@@ -397,6 +515,10 @@ public class TransactionHistoryController implements Initializable {
         if (filteredData == null) {
             return;
         }
+        if (!sampleMode) {
+            reloadFromFirstPage();
+            return;
+        }
         filteredData.setPredicate(transaction -> {
             // Search filter
             String search = txtSearch.getText().toLowerCase();
@@ -443,7 +565,8 @@ public class TransactionHistoryController implements Initializable {
     private void updateResultInfo() {
         int total = filteredData == null ? 0 : filteredData.size();
         if (lblPaginationInfo != null) {
-            lblPaginationInfo.setText("Showing " + total + " result" + (total == 1 ? "" : "s"));
+            lblPaginationInfo.setText("Showing " + total + " result" + (total == 1 ? "" : "s")
+                    + (hasMorePages && !sampleMode ? " (scroll for more)" : ""));
         }
     }
 
@@ -505,9 +628,53 @@ public class TransactionHistoryController implements Initializable {
         fc.setInitialFileName("transactions.xlsx");
 
         File file = fc.showSaveDialog(tableTransactions.getScene().getWindow());
-        if (file != null) {
-            showAlert("Export Success", "Transactions exported to:\n" + file.getAbsolutePath());
+        if (file == null) {
+            return;
         }
+
+        // Export what the current filters select, streamed from the database
+        TransactionFilter filter = readFilter();
+        btnExportExcel.setDisable(true);
+        long start = System.currentTimeMillis();
+
+        Task<Integer> task = new Task<>() {
+            @Override
+            protected Integer call() throws Exception {
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+                     XlsxWriter writer = new XlsxWriter(out, "Transactions")) {
+                    writer.writeHeader("Bill Number", "Date & Time", "Customer", "Type", "Table",
+                            "Payment Mode", "Status", "Subtotal", "Tax", "Total");
+                    return salesService.streamSales(filter, row -> writer.writeRow(
+                            String.valueOf(row.billNumber()),
+                            row.createdAt(),
+                            row.customerName(),
+                            row.orderType(),
+                            row.tableName(),
+                            row.paymentMethod(),
+                            row.status(),
+                            row.subtotal(),
+                            row.tax(),
+                            row.total()));
+                }
+            }
+        };
+        task.setOnSucceeded(e -> {
+            btnExportExcel.setDisable(false);
+            long elapsed = System.currentTimeMillis() - start;
+            showAlert("Export Success", task.getValue() + " transactions exported in "
+                    + String.format("%.1f", elapsed / 1000.0) + "s to:\n" + file.getAbsolutePath());
+        });
+        task.setOnFailed(e -> {
+            btnExportExcel.setDisable(false);
+            Throwable ex = task.getException();
+            showAlert("Export Failed", "Failed to export transactions."
+                    + (ex != null && ex.getMessage() != null ? "\n" + ex.getMessage() : ""));
+        });
+
+        // Separate thread so a long export does not hold up page loading
+        Thread exportThread = new Thread(task, "transaction-export");
+        exportThread.setDaemon(true);
+        exportThread.start();
     }
 
     private void exportToPDF() {
@@ -519,9 +686,49 @@ public class TransactionHistoryController implements Initializable {
         fc.setInitialFileName("transactions.pdf");
 
         File file = fc.showSaveDialog(tableTransactions.getScene().getWindow());
-        if (file != null) {
-            showAlert("Export Success", "Transactions exported to:\n" + file.getAbsolutePath());
+        if (file == null) {
+            return;
         }
+
+        TransactionFilter filter = readFilter();
+        String buttonText = btnExportPDF.getText();
+        btnExportPDF.setDisable(true);
+        long start = System.currentTimeMillis();
+
+        Task<Integer> task = new Task<>() {
+            @Override
+            protected Integer call() throws Exception {
+                try (OutputStream out = new FileOutputStream(file)) {
+                    return reportService.exportPdf(filter, out, (done, total) -> {
+                        updateProgress(done, total);
+                        updateMessage("Exporting " + (total == 0 ? 100 : done * 100 / total) + "%");
+                    });
+                }
+            }
+        };
+        task.messageProperty().addListener((obs, old, message) -> {
+            if (message != null && !message.isEmpty()) {
+                btnExportPDF.setText(message);
+            }
+        });
+        task.setOnSucceeded(e -> {
+            btnExportPDF.setText(buttonText);
+            btnExportPDF.setDisable(false);
+            long elapsed = System.currentTimeMillis() - start;
+            showAlert("Export Success", task.getValue() + " transactions exported in "
+                    + String.format("%.1f", elapsed / 1000.0) + "s to:\n" + file.getAbsolutePath());
+        });
+        task.setOnFailed(e -> {
+            btnExportPDF.setText(buttonText);
+            btnExportPDF.setDisable(false);
+            Throwable ex = task.getException();
+            showAlert("Export Failed", "Failed to export transactions."
+                    + (ex != null && ex.getMessage() != null ? "\n" + ex.getMessage() : ""));
+        });
+
+        Thread exportThread = new Thread(task, "transaction-pdf-export");
+        exportThread.setDaemon(true);
+        exportThread.start();
     }
 
     private void showAlert(String title, String content) {
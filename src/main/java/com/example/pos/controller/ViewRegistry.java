@@ -0,0 +1,270 @@
+package com.example.pos.controller;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.layout.StackPane;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the main window's views alive between sidebar clicks, so switching
+ * back to one is instant and keeps its scroll position, tabs and inputs.
+ *
+ * Only views whose controller implements ManagedView are kept; others are
+ * loaded fresh on every visit as before. At most maxCached views are kept
+ * (-Dpos.views.maxCached, default 4); the least recently shown one is
+ * disposed to make room.
+ *
+ * Views can be preloaded on a background thread. The whole load runs there:
+ * the FXML is parsed and the controller's initialize() is called, which
+ * JavaFX allows for nodes not yet in a scene. A preloadable controller must
+ * therefore hand anything else, such as starting animations, to the FX
+ * thread with Platform.runLater. The finished view is adopted on the FX
+ * thread. Showing a view whose preload has not finished shows a progress
+ * placeholder at once and swaps the view into it when it is ready, instead
+ * of blocking the FX thread. Apart from the preload, everything here runs on
+ * the FX thread.
+ */
+public class ViewRegistry {
+
+    private static final String VIEW_PATH = "/com/example/pos/view/";
+
+    /**
+     * A constructed view and its controller (null if it has none)
+     */
+    public record LoadedView(String name, Node node, Object controller) {
+
+        ManagedView managed() {
+            return controller instanceof ManagedView managed ? managed : null;
+        }
+    }
+
+    private final int maxCached;
+    // Access-ordered, so iteration starts at the least recently shown view
+    private final Map<String, LoadedView> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<LoadedView>> preloading = new ConcurrentHashMap<>();
+    // Placeholders shown for views whose preload had not finished
+    private final Map<String, LoadedView> awaiting = new HashMap<>();
+    private final ExecutorService preloader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "view-preloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private LoadedView current;
+
+    public ViewRegistry() {
+        this(Integer.getInteger("pos.views.maxCached", 4));
+    }
+
+    public ViewRegistry(int maxCached) {
+        this.maxCached = Math.max(1, maxCached);
+    }
+
+    /**
+     * Make fxmlName the current view: reuse and activate it if cached, show a
+     * placeholder if it is still being preloaded, otherwise load it. The
+     * previous view is deactivated. Throws if the view cannot be loaded,
+     * leaving the previous one current.
+     */
+    public LoadedView show(String fxmlName) throws IOException {
+        if (current != null && current.name().equals(fxmlName)) {
+            return current;
+        }
+
+        LoadedView view = cache.get(fxmlName);
+        boolean reused = view != null;
+        if (view == null) {
+            view = awaiting.get(fxmlName);
+        }
+        if (view == null) {
+            view = takePreloaded(fxmlName);
+        }
+        if (view == null) {
+            view = load(fxmlName);
+        }
+
+        if (current != null && current.managed() != null) {
+            current.managed().deactivate();
+        }
+        current = view;
+        if (view.managed() != null) {
+            cache.put(fxmlName, view);
+            evictOverflow();
+            if (reused) {
+                view.managed().activate();
+            }
+        }
+        return view;
+    }
+
+    /**
+     * Construct views on a background thread ahead of their first showing.
+     * Preloaded views are cached in the deactivated state.
+     */
+    public void preload(List<String> fxmlNames) {
+        for (String name : fxmlNames) {
+            if (cache.containsKey(name) || preloading.containsKey(name)) {
+                continue;
+            }
+            CompletableFuture<LoadedView> pending = CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                try {
+                    LoadedView view = load(name);
+                    System.out.printf("✓ Preloaded %s in %d ms%n", name, (System.nanoTime() - start) / 1_000_000);
+                    return view;
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, preloader);
+            preloading.put(name, pending);
+            pending.whenComplete((view, error) -> Platform.runLater(() -> adoptPreloaded(name, pending, view, error)));
+        }
+    }
+
+    /**
+     * Deactivate and dispose every cached view, e.g. when the window closes
+     */
+    public void disposeAll() {
+        preloader.shutdownNow();
+        for (LoadedView view : cache.values()) {
+            dispose(view);
+        }
+        cache.clear();
+        current = null;
+    }
+
+    private void adoptPreloaded(String name, CompletableFuture<LoadedView> pending, LoadedView view, Throwable error) {
+        if (!preloading.remove(name, pending)) {
+            return; // already taken (and any failure reported) by show()
+        }
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            System.err.println("⚠ Could not preload " + name + ": " + cause.getMessage());
+            return;
+        }
+        if (view.managed() == null || cache.containsKey(name) || preloader.isShutdown()) {
+            return;
+        }
+        view.managed().deactivate();
+        cache.put(name, view);
+        evictOverflow();
+    }
+
+    private void evictOverflow() {
+        Iterator<LoadedView> oldestFirst = cache.values().iterator();
+        while (cache.size() > maxCached && oldestFirst.hasNext()) {
+            LoadedView view = oldestFirst.next();
+            if (view == current) {
+                continue;
+            }
+            oldestFirst.remove();
+            System.out.println("Evicting cached view " + view.name());
+            dispose(view);
+        }
+    }
+
+    private static void dispose(LoadedView view) {
+        ManagedView managed = view.managed();
+        if (managed == null) {
+            return;
+        }
+        try {
+            managed.deactivate();
+            managed.dispose();
+        } catch (RuntimeException e) {
+            System.err.println("⚠ Failed to dispose " + view.name() + ": " + e.getMessage());
+        }
+    }
+
+    private static LoadedView load(String fxmlName) throws IOException {
+        URL resource = ViewRegistry.class.getResource(VIEW_PATH + fxmlName);
+        if (resource == null) {
+            throw new IOException("View not found: " + fxmlName);
+        }
+        FXMLLoader loader = new FXMLLoader(resource);
+        Node node = loader.load();
+        return new LoadedView(fxmlName, node, loader.getController());
+    }
+
+    /**
+     * The view preloaded for fxmlName if it is ready, or a placeholder that
+     * receives it when it is; null if there is no preload or it failed. The
+     * view was never deactivated, so it counts as newly loaded.
+     */
+    private LoadedView takePreloaded(String fxmlName) {
+        CompletableFuture<LoadedView> pending = preloading.remove(fxmlName);
+        if (pending == null) {
+            return null;
+        }
+        if (pending.isDone()) {
+            if (!pending.isCompletedExceptionally()) {
+                return pending.join();
+            }
+            pending.whenComplete((view, error) -> System.err.println(
+                "⚠ Could not preload " + fxmlName + ", loading it now: " + error.getMessage()));
+            return null;
+        }
+
+        StackPane holder = new StackPane(new ProgressIndicator());
+        LoadedView placeholder = new LoadedView(fxmlName, holder, null);
+        awaiting.put(fxmlName, placeholder);
+        pending.whenComplete((view, error) -> Platform.runLater(() -> fillPlaceholder(placeholder, view, error)));
+        return placeholder;
+    }
+
+    /**
+     * Put a finished preload into its placeholder, loading the view here if
+     * the preload failed. From then on the view's node is the placeholder.
+     */
+    private void fillPlaceholder(LoadedView placeholder, LoadedView preloaded, Throwable error) {
+        String name = placeholder.name();
+        awaiting.remove(name);
+        if (preloader.isShutdown()) {
+            if (preloaded != null) {
+                dispose(preloaded);
+            }
+            return;
+        }
+        StackPane holder = (StackPane) placeholder.node();
+        LoadedView loaded = preloaded;
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            System.err.println("⚠ Could not preload " + name + ", loading it now: " + cause.getMessage());
+            try {
+                loaded = load(name);
+            } catch (IOException e) {
+                System.err.println("✗ Failed to load " + name + ": " + e.getMessage());
+                holder.getChildren().setAll(new Label(" Failed to load: " + name + "\n" + e.getMessage()));
+                return;
+            }
+        }
+
+        holder.getChildren().setAll(loaded.node());
+        LoadedView view = new LoadedView(name, holder, loaded.controller());
+        boolean shown = current == placeholder;
+        if (shown) {
+            current = view;
+        }
+        if (view.managed() != null) {
+            if (!shown) {
+                view.managed().deactivate();
+            }
+            cache.put(name, view);
+            evictOverflow();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.pos.db;
+
+import com.example.pos.util.BoundedCache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Micro-benchmark comparing BoundedCache with the previous SimpleCache design
+ * (an unbounded ConcurrentHashMap with lazy expiry, reproduced below).
+ *
+ * Reports get-or-put throughput (1 and 4 threads; 90% of requests hit a hot
+ * working set, 10% use a key never seen before) and the number of retained
+ * entries after a stream of never-repeated keys, which is how per-month and
+ * per-day keys behaved in production.
+ */
+public class CacheBenchmark {
+
+    private static final int KEY_SPACE = 1_000;
+    private static final int CAPACITY = 2 * KEY_SPACE;
+    private static final int OPS_PER_THREAD = 2_000_000;
+    private static final int ONE_SHOT_KEYS = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Cache Benchmark ===\n");
+
+        for (int round = 1; round <= 2; round++) { // first round is warm-up
+            System.out.println(round == 1 ? "Warm-up" : "Measured");
+            for (int threads : new int[]{1, 4}) {
+                LegacyCache<Integer, String> legacy = new LegacyCache<>(60_000);
+                BoundedCache<Integer, String> bounded = new BoundedCache<>("bench", CAPACITY, 60_000);
+                prefill(legacy::put, bounded::put);
+
+                double legacyOps = throughput(threads, legacy::get, legacy::put);
+                double boundedOps = throughput(threads, bounded::get, bounded::put);
+                System.out.printf("  %d thread(s): SimpleCache %.1f Mops/s (%,d entries), "
+                        + "BoundedCache %.1f Mops/s (%,d entries)%n",
+                    threads, legacyOps / 1e6, legacy.size(), boundedOps / 1e6, bounded.size());
+            }
+        }
+
+        LegacyCache<String, String> legacy = new LegacyCache<>(60_000);
+        BoundedCache<String, String> bounded = new BoundedCache<>("one_shot", KEY_SPACE, 60_000);
+        for (int i = 0; i < ONE_SHOT_KEYS; i++) {
+            legacy.put("payroll_" + i, "v");
+            bounded.put("payroll_" + i, "v");
+        }
+        System.out.printf("%nRetained after %,d one-shot keys: SimpleCache %,d, BoundedCache %,d%n",
+            ONE_SHOT_KEYS, legacy.size(), bounded.size());
+        System.out.println(bounded.stats());
+    }
+
+    @SafeVarargs
+    private static void prefill(BiConsumer<Integer, String>... puts) {
+        for (BiConsumer<Integer, String> put : puts) {
+            for (int i = 0; i < KEY_SPACE; i++) {
+                put.accept(i, "value-" + i);
+            }
+        }
+    }
+
+    /**
+     * Operations per second across all threads. Every tenth request uses a
+     * fresh key, which misses and is inserted.
+     */
+    private static double throughput(int threads,
+                                     Function<Integer, String> get,
+                                     BiConsumer<Integer, String> put) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int freshKeyBase = KEY_SPACE + t * OPS_PER_THREAD;
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    for (int i = 0; i < OPS_PER_THREAD; i++) {
+                        int key = i % 10 == 9 ? freshKeyBase + i : random.nextInt(KEY_SPACE);
+                        if (get.apply(key) == null) {
+                            put.accept(key, "value");
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            worker.setDaemon(true);
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        return (double) threads * OPS_PER_THREAD / (elapsed / 1e9);
+    }
+
+    /**
+     * The previous SimpleCache: unbounded, expiry checked only on read
+     */
+    private static final class LegacyCache<K, V> {
+        private final Map<K, Entry<V>> cache = new ConcurrentHashMap<>();
+        private final long ttlMillis;
+
+        LegacyCache(long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+        }
+
+        V get(K key) {
+            Entry<V> entry = cache.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - entry.timestamp > ttlMillis) {
+                cache.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+
+        void put(K key, V value) {
+            cache.put(key, new Entry<>(value, System.currentTimeMillis()));
+        }
+
+        int size() {
+            return cache.size();
+        }
+
+        private record Entry<V>(V value, long timestamp) {
+        }
+    }
+}
@@ -47,6 +47,8 @@ public final class DatabaseConnection {
     private static volatile boolean hasTestedOnline = false;
     private static volatile long lastOnlineCheckTime = 0;
     private static final long ONLINE_RECHECK_INTERVAL_MS = 60000; // 1 minute
+    // URL the pool was created for; null until then
+    private static volatile String poolUrl;
 
     private DatabaseConnection() {
     }
@@ -91,6 +93,7 @@ public final class DatabaseConnection {
                     // Online is fast, use it
                     ConnectionPool.initialize(onlineUrl, onlineUser, onlinePassword);
                     useLocalDatabase = false;
+                    poolUrl = onlineUrl;
                     System.out.println("✓ Using online database with connection pool (" + duration + "ms)");
                     return;
                 }
@@ -103,6 +106,7 @@ public final class DatabaseConnection {
         try {
             ConnectionPool.initialize(LOCAL_URL, LOCAL_USER, LOCAL_PASSWORD);
             useLocalDatabase = true;
+            poolUrl = LOCAL_URL;
             System.out.println("✓ Using local database with connection pool");
         } catch (Exception e) {
             System.err.println("✗ Failed to initialize local database: " + e.getMessage());
@@ -110,6 +114,18 @@ public final class DatabaseConnection {
         }
     }
 
+    /**
+     * Open a dedicated (non-pooled) connection to the database the pool is using.
+     * For long-lived sessions such as LISTEN loops that would otherwise hold a
+     * pooled connection forever and trip the pool's leak detection.
+     */
+    public static Connection openDedicatedConnection() throws SQLException {
+        if (!ConnectionPool.isInitialized()) {
+            initializeConnectionPool();
+        }
+        return useLocalDatabase ? getLocalConnection() : getOnlineConnection();
+    }
+
     /**
      * Get connection to online database (Neon PostgreSQL)
      */
@@ -199,6 +215,27 @@ public final class DatabaseConnection {
         return useLocalDatabase ? "Local (Offline)" : "Online (Neon)";
     }
 
+    /**
+     * Whether the local (per-machine) database is in use rather than the
+     * shared online one
+     */
+    public static boolean isUsingLocalDatabase() {
+        return useLocalDatabase;
+    }
+
+    /**
+     * JDBC URL of the database the pool uses; before the pool exists, the one
+     * it would try first
+     */
+    public static String getDatabaseUrl() {
+        String url = poolUrl;
+        if (url != null) {
+            return url;
+        }
+        String onlineUrl = getOnlineUrl();
+        return onlineUrl != null && !onlineUrl.isEmpty() ? onlineUrl : LOCAL_URL;
+    }
+
     /**
      * Force switch to local database
      */
@@ -1,22 +1,204 @@
 package com.example.pos.db;
 
+import com.example.pos.service.SalesRollupService;
+
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 
 /**
  * Creates/updates PostgreSQL schema needed by the POS app.
- * Safe to call on every startup (uses CREATE TABLE IF NOT EXISTS).
+ *
+ * The schema is built by numbered migrations; schema_version records the
+ * ones applied, so a startup on an up-to-date database costs two small
+ * queries instead of re-running every CREATE TABLE. Pending migrations run
+ * in order under an advisory lock, so terminals starting together do not
+ * migrate the same database twice; the others poll for it rather than
+ * block (see acquireMigrationLock). Migrations 1-4 are idempotent, so a
+ * database created before schema_version existed is brought up to date by
+ * running them all once.
  */
 public final class DatabaseInitializer {
 
+    // Advisory lock key held while migrating
+    private static final long MIGRATION_LOCK_KEY = 0x504F535F534348L;
+    private static final long LOCK_POLL_MS = 500;
+
+    @FunctionalInterface
+    private interface MigrationStep {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    /**
+     * A schema change. Transactional ones commit together with their
+     * schema_version row; the others (CREATE INDEX CONCURRENTLY cannot run
+     * in a transaction) run in autocommit and must be safe to repeat.
+     */
+    private record Migration(int version, String description, boolean transactional, MigrationStep step) {
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "Baseline tables", true, DatabaseInitializer::createTables),
+        new Migration(2, "Upgrade columns of unversioned databases", true, DatabaseInitializer::upgradeColumns),
+        new Migration(3, "Bill and KOT number sequences", true, DatabaseInitializer::createNumberSequences),
+        new Migration(4, "Default categories and tables", true, DatabaseInitializer::insertDefaults),
+        new Migration(5, "Sales rollup backfill", true, conn -> new SalesRollupService().rebuildIfEmpty(conn)),
+        new Migration(6, "Hot-path indexes", false, DatabaseInitializer::createHotPathIndexes),
+        new Migration(7, "Terminal registry", true, DatabaseInitializer::createTerminalRegistry)
+    );
+
     private DatabaseInitializer() {
     }
 
+    /**
+     * Bring the schema up to date. Throws IllegalStateException if a
+     * migration fails, so the app does not run on a partial schema.
+     */
     public static void initialize() {
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement st = conn.createStatement()) {
+        long start = System.nanoTime();
+        int latest = MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+        try (Connection conn = DatabaseConnection.openDedicatedConnection()) {
+            int current = currentVersion(conn);
+            if (current >= latest) {
+                if (current > latest) {
+                    System.err.println("⚠ Database schema is at version " + current
+                        + ", newer than this app's " + latest);
+                }
+                System.out.printf("✓ Database schema up to date (version %d, checked in %.1f ms)%n",
+                    current, (System.nanoTime() - start) / 1e6);
+                return;
+            }
+
+            acquireMigrationLock(conn);
+            try {
+                migrate(conn);
+            } finally {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("SELECT pg_advisory_unlock(" + MIGRATION_LOCK_KEY + ")");
+                }
+            }
+            System.out.printf("✓ Database schema migrated to version %d in %.1f ms%n",
+                latest, (System.nanoTime() - start) / 1e6);
+
+        } catch (SQLException e) {
+            System.err.println("Failed to initialize database schema: " + e.getMessage());
+            throw new IllegalStateException("Database schema could not be set up: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Take the migration lock, polling rather than blocking in
+     * pg_advisory_lock: a session blocked there holds a snapshot, and CREATE
+     * INDEX CONCURRENTLY in the migrating session waits for old snapshots to
+     * go away, so the two would wait on each other forever
+     */
+    private static void acquireMigrationLock(Connection conn) throws SQLException {
+        boolean waiting = false;
+        while (true) {
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT pg_try_advisory_lock(" + MIGRATION_LOCK_KEY + ")")) {
+                if (rs.next() && rs.getBoolean(1)) {
+                    return;
+                }
+            }
+            if (!waiting) {
+                System.out.println("Waiting for another terminal to finish migrating the database...");
+                waiting = true;
+            }
+            try {
+                Thread.sleep(LOCK_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for the migration lock", e);
+            }
+        }
+    }
+
+    /**
+     * Highest applied migration, or 0 for a database without schema_version
+     */
+    private static int currentVersion(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SELECT to_regclass('schema_version') IS NOT NULL")) {
+                if (!rs.next() || !rs.getBoolean(1)) {
+                    return 0;
+                }
+            }
+            try (ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Apply pending migrations in order, stopping at the first failure.
+     * Called with the advisory lock held.
+     */
+    private static void migrate(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("""
+                CREATE TABLE IF NOT EXISTS schema_version (
+                    version     INTEGER PRIMARY KEY,
+                    description TEXT NOT NULL,
+                    applied_at  TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+                    duration_ms BIGINT NOT NULL
+                )
+            """);
+        }
+
+        // Read again under the lock: another terminal may have just migrated
+        int current = currentVersion(conn);
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version() <= current) {
+                continue;
+            }
+            long start = System.nanoTime();
+            if (migration.transactional()) {
+                conn.setAutoCommit(false);
+                try {
+                    migration.step().apply(conn);
+                    recordVersion(conn, migration, start);
+                    conn.commit();
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    System.err.println("✗ Migration " + migration.version() + " (" + migration.description()
+                        + ") failed: " + e.getMessage());
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } else {
+                try {
+                    migration.step().apply(conn);
+                } catch (SQLException | RuntimeException e) {
+                    System.err.println("✗ Migration " + migration.version() + " (" + migration.description()
+                        + ") failed: " + e.getMessage());
+                    throw e;
+                }
+                recordVersion(conn, migration, start);
+            }
+            System.out.printf("✓ Migration %d (%s) applied in %.1f ms%n",
+                migration.version(), migration.description(), (System.nanoTime() - start) / 1e6);
+        }
+    }
 
+    private static void recordVersion(Connection conn, Migration migration, long startNanos) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO schema_version (version, description, duration_ms) VALUES (?, ?, ?)")) {
+            ps.setInt(1, migration.version());
+            ps.setString(2, migration.description());
+            ps.setLong(3, (System.nanoTime() - startNanos) / 1_000_000);
+            ps.executeUpdate();
+        }
+    }
+
+    // ========== MIGRATIONS ==========
+
+    private static void createTables(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
             // inventory_items
             st.execute("""
                 CREATE TABLE IF NOT EXISTS inventory_items (
@@ -52,17 +234,6 @@ public final class DatabaseInitializer {
                 )
             """);
             
-            // Add tax_rate column if it doesn't exist (for existing databases)
-            st.execute("""
-                DO $$
-                BEGIN
-                    IF NOT EXISTS (SELECT 1 FROM information_schema.columns 
-                                  WHERE table_name='menu_items' AND column_name='tax_rate') THEN
-                        ALTER TABLE menu_items ADD COLUMN tax_rate DOUBLE PRECISION NOT NULL DEFAULT 5.0;
-                    END IF;
-                END $$;
-            """);
-
             // restaurant_tables
             st.execute("""
                 CREATE TABLE IF NOT EXISTS restaurant_tables (
@@ -86,7 +257,8 @@ public final class DatabaseInitializer {
                     payment_method TEXT,
                     order_type     TEXT,
                     status         TEXT,
-                    updated_at     TIMESTAMPTZ NOT NULL DEFAULT NOW()
+                    updated_at     TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+                    version        BIGINT NOT NULL DEFAULT 1
                 )
             """);
 
@@ -96,7 +268,8 @@ public final class DatabaseInitializer {
                     table_id  BIGINT REFERENCES restaurant_tables(id) ON DELETE CASCADE,
                     item_name TEXT NOT NULL,
                     quantity  INTEGER NOT NULL,
-                    price     DOUBLE PRECISION NOT NULL
+                    price     DOUBLE PRECISION NOT NULL,
+                    position  INTEGER NOT NULL DEFAULT 0
                 )
             """);
 
@@ -130,6 +303,34 @@ public final class DatabaseInitializer {
                 )
             """);
 
+            // sales_daily_rollup (maintained by SalesRollupService)
+            st.execute("""
+                CREATE TABLE IF NOT EXISTS sales_daily_rollup (
+                    sale_date      DATE NOT NULL,
+                    payment_method TEXT NOT NULL,
+                    order_type     TEXT NOT NULL,
+                    order_count    INTEGER NOT NULL DEFAULT 0,
+                    subtotal       DOUBLE PRECISION NOT NULL DEFAULT 0,
+                    tax            DOUBLE PRECISION NOT NULL DEFAULT 0,
+                    total          DOUBLE PRECISION NOT NULL DEFAULT 0,
+                    PRIMARY KEY (sale_date, payment_method, order_type)
+                )
+            """);
+
+            // sales_hourly_rollup (maintained by SalesRollupService)
+            st.execute("""
+                CREATE TABLE IF NOT EXISTS sales_hourly_rollup (
+                    sale_hour      TIMESTAMPTZ NOT NULL,
+                    payment_method TEXT NOT NULL,
+                    order_type     TEXT NOT NULL,
+                    order_count    INTEGER NOT NULL DEFAULT 0,
+                    subtotal       DOUBLE PRECISION NOT NULL DEFAULT 0,
+                    tax            DOUBLE PRECISION NOT NULL DEFAULT 0,
+                    total          DOUBLE PRECISION NOT NULL DEFAULT 0,
+                    PRIMARY KEY (sale_hour, payment_method, order_type)
+                )
+            """);
+
             // staff_members
             st.execute("""
                 CREATE TABLE IF NOT EXISTS staff_members (
@@ -240,7 +441,114 @@ public final class DatabaseInitializer {
                     updated_at      TIMESTAMPTZ NOT NULL DEFAULT NOW()
                 )
             """);
+        }
+    }
 
+    /**
+     * Columns and constraints added after the first release, for databases
+     * whose tables predate them
+     */
+    private static void upgradeColumns(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            // Add tax_rate column if it doesn't exist (for existing databases)
+            st.execute("""
+                DO $$
+                BEGIN
+                    IF NOT EXISTS (SELECT 1 FROM information_schema.columns 
+                                  WHERE table_name='menu_items' AND column_name='tax_rate') THEN
+                        ALTER TABLE menu_items ADD COLUMN tax_rate DOUBLE PRECISION NOT NULL DEFAULT 5.0;
+                    END IF;
+                END $$;
+            """);
+
+            // Session versioning and per-line upserts (for existing databases;
+            // stored sessions start at version 1, 0 means none is stored).
+            // Sessions are saved as a diff keyed on (table_id, item_name), so
+            // duplicate lines left by the old delete-and-reinsert are merged
+            // into one line with their total quantity, once, before the
+            // unique index is created.
+            st.execute("""
+                DO $$
+                BEGIN
+                    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                                  WHERE table_name='table_sessions' AND column_name='version') THEN
+                        ALTER TABLE table_sessions ADD COLUMN version BIGINT NOT NULL DEFAULT 1;
+                    END IF;
+                    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                                  WHERE table_name='table_session_items' AND column_name='position') THEN
+                        ALTER TABLE table_session_items ADD COLUMN position INTEGER NOT NULL DEFAULT 0;
+                    END IF;
+                    IF NOT EXISTS (SELECT 1 FROM pg_indexes
+                                  WHERE indexname='uq_table_session_items_line') THEN
+                        CREATE TEMP TABLE duplicate_session_lines AS
+                            SELECT table_id, item_name, SUM(quantity) AS quantity
+                            FROM table_session_items
+                            GROUP BY table_id, item_name
+                            HAVING COUNT(*) > 1;
+                        DELETE FROM table_session_items a
+                        USING table_session_items b
+                        WHERE a.table_id = b.table_id AND a.item_name = b.item_name AND a.ctid < b.ctid;
+                        UPDATE table_session_items t
+                        SET quantity = d.quantity
+                        FROM duplicate_session_lines d
+                        WHERE t.table_id = d.table_id AND t.item_name = d.item_name;
+                        DROP TABLE duplicate_session_lines;
+                        CREATE UNIQUE INDEX uq_table_session_items_line
+                            ON table_session_items (table_id, item_name);
+                    END IF;
+                END $$;
+            """);
+        }
+    }
+
+    private static void createNumberSequences(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            // Bill and KOT number blocks (see NumberAllocator). INCREMENT BY is
+            // the block size each terminal reserves. The first time, sequences
+            // start a block past the highest number already used (older
+            // timestamp-based numbers included); offline numbers from
+            // NumberAllocator.OFFLINE_BASE up are not counted.
+            st.execute("""
+                DO $$
+                DECLARE
+                    used_max BIGINT;
+                BEGIN
+                    CREATE SEQUENCE IF NOT EXISTS bill_number_seq INCREMENT BY 50 MINVALUE 1;
+                    CREATE SEQUENCE IF NOT EXISTS kot_number_seq INCREMENT BY 50 MINVALUE 1;
+
+                    SELECT COALESCE(MAX(bill_number), 0) INTO used_max
+                    FROM sales WHERE bill_number < 900000000000;
+                    IF used_max >= (SELECT last_value FROM bill_number_seq) THEN
+                        PERFORM setval('bill_number_seq', used_max + 50, false);
+                    END IF;
+
+                    SELECT COALESCE(MAX(kot_number), 0) INTO used_max
+                    FROM kitchen_order_tickets WHERE kot_number < 900000000000;
+                    IF used_max >= (SELECT last_value FROM kot_number_seq) THEN
+                        PERFORM setval('kot_number_seq', used_max + 50, false);
+                    END IF;
+                END $$;
+            """);
+        }
+    }
+
+    private static void createTerminalRegistry(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            // One row per terminal; the id picks its offline bill/KOT number
+            // range (see NumberAllocator). Ids 0-49 are left for terminals
+            // configured with -Dpos.terminalId, so only 50-99 are assigned.
+            st.execute("""
+                CREATE TABLE IF NOT EXISTS pos_terminals (
+                    id            SMALLINT GENERATED ALWAYS AS IDENTITY (MINVALUE 50 MAXVALUE 99 START WITH 50) PRIMARY KEY,
+                    host_name     TEXT,
+                    registered_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+                )
+            """);
+        }
+    }
+
+    private static void insertDefaults(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
             // Optional: default menu categories
             st.execute("""
                 INSERT INTO menu_categories (name)
@@ -264,12 +572,73 @@ public final class DatabaseInitializer {
                     ('Table 10', 2, 'Available')
                 ON CONFLICT (name) DO NOTHING
             """);
+        }
+    }
 
-        } catch (SQLException e) {
-            // Basic logging; you can replace with proper logger
-            System.err.println("Failed to initialize database schema: " + e.getMessage());
-            e.printStackTrace();
+    /**
+     * Secondary indexes for the app's frequent lookups, built CONCURRENTLY so
+     * a large existing table stays writable while they build.
+     * staff_attendance (staff_id, attendance_date) and staff_leave_records
+     * (staff_id, leave_date) are already indexed by their UNIQUE constraints.
+     */
+    private static void createHotPathIndexes(Connection conn) throws SQLException {
+        // Dashboard and report date-range scans; INCLUDE lets the summary
+        // query be answered from the index alone
+        createIndexConcurrently(conn, "idx_sales_created_at",
+            "sales (created_at) INCLUDE (total, status)");
+
+        // Keyset paging of transaction history on (created_at, id)
+        createIndexConcurrently(conn, "idx_sales_created_at_id", "sales (created_at, id)");
+
+        // Bill items loaded with their sale and by the category report
+        createIndexConcurrently(conn, "idx_sale_items_sale_id", "sale_items (sale_id)");
+
+        // Kitchen board: active tickets by status, oldest first
+        createIndexConcurrently(conn, "idx_kot_status_created_at",
+            "kitchen_order_tickets (status, created_at)");
+
+        // Latest tickets for the full KOT list
+        createIndexConcurrently(conn, "idx_kot_created_at", "kitchen_order_tickets (created_at)");
+
+        // Items joined to their ticket
+        createIndexConcurrently(conn, "idx_kot_items_kot_id", "kot_items (kot_id, id)");
+
+        // Payroll counts a month of attendance for all staff at once
+        createIndexConcurrently(conn, "idx_staff_attendance_date",
+            "staff_attendance (attendance_date) INCLUDE (staff_id, status)");
+
+        // Payroll sums advances per staff member and month
+        createIndexConcurrently(conn, "idx_staff_salary_payments_staff_month",
+            "staff_salary_payments (staff_id, payment_month)");
+
+        // Case-insensitive name checks and CSV import matching
+        createIndexConcurrently(conn, "idx_inventory_items_lower_name", "inventory_items (LOWER(name))");
+    }
+
+    /**
+     * CREATE INDEX CONCURRENTLY IF NOT EXISTS. A concurrent build that failed
+     * leaves an invalid index behind which IF NOT EXISTS would keep, so one is
+     * dropped and built again.
+     */
+    private static void createIndexConcurrently(Connection conn, String name, String definition)
+            throws SQLException {
+        long start = System.nanoTime();
+        boolean invalid;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT NOT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                invalid = rs.next() && rs.getBoolean(1);
+            }
+        }
+        try (Statement st = conn.createStatement()) {
+            if (invalid) {
+                System.err.println("⚠ Rebuilding invalid index " + name);
+                st.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+            }
+            st.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON " + definition);
         }
+        System.out.printf("   index %s ready in %.1f ms%n", name, (System.nanoTime() - start) / 1e6);
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,157 @@
+package com.example.pos.db;
+
+import com.example.pos.model.KOT;
+import com.example.pos.service.KOTService;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Benchmark for the kitchen board loader.
+ *
+ * Seeds N pending tickets (3 items each), then compares the old per-ticket
+ * item lookup (1 + N queries) with KOTService.getActiveKOTs() (1 query).
+ * Seeded rows are tagged in the notes column and removed afterwards.
+ */
+public class KOTLoadBenchmark {
+
+    private static final String MARKER = "__kot_load_benchmark__";
+    private static final long KOT_NUMBER_BASE = 990_000_000_000L;
+    private static final int ITEMS_PER_TICKET = 3;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) {
+        System.out.println("=== KOT Load Benchmark ===\n");
+
+        int[] ticketCounts = {10, 30, 60, 120};
+        KOTService kotService = new KOTService();
+
+        try {
+            cleanup();
+            System.out.printf("%-8s %-14s %-14s %-14s %-14s%n",
+                "Tickets", "N+1 queries", "N+1 avg ms", "Batched qry", "Batched avg ms");
+
+            for (int count : ticketCounts) {
+                seed(count);
+
+                // Warm up both paths so the pool and statement cache are hot
+                loadPerTicket();
+                kotService.getActiveKOTs();
+
+                int perTicketQueries = 0;
+                long perTicketNanos = 0;
+                for (int i = 0; i < RUNS; i++) {
+                    long start = System.nanoTime();
+                    perTicketQueries = loadPerTicket();
+                    perTicketNanos += System.nanoTime() - start;
+                }
+
+                long batchedNanos = 0;
+                int loaded = 0;
+                for (int i = 0; i < RUNS; i++) {
+                    long start = System.nanoTime();
+                    List<KOT> kots = kotService.getActiveKOTs();
+                    batchedNanos += System.nanoTime() - start;
+                    loaded = kots.size();
+                }
+
+                System.out.printf("%-8d %-14d %-14.2f %-14d %-14.2f%n",
+                    loaded, perTicketQueries, perTicketNanos / RUNS / 1_000_000.0,
+                    1, batchedNanos / RUNS / 1_000_000.0);
+
+                cleanup();
+            }
+
+            System.out.println("\n✓ Benchmark complete");
+
+        } catch (SQLException e) {
+            System.err.println("\n✗ Benchmark failed!");
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            try {
+                cleanup();
+            } catch (SQLException ignored) {
+                // Best effort
+            }
+        }
+    }
+
+    /**
+     * Reproduces the previous loader: one ticket query plus one item query per ticket.
+     * Returns the number of queries executed.
+     */
+    private static int loadPerTicket() throws SQLException {
+        String ticketSql = """
+            SELECT id FROM kitchen_order_tickets
+            WHERE status IN ('Pending', 'Preparing', 'Ready')
+            ORDER BY created_at ASC
+            """;
+        String itemSql = """
+            SELECT id, kot_id, item_name, quantity, special_notes, status
+            FROM kot_items WHERE kot_id = ? ORDER BY id
+            """;
+
+        int queries = 1;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(ticketSql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                try (Connection itemConn = DatabaseConnection.getConnection();
+                     PreparedStatement itemPs = itemConn.prepareStatement(itemSql)) {
+                    itemPs.setLong(1, rs.getLong(1));
+                    try (ResultSet items = itemPs.executeQuery()) {
+                        while (items.next()) {
+                            items.getString("item_name");
+                        }
+                    }
+                }
+                queries++;
+            }
+        }
+        return queries;
+    }
+
+    private static void seed(int count) throws SQLException {
+        DatabaseConnection.executeInTransaction(conn -> {
+            String kotSql = """
+                INSERT INTO kitchen_order_tickets (kot_number, table_name, order_type, status, priority, notes)
+                VALUES (?, ?, 'Dine-In', 'Pending', 'Normal', ?)
+                RETURNING id
+                """;
+            String itemSql = "INSERT INTO kot_items (kot_id, item_name, quantity, status) VALUES (?, ?, ?, 'Pending')";
+
+            try (PreparedStatement kotPs = conn.prepareStatement(kotSql);
+                 PreparedStatement itemPs = conn.prepareStatement(itemSql)) {
+                for (int i = 0; i < count; i++) {
+                    kotPs.setLong(1, KOT_NUMBER_BASE + i);
+                    kotPs.setString(2, "Bench " + (i % 10 + 1));
+                    kotPs.setString(3, MARKER);
+                    long kotId;
+                    try (ResultSet rs = kotPs.executeQuery()) {
+                        rs.next();
+                        kotId = rs.getLong(1);
+                    }
+                    for (int j = 0; j < ITEMS_PER_TICKET; j++) {
+                        itemPs.setLong(1, kotId);
+                        itemPs.setString(2, "Item " + j);
+                        itemPs.setInt(3, j + 1);
+                        itemPs.addBatch();
+                    }
+                }
+                itemPs.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    private static void cleanup() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE FROM kitchen_order_tickets WHERE notes = '" + MARKER + "'");
+        }
+    }
+}
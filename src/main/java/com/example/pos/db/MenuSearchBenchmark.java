@@ -0,0 +1,91 @@
+package com.example.pos.db;
+
+import com.example.pos.model.MenuItem;
+import com.example.pos.service.MenuSearchIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times MenuSearchIndex on a synthetic 5,000 item catalog against the linear
+ * lowercase-and-contains scan the billing screen used before.
+ */
+public class MenuSearchBenchmark {
+
+    private static final int ITEMS = 5_000;
+    private static final int ITERATIONS = 20_000;
+
+    private static final String[] ADJECTIVES = {"Butter", "Tandoori", "Spicy", "Masala", "Crispy", "Garlic",
+        "Paneer", "Kadai", "Malai", "Achari", "Smoked", "Classic", "Jeera", "Mint", "Honey"};
+    private static final String[] NOUNS = {"Chicken", "Paneer", "Naan", "Biryani", "Dal", "Tikka", "Kebab",
+        "Lassi", "Roti", "Pulao", "Soup", "Fries", "Momos", "Noodles", "Shake", "Coffee", "Kulfi"};
+    private static final String[] CATEGORIES = {"Main Course", "Starters", "Breads", "Beverages", "Desserts", "Retail"};
+
+    public static void main(String[] args) {
+        System.out.println("=== Menu Search Benchmark ===\n");
+
+        Random random = new Random(42);
+        List<MenuItem> items = new ArrayList<>(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            String name = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " "
+                + NOUNS[random.nextInt(NOUNS.length)] + " " + (i + 1);
+            items.add(new MenuItem(name, 50 + random.nextInt(400), CATEGORIES[i % CATEGORIES.length], ""));
+        }
+
+        long buildStart = System.nanoTime();
+        MenuSearchIndex index = MenuSearchIndex.build(items);
+        System.out.printf("Index build: %.2f ms for %,d items%n%n", (System.nanoTime() - buildStart) / 1e6, ITEMS);
+
+        String[][] queries = {
+            {"chicken", null}, {"chicken", "Main Course"}, {"butter chick", null}, {"ti", "Starters"},
+            {"bc", null}, {"chiken", null}, {"birayni", "Main Course"}, {"", "Beverages"}
+        };
+
+        System.out.printf("%-24s %8s %12s %12s%n", "Query", "Matches", "Index (us)", "Scan (us)");
+        for (String[] query : queries) {
+            String text = query[0];
+            String category = query[1];
+            int matches = index.search(text, category).size();
+
+            // Warm up both paths before timing
+            for (int i = 0; i < ITERATIONS; i++) {
+                index.search(text, category);
+                linearScan(items, text, category);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                index.search(text, category);
+            }
+            double indexMicros = (System.nanoTime() - start) / 1e3 / ITERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                linearScan(items, text, category);
+            }
+            double scanMicros = (System.nanoTime() - start) / 1e3 / ITERATIONS;
+
+            String label = "\"" + text + "\"" + (category != null ? " in " + category : "");
+            System.out.printf("%-24s %8d %12.1f %12.1f%n", label, matches, indexMicros, scanMicros);
+        }
+    }
+
+    /**
+     * The previous BillingController filter
+     */
+    private static List<MenuItem> linearScan(List<MenuItem> items, String query, String category) {
+        String searchText = query.toLowerCase();
+        List<MenuItem> result = new ArrayList<>();
+        for (MenuItem item : items) {
+            if (category != null && !item.getCategory().equals(category)) {
+                continue;
+            }
+            if (!searchText.isEmpty() && !item.getName().toLowerCase().contains(searchText)) {
+                continue;
+            }
+            result.add(item);
+        }
+        return result;
+    }
+}
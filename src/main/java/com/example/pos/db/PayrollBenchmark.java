@@ -0,0 +1,257 @@
+package com.example.pos.db;
+
+import com.example.pos.model.StaffPayrollInfo;
+import com.example.pos.service.PayrollService;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark for the payroll sheet.
+ *
+ * Seeds 500 active staff with a month of attendance, a leave and an advance
+ * each, then compares the old per-employee lookups (5 queries per staff
+ * member) with PayrollService.getAllPayrollInfo() (1 query), and checks both
+ * give the same figures. Seeded staff are tagged in the email column and
+ * removed afterwards.
+ */
+public class PayrollBenchmark {
+
+    private static final String MARKER = "__payroll_benchmark__";
+    private static final int STAFF = 500;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) {
+        System.out.println("=== Payroll Benchmark ===\n");
+
+        YearMonth month = YearMonth.now();
+        PayrollService payrollService = new PayrollService();
+
+        try {
+            cleanup();
+            seed(month);
+
+            // Warm up both paths so the pool and statement cache are hot
+            loadPerStaff(month);
+            payrollService.clearCache();
+            payrollService.getAllPayrollInfo(month);
+
+            int perStaffQueries = 0;
+            long perStaffNanos = 0;
+            Map<Long, double[]> expected = new HashMap<>();
+            for (int i = 0; i < RUNS; i++) {
+                expected.clear();
+                long start = System.nanoTime();
+                perStaffQueries = loadPerStaff(month, expected);
+                perStaffNanos += System.nanoTime() - start;
+            }
+
+            long bulkNanos = 0;
+            List<StaffPayrollInfo> sheet = List.of();
+            for (int i = 0; i < RUNS; i++) {
+                payrollService.clearCache();
+                long start = System.nanoTime();
+                sheet = payrollService.getAllPayrollInfo(month);
+                bulkNanos += System.nanoTime() - start;
+            }
+
+            System.out.printf("%-8s %-14s %-14s %-14s %-14s%n",
+                "Staff", "Per-staff qry", "Per-staff ms", "Bulk qry", "Bulk ms");
+            System.out.printf("%-8d %-14d %-14.2f %-14d %-14.2f%n",
+                expected.size(), perStaffQueries, perStaffNanos / RUNS / 1_000_000.0,
+                1, bulkNanos / RUNS / 1_000_000.0);
+
+            int mismatches = 0;
+            for (StaffPayrollInfo payroll : sheet) {
+                double[] figures = expected.get(payroll.getStaffId());
+                if (figures == null) {
+                    continue; // real staff, not seeded
+                }
+                if (figures[0] != payroll.getDaysWorked() || figures[1] != payroll.getLeavesUsed()
+                        || Math.abs(figures[2] - payroll.getAdvancePaid()) > 0.001) {
+                    mismatches++;
+                }
+            }
+            System.out.println(mismatches == 0
+                ? "\n✓ Bulk payroll matches per-staff figures"
+                : "\n✗ " + mismatches + " staff members differ between the two paths");
+
+            cleanup();
+            payrollService.clearCache();
+            System.out.println("✓ Benchmark complete");
+
+        } catch (SQLException e) {
+            System.err.println("\n✗ Benchmark failed!");
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            try {
+                cleanup();
+            } catch (SQLException ignored) {
+                // Best effort
+            }
+        }
+    }
+
+    private static int loadPerStaff(YearMonth month) throws SQLException {
+        return loadPerStaff(month, new HashMap<>());
+    }
+
+    /**
+     * Reproduces the previous sheet: a staff list query, then a staff lookup,
+     * days worked, leaves, advance and today's status per staff member.
+     * Fills days worked, leaves and advance per seeded staff id and returns
+     * the number of queries executed.
+     */
+    private static int loadPerStaff(YearMonth month, Map<Long, double[]> figures) throws SQLException {
+        String listSql = "SELECT id FROM staff_members WHERE is_active AND email = ? ORDER BY name";
+        String staffSql = "SELECT id, name, monthly_salary, join_date FROM staff_members WHERE id = ?";
+        String daysSql = """
+            SELECT COUNT(*) FROM staff_attendance
+            WHERE staff_id = ?
+              AND EXTRACT(YEAR FROM attendance_date) = ?
+              AND EXTRACT(MONTH FROM attendance_date) = ?
+              AND status IN ('Present', 'Checked-in')
+            """;
+        String leavesSql = """
+            SELECT COUNT(*) FROM staff_leave_records
+            WHERE staff_id = ?
+              AND EXTRACT(YEAR FROM leave_date) = ?
+              AND EXTRACT(MONTH FROM leave_date) = ?
+              AND approved = true
+            """;
+        String advanceSql = """
+            SELECT COALESCE(SUM(amount_paid), 0) FROM staff_salary_payments
+            WHERE staff_id = ? AND payment_month = ?
+            """;
+        String statusSql = "SELECT status FROM staff_attendance WHERE staff_id = ? AND attendance_date = CURRENT_DATE";
+
+        int queries = 1;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(listSql)) {
+            ps.setString(1, MARKER);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long staffId = rs.getLong(1);
+                    queryOne(staffSql, staffId, month, false);
+                    double days = queryOne(daysSql, staffId, month, true);
+                    double leaves = queryOne(leavesSql, staffId, month, true);
+                    double advance = queryAdvance(advanceSql, staffId, month);
+                    queryOne(statusSql, staffId, month, false);
+                    queries += 5;
+                    figures.put(staffId, new double[] {days, leaves, advance});
+                }
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * One query on its own connection, as the old helpers did
+     */
+    private static double queryOne(String sql, long staffId, YearMonth month, boolean byMonth) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, staffId);
+            if (byMonth) {
+                ps.setInt(2, month.getYear());
+                ps.setInt(3, month.getMonthValue());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && byMonth ? rs.getDouble(1) : 0;
+            }
+        }
+    }
+
+    private static double queryAdvance(String sql, long staffId, YearMonth month) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, staffId);
+            ps.setString(2, month.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : 0;
+            }
+        }
+    }
+
+    private static void seed(YearMonth month) throws SQLException {
+        DatabaseConnection.executeInTransaction(conn -> {
+            String staffSql = """
+                INSERT INTO staff_members (name, role, shift, email, monthly_salary, join_date, allowed_leaves, is_active)
+                VALUES (?, 'Waiter', 'Morning', ?, ?, ?, 2, true)
+                RETURNING id
+                """;
+            String attendanceSql = """
+                INSERT INTO staff_attendance (staff_id, attendance_date, status)
+                VALUES (?, ?, ?)
+                """;
+            String leaveSql = """
+                INSERT INTO staff_leave_records (staff_id, leave_date, leave_type, approved)
+                VALUES (?, ?, 'Sick Leave', true)
+                """;
+            String paymentSql = """
+                INSERT INTO staff_salary_payments (staff_id, payment_date, amount_paid, payment_type, payment_month)
+                VALUES (?, ?, ?, 'Advance', ?)
+                """;
+
+            LocalDate today = LocalDate.now();
+            int days = month.equals(YearMonth.from(today)) ? today.getDayOfMonth() : month.lengthOfMonth();
+            try (PreparedStatement staffPs = conn.prepareStatement(staffSql);
+                 PreparedStatement attendancePs = conn.prepareStatement(attendanceSql);
+                 PreparedStatement leavePs = conn.prepareStatement(leaveSql);
+                 PreparedStatement paymentPs = conn.prepareStatement(paymentSql)) {
+                for (int i = 0; i < STAFF; i++) {
+                    staffPs.setString(1, String.format("Bench Staff %03d", i));
+                    staffPs.setString(2, MARKER);
+                    staffPs.setDouble(3, 15_000 + i * 10);
+                    staffPs.setDate(4, Date.valueOf(month.atDay(1).minusMonths(i % 12)));
+                    long staffId;
+                    try (ResultSet rs = staffPs.executeQuery()) {
+                        rs.next();
+                        staffId = rs.getLong(1);
+                    }
+
+                    int leaveDay = i % days + 1;
+                    for (int day = 1; day <= days; day++) {
+                        if (day == leaveDay) {
+                            continue;
+                        }
+                        attendancePs.setLong(1, staffId);
+                        attendancePs.setDate(2, Date.valueOf(month.atDay(day)));
+                        attendancePs.setString(3, day % 7 == 0 ? "Absent" : "Present");
+                        attendancePs.addBatch();
+                    }
+                    leavePs.setLong(1, staffId);
+                    leavePs.setDate(2, Date.valueOf(month.atDay(leaveDay)));
+                    leavePs.addBatch();
+
+                    paymentPs.setLong(1, staffId);
+                    paymentPs.setDate(2, Date.valueOf(month.atDay(1)));
+                    paymentPs.setDouble(3, 500 + i % 5 * 100);
+                    paymentPs.setString(4, month.toString());
+                    paymentPs.addBatch();
+                }
+                attendancePs.executeBatch();
+                leavePs.executeBatch();
+                paymentPs.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    private static void cleanup() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement st = conn.createStatement()) {
+            // Attendance, leaves and payments go with the staff rows (ON DELETE CASCADE)
+            st.executeUpdate("DELETE FROM staff_members WHERE email = '" + MARKER + "'");
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.pos.db;
+
+import com.example.pos.util.EscPosEncoder;
+import com.example.pos.util.NetworkPrinterTransport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Times receipt encoding with EscPosEncoder against the previous
+ * String-and-UTF-8 approach, then sends receipts over NetworkPrinterTransport
+ * to a fake printer listening on localhost and checks every byte arrives.
+ */
+public class ReceiptPrintBenchmark {
+
+    private static final int ITEMS = 25;
+    private static final int ITERATIONS = 50_000;
+    private static final int SENDS = 200;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Receipt Print Benchmark ===\n");
+
+        EscPosEncoder encoder = new EscPosEncoder();
+        for (int i = 0; i < ITERATIONS; i++) {
+            encodeBytes(encoder);
+            encodeString();
+        }
+
+        long start = System.nanoTime();
+        int size = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            size = encodeBytes(encoder).size();
+        }
+        double encoderMicros = (System.nanoTime() - start) / 1e3 / ITERATIONS;
+
+        start = System.nanoTime();
+        int stringSize = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            stringSize = encodeString().length;
+        }
+        double stringMicros = (System.nanoTime() - start) / 1e3 / ITERATIONS;
+
+        System.out.printf("Encode %d-item receipt: EscPosEncoder %.1f us (%d bytes), String+UTF-8 %.1f us (%d bytes)%n",
+            ITEMS, encoderMicros, size, stringMicros, stringSize);
+
+        byte[] receipt = encodeBytes(encoder).toByteArray();
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("127.0.0.1", 0));
+            int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+            CompletableFuture<Integer> fakePrinter = CompletableFuture.supplyAsync(() -> receive(server, receipt));
+
+            NetworkPrinterTransport transport = new NetworkPrinterTransport("127.0.0.1", port, 2000);
+            long[] latencies = new long[SENDS];
+            for (int i = 0; i < SENDS; i++) {
+                long sendStart = System.nanoTime();
+                transport.send(receipt);
+                latencies[i] = System.nanoTime() - sendStart;
+            }
+            int verified = fakePrinter.get();
+            Arrays.sort(latencies);
+            System.out.printf("Sent %d receipts to fake printer on port %d: %d verified, p50 %.2f ms, p99 %.2f ms%n",
+                SENDS, port, verified, latencies[SENDS / 2] / 1e6, latencies[SENDS * 99 / 100] / 1e6);
+            System.out.println(verified == SENDS ? "✓ All receipts received intact" : "✗ Receipts lost or corrupted");
+        }
+
+        // A port that was just free, now with nothing listening on it
+        int closedPort;
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            probe.bind(new InetSocketAddress("127.0.0.1", 0));
+            closedPort = ((InetSocketAddress) probe.getLocalAddress()).getPort();
+        }
+        try {
+            new NetworkPrinterTransport("127.0.0.1", closedPort, 2000).send(receipt);
+            System.out.println("✗ Send to a closed port succeeded");
+        } catch (IOException expected) {
+            System.out.printf("✓ Offline printer fails fast (%s)%n", expected.getMessage());
+        }
+    }
+
+    /**
+     * Fake printer: accept SENDS connections and compare what each delivered
+     */
+    private static int receive(ServerSocketChannel server, byte[] expected) {
+        int verified = 0;
+        ByteBuffer chunk = ByteBuffer.allocate(8192);
+        try {
+            for (int i = 0; i < SENDS; i++) {
+                try (SocketChannel client = server.accept()) {
+                    ByteArrayOutputStream received = new ByteArrayOutputStream();
+                    chunk.clear();
+                    while (client.read(chunk) >= 0) {
+                        received.write(chunk.array(), 0, chunk.position());
+                        chunk.clear();
+                    }
+                    if (Arrays.equals(received.toByteArray(), expected)) {
+                        verified++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("✗ Fake printer failed: " + e.getMessage());
+        }
+        return verified;
+    }
+
+    private static EscPosEncoder encodeBytes(EscPosEncoder receipt) {
+        receipt.reset().initialize();
+        receipt.align(EscPosEncoder.Align.CENTER).size(EscPosEncoder.SIZE_DOUBLE).bold(true).line("Café Masala");
+        receipt.bold(false).size(EscPosEncoder.SIZE_NORMAL).line("12 MG Road").line("Bengaluru, Karnataka");
+        receipt.repeat('-', 42).newline().align(EscPosEncoder.Align.LEFT);
+        for (int i = 0; i < ITEMS; i++) {
+            receipt.padRight("Paneer Butter Masala " + i, 20).padLeft(Integer.toString(i % 4 + 1), 8)
+                .amount(249.5 * (i % 4 + 1), 14).newline();
+        }
+        receipt.repeat('-', 42).newline();
+        receipt.padRight("TOTAL", 28).amount(12_345.67, 14).newline();
+        return receipt.cut();
+    }
+
+    /**
+     * The previous approach: control characters in a String, padded with
+     * String.format and repeat, then encoded as UTF-8
+     */
+    private static byte[] encodeString() {
+        StringBuilder receipt = new StringBuilder();
+        receipt.append("\u001Ba\u0001").append("\u001D!\u0011").append("\u001BE\u0001").append("Café Masala\n");
+        receipt.append("\u001BE\u0000").append("\u001D!\u0000").append("12 MG Road\n").append("Bengaluru, Karnataka\n");
+        receipt.append("-".repeat(42)).append('\n').append("\u001Ba\u0000");
+        for (int i = 0; i < ITEMS; i++) {
+            receipt.append(padRight("Paneer Butter Masala " + i, 20))
+                .append(padLeft(String.valueOf(i % 4 + 1), 8))
+                .append(padLeft(String.format("%.2f", 249.5 * (i % 4 + 1)), 14)).append('\n');
+        }
+        receipt.append("-".repeat(42)).append('\n');
+        receipt.append(padRight("TOTAL", 28)).append(padLeft(String.format("%.2f", 12_345.67), 14)).append('\n');
+        receipt.append("\u001DVA\u0003");
+        return receipt.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String padRight(String text, int length) {
+        if (text.length() >= length) return text.substring(0, length);
+        return text + " ".repeat(length - text.length());
+    }
+
+    private static String padLeft(String text, int length) {
+        if (text.length() >= length) return text.substring(0, length);
+        return " ".repeat(length - text.length()) + text;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.pos.db;
+
+import com.example.pos.service.SalesRollupService;
+
+import java.sql.SQLException;
+
+/**
+ * Command-line utility to recompute the sales rollup tables from history
+ */
+public class SalesRollupRebuild {
+
+    public static void main(String[] args) {
+        System.out.println("=== Sales Rollup Rebuild ===\n");
+
+        try {
+            long start = System.currentTimeMillis();
+            new SalesRollupService().rebuild();
+            System.out.println("✓ Rollups rebuilt in " + (System.currentTimeMillis() - start) + "ms");
+        } catch (SQLException e) {
+            System.err.println("\n✗ Rebuild failed!");
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
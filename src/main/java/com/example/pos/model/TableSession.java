@@ -18,6 +18,7 @@ public class TableSession {
     private final List<TableSessionItem> items;
     private final String status;
     private final LocalDateTime updatedAt;
+    private final long version;
 
     public TableSession(
             String tableId,
@@ -29,6 +30,23 @@ public class TableSession {
             List<TableSessionItem> items,
             String status,
             LocalDateTime updatedAt) {
+        this(tableId, tableName, billLabel, customerName, paymentMethod, orderType, items, status, updatedAt, 0);
+    }
+
+    /**
+     * @param version the stored session's version, bumped on every save; 0 if not stored
+     */
+    public TableSession(
+            String tableId,
+            String tableName,
+            String billLabel,
+            String customerName,
+            String paymentMethod,
+            String orderType,
+            List<TableSessionItem> items,
+            String status,
+            LocalDateTime updatedAt,
+            long version) {
         this.tableId = tableId;
         this.tableName = tableName;
         this.billLabel = billLabel;
@@ -38,6 +56,7 @@ public class TableSession {
         this.items = items != null ? items : new ArrayList<>();
         this.status = status != null ? status : "Occupied";
         this.updatedAt = updatedAt != null ? updatedAt : LocalDateTime.now();
+        this.version = version;
     }
 
     public double subtotal() {
@@ -79,4 +98,8 @@ public class TableSession {
     public LocalDateTime getUpdatedAt() {
         return updatedAt;
     }
-}
\ No newline at end of file
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 
 public class Transaction {
 
+    private long id;
     private String billNumber;
     private LocalDateTime dateTime;
     private String customerName;
@@ -25,6 +26,14 @@ public class Transaction {
     }
 
     // Getters and Setters
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
     public String getBillNumber() {
         return billNumber;
     }
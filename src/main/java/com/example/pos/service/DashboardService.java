@@ -1,7 +1,7 @@
 package com.example.pos.service;
 
 import com.example.pos.db.DatabaseConnection;
-import com.example.pos.util.SimpleCache;
+import com.example.pos.util.BoundedCache;
 
 import java.sql.*;
 import java.time.LocalDate;
@@ -16,92 +16,156 @@ import java.util.*;
  */
 public class DashboardService {
     
-    // Cache dashboard data for 30 seconds
-    private static final SimpleCache<String, Object> dashboardCache = new SimpleCache<>(30000);
+    // Dashboard data is refreshed in the background after 30 seconds and
+    // dropped after 5 minutes, so refreshes never wait on a query once warm
+    private static final BoundedCache<String, Object> dashboardCache =
+        new BoundedCache<>("dashboard", 64, 300000, 30000);
     
     /**
      * Get dashboard summary statistics
      */
     public DashboardSummary getDashboardSummary() throws SQLException {
-        String cacheKey = "dashboard_summary_" + LocalDate.now();
-        DashboardSummary cached = (DashboardSummary) dashboardCache.get(cacheKey);
-        if (cached != null) {
-            return cached;
-        }
-        
+        return (DashboardSummary) dashboardCache.get("dashboard_summary_" + LocalDate.now(),
+            key -> loadDashboardSummary());
+    }
+    
+    private DashboardSummary loadDashboardSummary() throws SQLException {
+        // All figures come from one statement: today/yesterday totals from the
+        // daily rollup, pending counts from a range scan on sales bounded by
+        // [min(today 00:00, now - 2h), tomorrow 00:00), plus two small counts.
+        // Bounds are passed as timestamps so idx_sales_created_at can be used.
+        String sql = """
+            WITH r AS (
+                SELECT
+                    COALESCE(SUM(total) FILTER (WHERE sale_date = ?), 0) AS today_sales,
+                    COALESCE(SUM(order_count) FILTER (WHERE sale_date = ?), 0) AS today_orders,
+                    COALESCE(SUM(total) FILTER (WHERE sale_date = ?), 0) AS yesterday_sales,
+                    COALESCE(SUM(order_count) FILTER (WHERE sale_date = ?), 0) AS yesterday_orders
+                FROM sales_daily_rollup
+                WHERE sale_date IN (?, ?)
+            ), s AS (
+                SELECT
+                    COUNT(*) FILTER (WHERE created_at >= ?) AS pending_orders,
+                    COUNT(*) FILTER (WHERE created_at >= ?) AS pending_current_hour,
+                    COUNT(*) FILTER (WHERE created_at >= ? AND created_at < ?) AS pending_previous_hour
+                FROM sales
+                WHERE status IN ('Pending', 'Preparing')
+                  AND created_at >= ? AND created_at < ?
+            )
+            SELECT r.*, s.*, t.occupied_tables, t.total_tables, i.low_stock_items
+            FROM r
+            CROSS JOIN s
+            CROSS JOIN (
+                SELECT COUNT(*) FILTER (WHERE status = 'Occupied') AS occupied_tables,
+                       COUNT(*) AS total_tables
+                FROM restaurant_tables
+            ) t
+            CROSS JOIN (
+                SELECT COUNT(*) AS low_stock_items
+                FROM inventory_items
+                WHERE quantity < 10 AND quantity > 0
+            ) i
+            """;
+
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+        java.sql.Date todayDate = java.sql.Date.valueOf(today);
+        java.sql.Date yesterdayDate = java.sql.Date.valueOf(today.minusDays(1));
+        Timestamp todayStart = Timestamp.valueOf(today.atStartOfDay());
+        Timestamp tomorrowStart = Timestamp.valueOf(today.plusDays(1).atStartOfDay());
+        Timestamp hourAgo = Timestamp.valueOf(now.minusHours(1));
+        Timestamp twoHoursAgo = Timestamp.valueOf(now.minusHours(2));
+        Timestamp scanStart = twoHoursAgo.before(todayStart) ? twoHoursAgo : todayStart;
+
         DashboardSummary summary = new DashboardSummary();
         
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            // Get today's sales
-            summary.totalSales = getTodayTotalSales(conn);
-            summary.totalOrders = getTodayTotalOrders(conn);
-            summary.pendingOrders = getPendingOrders(conn);
-            summary.activeTables = getActiveTables(conn);
-            summary.lowStockItems = getLowStockItems(conn);
-            
-            // Calculate growth percentages
-            summary.salesGrowth = calculateSalesGrowth(conn);
-            summary.ordersGrowth = calculateOrdersGrowth(conn);
-            summary.pendingGrowth = calculatePendingGrowth(conn);
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDate(1, todayDate);
+            ps.setDate(2, todayDate);
+            ps.setDate(3, yesterdayDate);
+            ps.setDate(4, yesterdayDate);
+            ps.setDate(5, todayDate);
+            ps.setDate(6, yesterdayDate);
+            ps.setTimestamp(7, todayStart);
+            ps.setTimestamp(8, hourAgo);
+            ps.setTimestamp(9, twoHoursAgo);
+            ps.setTimestamp(10, hourAgo);
+            ps.setTimestamp(11, scanStart);
+            ps.setTimestamp(12, tomorrowStart);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    summary.totalSales = rs.getDouble("today_sales");
+                    summary.totalOrders = rs.getInt("today_orders");
+                    summary.pendingOrders = rs.getInt("pending_orders");
+                    summary.activeTables = rs.getInt("occupied_tables") + "/" + rs.getInt("total_tables");
+                    summary.lowStockItems = rs.getInt("low_stock_items");
+
+                    // Calculate growth percentages
+                    summary.salesGrowth = growth(summary.totalSales, rs.getDouble("yesterday_sales"));
+                    summary.ordersGrowth = growth(summary.totalOrders, rs.getInt("yesterday_orders"));
+                    summary.pendingGrowth = growth(rs.getInt("pending_current_hour"), rs.getInt("pending_previous_hour"));
+                } else {
+                    summary.activeTables = "0/0";
+                }
+            }
         }
         
-        dashboardCache.put(cacheKey, summary);
         return summary;
     }
     
     /**
      * Get daily sales trend for the last 7 days
      */
+    @SuppressWarnings("unchecked")
     public List<DailySales> getDailySalesTrend() throws SQLException {
-        String cacheKey = "daily_sales_trend";
-        @SuppressWarnings("unchecked")
-        List<DailySales> cached = (List<DailySales>) dashboardCache.get(cacheKey);
-        if (cached != null) {
-            return cached;
-        }
-        
+        return (List<DailySales>) dashboardCache.get("daily_sales_trend_" + LocalDate.now(),
+            key -> loadDailySalesTrend());
+    }
+    
+    private List<DailySales> loadDailySalesTrend() throws SQLException {
+        // Read from the rollup maintained by SalesRollupService: a few rows per day
         String sql = """
-            SELECT DATE(created_at) as sale_date, 
+            SELECT sale_date,
                    SUM(total) as total_sales,
-                   COUNT(*) as order_count
-            FROM sales
-            WHERE created_at >= CURRENT_DATE - INTERVAL '7 days'
-            GROUP BY DATE(created_at)
+                   SUM(order_count) as order_count
+            FROM sales_daily_rollup
+            WHERE sale_date >= ?
+            GROUP BY sale_date
             ORDER BY sale_date
             """;
         
         List<DailySales> salesList = new ArrayList<>();
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDate(1, java.sql.Date.valueOf(LocalDate.now().minusDays(6)));
             
-            while (rs.next()) {
-                salesList.add(new DailySales(
-                    rs.getDate("sale_date").toLocalDate(),
-                    rs.getDouble("total_sales"),
-                    rs.getInt("order_count")
-                ));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    salesList.add(new DailySales(
+                        rs.getDate("sale_date").toLocalDate(),
+                        rs.getDouble("total_sales"),
+                        rs.getInt("order_count")
+                    ));
+                }
             }
         }
         
         // Fill missing days with zero sales
-        salesList = fillMissingDays(salesList);
-        
-        dashboardCache.put(cacheKey, salesList);
-        return salesList;
+        return fillMissingDays(salesList);
     }
     
     /**
      * Get category-wise sales distribution
      */
+    @SuppressWarnings("unchecked")
     public List<CategorySales> getCategorySales() throws SQLException {
-        String cacheKey = "category_sales_" + LocalDate.now();
-        @SuppressWarnings("unchecked")
-        List<CategorySales> cached = (List<CategorySales>) dashboardCache.get(cacheKey);
-        if (cached != null) {
-            return cached;
-        }
-        
+        return (List<CategorySales>) dashboardCache.get("category_sales_" + LocalDate.now(),
+            key -> loadCategorySales());
+    }
+    
+    private List<CategorySales> loadCategorySales() throws SQLException {
         String sql = """
             SELECT 
                 CASE 
@@ -117,26 +181,28 @@ public class DashboardService {
                 SUM(si.quantity) as total_quantity
             FROM sale_items si
             JOIN sales s ON s.id = si.sale_id
-            WHERE DATE(s.created_at) = CURRENT_DATE
+            WHERE s.created_at >= ? AND s.created_at < ?
             GROUP BY category
             ORDER BY total_sales DESC
             """;
         
         List<CategorySales> categoryList = new ArrayList<>();
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setTimestamp(1, Timestamp.valueOf(LocalDate.now().atStartOfDay()));
+            ps.setTimestamp(2, Timestamp.valueOf(LocalDate.now().plusDays(1).atStartOfDay()));
             
-            while (rs.next()) {
-                categoryList.add(new CategorySales(
-                    rs.getString("category"),
-                    rs.getDouble("total_sales"),
-                    rs.getInt("total_quantity")
-                ));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    categoryList.add(new CategorySales(
+                        rs.getString("category"),
+                        rs.getDouble("total_sales"),
+                        rs.getInt("total_quantity")
+                    ));
+                }
             }
         }
         
-        dashboardCache.put(cacheKey, categoryList);
         return categoryList;
     }
     
@@ -189,114 +255,9 @@ public class DashboardService {
     
     // ========== Private Helper Methods ==========
     
-    private double getTodayTotalSales(Connection conn) throws SQLException {
-        String sql = "SELECT COALESCE(SUM(total), 0) FROM sales WHERE DATE(created_at) = CURRENT_DATE";
-        try (PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            return rs.next() ? rs.getDouble(1) : 0.0;
-        }
-    }
-    
-    private int getTodayTotalOrders(Connection conn) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM sales WHERE DATE(created_at) = CURRENT_DATE";
-        try (PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            return rs.next() ? rs.getInt(1) : 0;
-        }
-    }
-    
-    private int getPendingOrders(Connection conn) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM sales WHERE status IN ('Pending', 'Preparing') AND DATE(created_at) = CURRENT_DATE";
-        try (PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            return rs.next() ? rs.getInt(1) : 0;
-        }
-    }
-    
-    private String getActiveTables(Connection conn) throws SQLException {
-        String sql = """
-            SELECT COUNT(*) as occupied, 
-                   (SELECT COUNT(*) FROM restaurant_tables) as total
-            FROM restaurant_tables 
-            WHERE status = 'Occupied'
-            """;
-        try (PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            if (rs.next()) {
-                return rs.getInt("occupied") + "/" + rs.getInt("total");
-            }
-            return "0/0";
-        }
-    }
-    
-    private int getLowStockItems(Connection conn) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM inventory_items WHERE quantity < 10 AND quantity > 0";
-        try (PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            return rs.next() ? rs.getInt(1) : 0;
-        }
-    }
-    
-    private double calculateSalesGrowth(Connection conn) throws SQLException {
-        String sql = """
-            SELECT 
-                COALESCE(SUM(CASE WHEN DATE(created_at) = CURRENT_DATE THEN total ELSE 0 END), 0) as today,
-                COALESCE(SUM(CASE WHEN DATE(created_at) = CURRENT_DATE - 1 THEN total ELSE 0 END), 0) as yesterday
-            FROM sales
-            WHERE DATE(created_at) >= CURRENT_DATE - 1
-            """;
-        try (PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            if (rs.next()) {
-                double today = rs.getDouble("today");
-                double yesterday = rs.getDouble("yesterday");
-                if (yesterday == 0) return today > 0 ? 100.0 : 0.0;
-                return ((today - yesterday) / yesterday) * 100;
-            }
-            return 0.0;
-        }
-    }
-    
-    private double calculateOrdersGrowth(Connection conn) throws SQLException {
-        String sql = """
-            SELECT 
-                COUNT(CASE WHEN DATE(created_at) = CURRENT_DATE THEN 1 END) as today,
-                COUNT(CASE WHEN DATE(created_at) = CURRENT_DATE - 1 THEN 1 END) as yesterday
-            FROM sales
-            WHERE DATE(created_at) >= CURRENT_DATE - 1
-            """;
-        try (PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            if (rs.next()) {
-                int today = rs.getInt("today");
-                int yesterday = rs.getInt("yesterday");
-                if (yesterday == 0) return today > 0 ? 100.0 : 0.0;
-                return ((double)(today - yesterday) / yesterday) * 100;
-            }
-            return 0.0;
-        }
-    }
-    
-    private double calculatePendingGrowth(Connection conn) throws SQLException {
-        // For pending orders, we compare current hour vs previous hour
-        String sql = """
-            SELECT 
-                COUNT(CASE WHEN created_at >= CURRENT_TIMESTAMP - INTERVAL '1 hour' THEN 1 END) as current_hour,
-                COUNT(CASE WHEN created_at >= CURRENT_TIMESTAMP - INTERVAL '2 hours' 
-                           AND created_at < CURRENT_TIMESTAMP - INTERVAL '1 hour' THEN 1 END) as previous_hour
-            FROM sales
-            WHERE status IN ('Pending', 'Preparing')
-            """;
-        try (PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            if (rs.next()) {
-                int current = rs.getInt("current_hour");
-                int previous = rs.getInt("previous_hour");
-                if (previous == 0) return current > 0 ? 100.0 : 0.0;
-                return ((double)(current - previous) / previous) * 100;
-            }
-            return 0.0;
-        }
+    private double growth(double current, double previous) {
+        if (previous == 0) return current > 0 ? 100.0 : 0.0;
+        return ((current - previous) / previous) * 100;
     }
     
     private List<DailySales> fillMissingDays(List<DailySales> salesList) {
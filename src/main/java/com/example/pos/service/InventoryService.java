@@ -1,9 +1,9 @@
 package com.example.pos.service;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -16,9 +16,14 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 
 import com.example.pos.db.DatabaseConnection;
 import com.example.pos.model.InventoryItem;
+import com.example.pos.util.BoundedCache;
+import com.example.pos.util.CsvReader;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
 
 /**
  * Handles CRUD operations for inventory items stored in PostgreSQL via JDBC.
@@ -27,6 +32,14 @@ public class InventoryService {
 
     public static final String RETAIL_CATEGORY = "Retail";
 
+    // Lower-cased item name -> id, so selling stock needs no lookups. Cleared
+    // on local edits; edits on other terminals show up as an unknown name or a
+    // failed update, which reload it. Loaded on the seller's own connection.
+    private static final String NAME_INDEX_KEY = "all";
+    private static final BoundedCache<String, Map<String, Long>> nameIndexCache =
+        new BoundedCache<>("inventory-names", 1, 300000);
+    private static final int COPY_CHUNK_CHARS = 64 * 1024;
+
     public List<InventoryItem> getAllItems() {
         List<InventoryItem> items = new ArrayList<>();
         String sql = """
@@ -64,6 +77,7 @@ public class InventoryService {
                 ps.setObject(5, now);
                 ps.setObject(6, now);
                 ps.executeUpdate();
+                nameIndexCache.clear();
                 try (ResultSet keys = ps.getGeneratedKeys()) {
                     if (keys.next()) {
                         return findById(connection, keys.getLong(1));
@@ -92,6 +106,7 @@ public class InventoryService {
             ps.setObject(5, Instant.now());
             ps.setLong(6, Long.parseLong(id));
             ps.executeUpdate();
+            nameIndexCache.clear();
             return findById(connection, Long.parseLong(id));
         } catch (SQLException ex) {
             throw new IllegalStateException("Failed to update inventory item", ex);
@@ -105,49 +120,162 @@ public class InventoryService {
              PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, Long.parseLong(id));
             ps.executeUpdate();
+            nameIndexCache.clear();
         } catch (SQLException ex) {
             throw new IllegalStateException("Failed to delete inventory item", ex);
         }
     }
 
+    /**
+     * Import items from a CSV of name,rate,quantity[,category]. Rows are
+     * parsed as a stream, staged into a temporary table with COPY and merged
+     * into inventory_items in one statement, all in one transaction. Names
+     * match existing items case-insensitively; if several items differ only
+     * in case, the one spelled exactly as in the file (else the oldest) is
+     * updated and the others are left alone. If a name repeats in the file
+     * the last row wins. Rows that are comments (#), too short or have a
+     * non-numeric rate or quantity (e.g. a header) are skipped.
+     */
     public ImportResult importCsv(File file) throws IOException {
         Objects.requireNonNull(file, "File is required");
-        int added = 0;
-        int updated = 0;
+        long start = System.nanoTime();
+        try (CsvReader csv = new CsvReader(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8))) {
+            ImportResult result = DatabaseConnection.executeInTransaction(connection -> importCsv(connection, csv, start));
+            nameIndexCache.clear();
+            return result;
+        } catch (SQLException ex) {
+            if (ex.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IllegalStateException("Failed to import inventory", ex);
+        }
+    }
+
+    private ImportResult importCsv(Connection connection, CsvReader csv, long start) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("""
+                    CREATE TEMP TABLE inventory_import (
+                        line_no  BIGINT NOT NULL,
+                        name     TEXT NOT NULL,
+                        rate     DOUBLE PRECISION NOT NULL,
+                        quantity INTEGER NOT NULL,
+                        category TEXT NOT NULL
+                    ) ON COMMIT DROP
+                    """);
+        }
+
+        int staged = 0;
         int skipped = 0;
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.isBlank() || line.startsWith("#")) {
+        CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY inventory_import (line_no, name, rate, quantity, category) FROM STDIN (FORMAT csv)");
+        try {
+            StringBuilder chunk = new StringBuilder(COPY_CHUNK_CHARS + 256);
+            List<String> record;
+            while ((record = csv.readRecord()) != null) {
+                if (record.isEmpty() || record.get(0).startsWith("#")) {
                     continue;
                 }
-                String[] parts = line.split(",");
-                if (parts.length < 3) {
+                if (record.size() < 3 || record.get(0).isBlank()) {
                     skipped++;
                     continue;
                 }
-                String name = parts[0].trim();
                 double rate;
                 int qty;
                 try {
-                    rate = Double.parseDouble(parts[1].trim());
-                    qty = Integer.parseInt(parts[2].trim());
+                    rate = Double.parseDouble(record.get(1).trim());
+                    qty = Integer.parseInt(record.get(2).trim());
                 } catch (NumberFormatException ex) {
                     skipped++;
                     continue;
                 }
-                String category = parts.length > 3 ? parts[3].trim() : RETAIL_CATEGORY;
-                InventoryItem existing = findByName(name);
-                if (existing == null) {
-                    createItem(name, rate, qty, category);
-                    added++;
-                } else {
-                    updateItem(existing.getId(), name, rate, qty, category);
-                    updated++;
+                String category = normalizeCategory(record.size() > 3 ? record.get(3) : RETAIL_CATEGORY);
+
+                chunk.append(csv.recordLine()).append(',');
+                appendCopyText(chunk, record.get(0).trim());
+                chunk.append(',').append(rate).append(',').append(qty).append(',');
+                appendCopyText(chunk, category);
+                chunk.append('\n');
+                staged++;
+                if (chunk.length() >= COPY_CHUNK_CHARS) {
+                    writeCopy(copy, chunk);
                 }
             }
+            writeCopy(copy, chunk);
+            copy.endCopy();
+        } catch (IOException ex) {
+            throw new SQLException("Failed to read CSV: " + ex.getMessage(), ex);
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+
+        // One set-based merge; both parts see the table as it was before it,
+        // so a row is either updated or inserted, never both. Each file name
+        // updates at most one item, so a rename cannot collide with UNIQUE(name).
+        String merge = """
+                WITH latest AS (
+                    SELECT DISTINCT ON (LOWER(name)) name, rate, quantity, category
+                    FROM inventory_import
+                    ORDER BY LOWER(name), line_no DESC
+                ), targets AS (
+                    SELECT DISTINCT ON (LOWER(l.name)) i.id, l.name, l.rate, l.quantity, l.category
+                    FROM latest l
+                    JOIN inventory_items i ON LOWER(i.name) = LOWER(l.name)
+                    ORDER BY LOWER(l.name), i.name = l.name DESC, i.id
+                ), updated AS (
+                    UPDATE inventory_items i
+                    SET name = t.name, rate = t.rate, quantity = t.quantity, category = t.category, updated_at = NOW()
+                    FROM targets t
+                    WHERE i.id = t.id
+                    RETURNING i.id
+                ), inserted AS (
+                    INSERT INTO inventory_items (name, rate, quantity, category, created_at, updated_at)
+                    SELECT l.name, l.rate, l.quantity, l.category, NOW(), NOW()
+                    FROM latest l
+                    WHERE NOT EXISTS (SELECT 1 FROM inventory_items i WHERE LOWER(i.name) = LOWER(l.name))
+                    RETURNING id
+                )
+                SELECT (SELECT COUNT(*) FROM inserted), (SELECT COUNT(*) FROM updated)
+                """;
+        int added = 0;
+        int updated = 0;
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery(merge)) {
+            if (rs.next()) {
+                added = rs.getInt(1);
+                updated = rs.getInt(2);
+            }
+        }
+        int rows = staged + skipped;
+        // Earlier rows for a name repeated in the file were replaced by the last one
+        skipped += staged - added - updated;
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return new ImportResult(added, updated, skipped, seconds > 0 ? rows / seconds : 0);
+    }
+
+    /**
+     * Append a quoted COPY csv field
+     */
+    private static void appendCopyText(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static void writeCopy(CopyIn copy, StringBuilder chunk) throws SQLException {
+        if (chunk.length() > 0) {
+            byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+            copy.writeToCopy(bytes, 0, bytes.length);
+            chunk.setLength(0);
         }
-        return new ImportResult(added, updated, skipped);
     }
 
     public Map<String, InventoryItem> retailItemsByName() {
@@ -158,71 +286,127 @@ public class InventoryService {
         return map;
     }
 
-    public void decrementStock(Map<String, Integer> soldItems) {
+    /**
+     * Take sold quantities off stock in one transaction. Returns the names
+     * that did not have enough stock; nothing is decremented if any did not.
+     */
+    public List<String> decrementStock(Map<String, Integer> soldItems) {
         if (soldItems == null || soldItems.isEmpty()) {
-            return;
+            return List.of();
         }
         try {
-            DatabaseConnection.executeInTransaction(connection -> {
-                decrementStock(connection, soldItems);
-                return null;
+            return DatabaseConnection.executeInTransaction(connection -> {
+                List<String> failed = decrementStock(connection, soldItems);
+                if (!failed.isEmpty()) {
+                    connection.rollback();
+                }
+                return failed;
             });
         } catch (SQLException ex) {
             throw new IllegalStateException("Failed to decrement stock", ex);
         }
     }
 
-    public void decrementStock(Connection connection, Map<String, Integer> soldItems) throws SQLException {
+    /**
+     * Take sold quantities off stock as one batch of conditional updates.
+     * Quantity only drops if enough is left, checked by the database, so two
+     * terminals selling the last unit cannot both succeed. Rows are updated in
+     * id order, so terminals selling the same items lock them in the same
+     * order and cannot deadlock. Item ids come from an in-memory name index
+     * and names not in inventory are ignored. Returns the names that did not
+     * have enough stock; the caller should roll back.
+     */
+    public List<String> decrementStock(Connection connection, Map<String, Integer> soldItems) throws SQLException {
         if (soldItems == null || soldItems.isEmpty()) {
-            return;
+            return List.of();
         }
+        Map<String, Long> index = nameIndex(connection, false);
+        for (String name : soldItems.keySet()) {
+            if (!index.containsKey(indexKey(name))) {
+                // Possibly added on another terminal since the index was loaded
+                index = nameIndex(connection, true);
+                break;
+            }
+        }
+
+        // Names differing only in case are the same item; sorted by id
+        Map<Long, Integer> quantities = new TreeMap<>();
+        Map<Long, List<String>> names = new HashMap<>();
         for (Map.Entry<String, Integer> entry : soldItems.entrySet()) {
-            String name = entry.getKey();
-            int qtySold = entry.getValue();
-            InventoryItem existing = findByName(connection, name);
-            if (existing == null) {
+            Long id = index.get(indexKey(entry.getKey()));
+            if (id == null || entry.getValue() == null || entry.getValue() <= 0) {
                 continue;
             }
-            int currentQty = existing.getQuantity();
-            if (qtySold > currentQty) {
-                throw new IllegalStateException(
-                        "Insufficient stock for " + name + ". Available: " + currentQty);
+            quantities.merge(id, entry.getValue(), Integer::sum);
+            names.computeIfAbsent(id, k -> new ArrayList<>()).add(entry.getKey());
+        }
+        if (quantities.isEmpty()) {
+            return List.of();
+        }
+
+        String sql = """
+                UPDATE inventory_items
+                SET quantity = quantity - ?, updated_at = NOW()
+                WHERE id = ? AND quantity >= ?
+                """;
+        List<Long> ids = new ArrayList<>(quantities.keySet());
+        int[] counts;
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (Long id : ids) {
+                int qty = quantities.get(id);
+                ps.setInt(1, qty);
+                ps.setLong(2, id);
+                ps.setInt(3, qty);
+                ps.addBatch();
             }
-            try (PreparedStatement ps = connection.prepareStatement(
-                    "UPDATE inventory_items SET quantity = ?, updated_at = ? WHERE id = ?")) {
-                ps.setInt(1, currentQty - qtySold);
-                ps.setObject(2, Instant.now());
-                ps.setLong(3, Long.parseLong(existing.getId()));
-                ps.executeUpdate();
+            counts = ps.executeBatch();
+        }
+
+        List<String> failed = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (counts[i] == 0) {
+                failed.addAll(names.get(ids.get(i)));
             }
         }
+        if (!failed.isEmpty()) {
+            // A deleted item fails too; make the next sale reload names
+            nameIndexCache.clear();
+        }
+        return failed;
     }
 
-    private InventoryItem findById(Connection connection, long id) throws SQLException {
-        try (PreparedStatement ps = connection.prepareStatement(
-                "SELECT id, name, rate, quantity, category FROM inventory_items WHERE id = ?")) {
-            ps.setLong(1, id);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return toItem(rs);
-                }
-            }
+    /**
+     * The cached name index, loaded on the given connection if absent or if
+     * reload is set, so a sale holds only its own connection
+     */
+    private static Map<String, Long> nameIndex(Connection connection, boolean reload) throws SQLException {
+        Map<String, Long> index = reload ? null : nameIndexCache.get(NAME_INDEX_KEY);
+        if (index == null) {
+            index = loadNameIndex(connection);
+            nameIndexCache.put(NAME_INDEX_KEY, index);
         }
-        return null;
+        return index;
     }
 
-    private InventoryItem findByName(String name) {
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            return findByName(connection, name);
-        } catch (SQLException ex) {
-            throw new IllegalStateException("Failed to lookup inventory item", ex);
+    private static Map<String, Long> loadNameIndex(Connection connection) throws SQLException {
+        Map<String, Long> index = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT id, name FROM inventory_items");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                index.put(indexKey(rs.getString("name")), rs.getLong("id"));
+            }
         }
+        return Map.copyOf(index);
+    }
+
+    private static String indexKey(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
     }
 
-    private InventoryItem findByName(Connection connection, String name) throws SQLException {
+    private InventoryItem findById(Connection connection, long id) throws SQLException {
         try (PreparedStatement ps = connection.prepareStatement(
-                "SELECT id, name, rate, quantity, category FROM inventory_items WHERE LOWER(name) = LOWER(?)")) {
-            ps.setString(1, name.trim());
+                "SELECT id, name, rate, quantity, category FROM inventory_items WHERE id = ?")) {
+            ps.setLong(1, id);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
                     return toItem(rs);
@@ -264,6 +448,6 @@ public class InventoryService {
         return new InventoryItem(id, name, rate, quantity, category);
     }
 
-    public record ImportResult(int added, int updated, int skipped) {
+    public record ImportResult(int added, int updated, int skipped, double rowsPerSecond) {
     }
 }
\ No newline at end of file
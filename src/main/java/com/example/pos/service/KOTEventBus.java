@@ -0,0 +1,154 @@
+package com.example.pos.service;
+
+import com.example.pos.db.DatabaseConnection;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process change feed for Kitchen Order Tickets.
+ *
+ * KOTService publishes an event after every committed change, and the kitchen
+ * board subscribes instead of polling. Every change is also sent through
+ * PostgreSQL NOTIFY on the {@value #CHANNEL} channel (from the writing
+ * connection, so it is only delivered once the change commits); terminals
+ * that start the remote listener re-publish those notifications locally.
+ *
+ * The remote listener can be turned off with -Dpos.kot.notify=false.
+ */
+public final class KOTEventBus {
+
+    public enum Type { CREATED, STATUS_CHANGED, PRIORITY_CHANGED, ITEM_STATUS_CHANGED, DELETED, RESYNC }
+
+    /**
+     * A change to one ticket. RESYNC (kotId 0) means events may have been
+     * missed and subscribers should reload everything.
+     */
+    public record KOTEvent(Type type, long kotId) {}
+
+    static final String CHANNEL = "kot_events";
+    private static final long RECONNECT_DELAY_MS = 5000;
+    private static final int POLL_TIMEOUT_MS = 5000;
+
+    private static final KOTEventBus INSTANCE = new KOTEventBus();
+
+    // Identifies this process so it can ignore its own notifications
+    private final String originId = UUID.randomUUID().toString();
+    private final CopyOnWriteArrayList<Consumer<KOTEvent>> listeners = new CopyOnWriteArrayList<>();
+    private volatile Thread listenerThread;
+
+    private KOTEventBus() {
+    }
+
+    public static KOTEventBus getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribe to KOT events. Listeners are called on the publishing thread
+     * (or the listener thread for remote events), so UI code must hop to the
+     * FX thread itself. Returns a handle that removes the subscription.
+     */
+    public Runnable subscribe(Consumer<KOTEvent> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    /**
+     * Deliver an event to local subscribers only
+     */
+    public void publish(KOTEvent event) {
+        for (Consumer<KOTEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                System.err.println("KOT event listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Queue a NOTIFY for other terminals on the given connection. When called
+     * inside a transaction the notification is sent on commit.
+     */
+    void notifyRemote(Connection conn, KOTEvent event) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT pg_notify(?, ?)")) {
+            ps.setString(1, CHANNEL);
+            ps.setString(2, originId + ":" + event.type() + ":" + event.kotId());
+            ps.execute();
+        }
+    }
+
+    /**
+     * Start the background LISTEN loop (idempotent). It keeps a dedicated
+     * connection, reconnects after failures and publishes RESYNC after each
+     * reconnect because notifications sent while disconnected are lost.
+     */
+    public synchronized void startRemoteListener() {
+        if (listenerThread != null || !Boolean.parseBoolean(System.getProperty("pos.kot.notify", "true"))) {
+            return;
+        }
+
+        Thread thread = new Thread(this::listenLoop, "kot-event-listener");
+        thread.setDaemon(true);
+        listenerThread = thread;
+        thread.start();
+    }
+
+    private void listenLoop() {
+        boolean reconnecting = false;
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Connection conn = DatabaseConnection.openDedicatedConnection()) {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                if (reconnecting) {
+                    publish(new KOTEvent(Type.RESYNC, 0));
+                }
+                reconnecting = true;
+
+                PGConnection pgConn = conn.unwrap(PGConnection.class);
+                while (!Thread.currentThread().isInterrupted()) {
+                    PGNotification[] notifications = pgConn.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        KOTEvent event = parse(notification.getParameter());
+                        if (event != null) {
+                            publish(event);
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("⚠ KOT event listener disconnected: " + e.getMessage());
+                reconnecting = true;
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private KOTEvent parse(String payload) {
+        String[] parts = payload.split(":");
+        if (parts.length != 3 || parts[0].equals(originId)) {
+            return null;
+        }
+        try {
+            return new KOTEvent(Type.valueOf(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
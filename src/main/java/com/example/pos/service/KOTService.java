@@ -3,17 +3,22 @@ package com.example.pos.service;
 import com.example.pos.db.DatabaseConnection;
 import com.example.pos.model.KOT;
 import com.example.pos.model.KOTItem;
+import com.example.pos.service.KOTEventBus.KOTEvent;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for managing Kitchen Order Tickets
  */
 public class KOTService {
 
+    private final KOTEventBus events = KOTEventBus.getInstance();
+
     /**
      * Create a new KOT
      */
@@ -69,7 +74,10 @@ public class KOTService {
                     ps.executeBatch();
                 }
 
+                KOTEvent event = new KOTEvent(KOTEventBus.Type.CREATED, kotId);
+                events.notifyRemote(conn, event);
                 conn.commit();
+                events.publish(event);
                 return kotId;
                 
             } catch (SQLException e) {
@@ -85,109 +93,91 @@ public class KOTService {
      * Get all active KOTs (not completed or cancelled)
      */
     public List<KOT> getActiveKOTs() throws SQLException {
-        String sql = """
+        String ticketSql = """
             SELECT id, kot_number, table_id, table_name, order_type, customer_name,
                    status, priority, notes, created_at, started_at, completed_at
             FROM kitchen_order_tickets
             WHERE status IN ('Pending', 'Preparing', 'Ready')
-            ORDER BY 
-                CASE priority 
-                    WHEN 'Urgent' THEN 1
-                    WHEN 'High' THEN 2
-                    ELSE 3
-                END,
-                created_at ASC
             """;
-
-        List<KOT> kots = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            
-            while (rs.next()) {
-                KOT kot = mapKOT(rs);
-                kot.setItems(getKOTItems(kot.getId()));
-                kots.add(kot);
-            }
-        }
-        return kots;
+        String orderBy = """
+            CASE t.priority
+                WHEN 'Urgent' THEN 1
+                WHEN 'High' THEN 2
+                ELSE 3
+            END,
+            t.created_at ASC
+            """;
+        return loadKOTsWithItems(ticketSql, orderBy);
     }
 
     /**
      * Get all KOTs (including completed)
      */
     public List<KOT> getAllKOTs() throws SQLException {
-        String sql = """
+        String ticketSql = """
             SELECT id, kot_number, table_id, table_name, order_type, customer_name,
                    status, priority, notes, created_at, started_at, completed_at
             FROM kitchen_order_tickets
             ORDER BY created_at DESC
             LIMIT 100
             """;
-
-        List<KOT> kots = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            
-            while (rs.next()) {
-                KOT kot = mapKOT(rs);
-                kot.setItems(getKOTItems(kot.getId()));
-                kots.add(kot);
-            }
-        }
-        return kots;
+        return loadKOTsWithItems(ticketSql, "t.created_at DESC");
     }
 
     /**
      * Get KOT by ID
      */
     public KOT getKOTById(long id) throws SQLException {
-        String sql = """
+        String ticketSql = """
             SELECT id, kot_number, table_id, table_name, order_type, customer_name,
                    status, priority, notes, created_at, started_at, completed_at
             FROM kitchen_order_tickets
             WHERE id = ?
             """;
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, id);
-            
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    KOT kot = mapKOT(rs);
-                    kot.setItems(getKOTItems(kot.getId()));
-                    return kot;
-                }
-            }
-        }
-        return null;
+        List<KOT> kots = loadKOTsWithItems(ticketSql, "t.id", id);
+        return kots.isEmpty() ? null : kots.get(0);
     }
 
     /**
-     * Get items for a KOT
+     * Load tickets together with their items in a single round trip.
+     * The ticket query is wrapped in a CTE and left-joined to kot_items, so the
+     * rows arrive grouped by ticket (in the requested order) and are folded into
+     * KOT/KOTItem graphs in memory instead of issuing one item query per ticket.
      */
-    private List<KOTItem> getKOTItems(long kotId) throws SQLException {
-        String sql = """
-            SELECT id, kot_id, item_name, quantity, special_notes, status
-            FROM kot_items
-            WHERE kot_id = ?
-            ORDER BY id
-            """;
+    private List<KOT> loadKOTsWithItems(String ticketSql, String orderBy, Object... params) throws SQLException {
+        String sql = "WITH t AS (" + ticketSql + ")\n" + """
+            SELECT t.id, t.kot_number, t.table_id, t.table_name, t.order_type, t.customer_name,
+                   t.status, t.priority, t.notes, t.created_at, t.started_at, t.completed_at,
+                   i.id AS item_id, i.item_name, i.quantity, i.special_notes, i.status AS item_status
+            FROM t
+            LEFT JOIN kot_items i ON i.kot_id = t.id
+            ORDER BY
+            """ + orderBy + ", t.id, i.id";
 
-        List<KOTItem> items = new ArrayList<>();
+        Map<Long, KOT> kots = new LinkedHashMap<>();
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, kotId);
-            
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    items.add(mapKOTItem(rs));
+                    long kotId = rs.getLong("id");
+                    KOT kot = kots.get(kotId);
+                    if (kot == null) {
+                        kot = mapKOT(rs);
+                        kots.put(kotId, kot);
+                    }
+
+                    long itemId = rs.getLong("item_id");
+                    if (!rs.wasNull()) {
+                        kot.addItem(mapJoinedKOTItem(rs, itemId, kotId));
+                    }
                 }
             }
         }
-        return items;
+        return new ArrayList<>(kots.values());
     }
 
     /**
@@ -208,7 +198,9 @@ public class KOTService {
             ps.setString(2, status);
             ps.setString(3, status);
             ps.setLong(4, kotId);
-            ps.executeUpdate();
+            if (ps.executeUpdate() > 0) {
+                announce(conn, new KOTEvent(KOTEventBus.Type.STATUS_CHANGED, kotId));
+            }
         }
     }
 
@@ -222,7 +214,9 @@ public class KOTService {
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, priority);
             ps.setLong(2, kotId);
-            ps.executeUpdate();
+            if (ps.executeUpdate() > 0) {
+                announce(conn, new KOTEvent(KOTEventBus.Type.PRIORITY_CHANGED, kotId));
+            }
         }
     }
 
@@ -230,13 +224,18 @@ public class KOTService {
      * Update item status
      */
     public void updateItemStatus(long itemId, String status) throws SQLException {
-        String sql = "UPDATE kot_items SET status = ? WHERE id = ?";
+        String sql = "UPDATE kot_items SET status = ? WHERE id = ? RETURNING kot_id";
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, status);
             ps.setLong(2, itemId);
-            ps.executeUpdate();
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    announce(conn, new KOTEvent(KOTEventBus.Type.ITEM_STATUS_CHANGED, rs.getLong(1)));
+                }
+            }
         }
     }
 
@@ -249,7 +248,9 @@ public class KOTService {
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, kotId);
-            ps.executeUpdate();
+            if (ps.executeUpdate() > 0) {
+                announce(conn, new KOTEvent(KOTEventBus.Type.DELETED, kotId));
+            }
         }
     }
 
@@ -260,13 +261,24 @@ public class KOTService {
         String sql = """
             DELETE FROM kitchen_order_tickets
             WHERE status IN ('Completed', 'Cancelled')
-            AND completed_at < NOW() - INTERVAL '? hours'
+            AND completed_at < NOW() - make_interval(hours => ?)
+            RETURNING id
             """;
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, hoursOld);
-            return ps.executeUpdate();
+
+            List<Long> deleted = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    deleted.add(rs.getLong(1));
+                }
+            }
+            for (long kotId : deleted) {
+                announce(conn, new KOTEvent(KOTEventBus.Type.DELETED, kotId));
+            }
+            return deleted.size();
         }
     }
 
@@ -274,10 +286,7 @@ public class KOTService {
      * Generate unique KOT number
      */
     public long generateKOTNumber() {
-        LocalDateTime now = LocalDateTime.now();
-        // Format: yyMMddHHmmss
-        return Long.parseLong(now.format(
-            java.time.format.DateTimeFormatter.ofPattern("yyyyMMddHHmmss")).substring(2));
+        return NumberAllocator.kots().next();
     }
 
     /**
@@ -300,6 +309,22 @@ public class KOTService {
     }
 
     // Helper methods
+
+    /**
+     * Announce a change made in autocommit mode. The update has already
+     * committed, so local listeners hear of it first and a failed NOTIFY is
+     * only logged; other terminals catch up on their next full reload.
+     */
+    private void announce(Connection conn, KOTEvent event) {
+        events.publish(event);
+        try {
+            events.notifyRemote(conn, event);
+        } catch (SQLException e) {
+            System.err.println("⚠ Could not notify other terminals of " + event.type() + " for KOT "
+                + event.kotId() + ": " + e.getMessage());
+        }
+    }
+
     private KOT mapKOT(ResultSet rs) throws SQLException {
         KOT kot = new KOT();
         kot.setId(rs.getLong("id"));
@@ -333,14 +358,14 @@ public class KOTService {
         return kot;
     }
 
-    private KOTItem mapKOTItem(ResultSet rs) throws SQLException {
+    private KOTItem mapJoinedKOTItem(ResultSet rs, long itemId, long kotId) throws SQLException {
         KOTItem item = new KOTItem();
-        item.setId(rs.getLong("id"));
-        item.setKotId(rs.getLong("kot_id"));
+        item.setId(itemId);
+        item.setKotId(kotId);
         item.setItemName(rs.getString("item_name"));
         item.setQuantity(rs.getInt("quantity"));
         item.setSpecialNotes(rs.getString("special_notes"));
-        item.setStatus(rs.getString("status"));
+        item.setStatus(rs.getString("item_status"));
         return item;
     }
 }
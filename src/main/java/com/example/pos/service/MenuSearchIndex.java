@@ -0,0 +1,267 @@
+package com.example.pos.service;
+
+import com.example.pos.model.MenuItem;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable in-memory search index over the billing menu.
+ *
+ * Built once per menu load. Names are normalized (lower case, accents and
+ * punctuation removed) and indexed by trigram, word prefix, initials and
+ * category, each as a BitSet of item positions, so a query is a handful of
+ * BitSet intersections rather than a scan of every name. Results keep menu
+ * order.
+ *
+ * Matching, per query word:
+ * - 3+ characters: substring of the name (trigram candidates, then verified)
+ * - 1-2 characters: prefix of a word in the name
+ * - a single 2-4 letter query also matches item initials ("bc" finds Butter Chicken)
+ * If nothing matches, words of 4+ characters are retried allowing one typo
+ * (two for 8+ characters) against word prefixes.
+ */
+public final class MenuSearchIndex {
+
+    private static final MenuSearchIndex EMPTY = new MenuSearchIndex(List.of());
+
+    private final List<MenuItem> items;
+    private final String[] normalizedNames;
+    private final BitSet all;
+    private final Map<String, BitSet> trigrams = new HashMap<>();
+    private final Map<String, BitSet> wordPrefixes = new HashMap<>();
+    private final Map<String, BitSet> initials = new HashMap<>();
+    private final Map<String, BitSet> words = new HashMap<>();
+    private final Map<String, BitSet> categories = new HashMap<>();
+
+    private MenuSearchIndex(List<MenuItem> items) {
+        this.items = List.copyOf(items);
+        this.normalizedNames = new String[this.items.size()];
+        this.all = new BitSet(this.items.size());
+        all.set(0, this.items.size());
+
+        for (int i = 0; i < this.items.size(); i++) {
+            MenuItem item = this.items.get(i);
+            String name = normalize(item.getName());
+            normalizedNames[i] = name;
+
+            for (int j = 0; j + 3 <= name.length(); j++) {
+                String gram = name.substring(j, j + 3);
+                if (gram.indexOf(' ') < 0) {
+                    postings(trigrams, gram).set(i);
+                }
+            }
+
+            StringBuilder letters = new StringBuilder();
+            for (String word : name.split(" ")) {
+                if (word.isEmpty()) {
+                    continue;
+                }
+                postings(words, word).set(i);
+                postings(wordPrefixes, word.substring(0, 1)).set(i);
+                if (word.length() >= 2) {
+                    postings(wordPrefixes, word.substring(0, 2)).set(i);
+                }
+                letters.append(word.charAt(0));
+            }
+            for (int len = 2; len <= letters.length(); len++) {
+                postings(initials, letters.substring(0, len)).set(i);
+            }
+
+            if (item.getCategory() != null) {
+                postings(categories, item.getCategory()).set(i);
+            }
+        }
+    }
+
+    public static MenuSearchIndex build(List<MenuItem> items) {
+        return items.isEmpty() ? EMPTY : new MenuSearchIndex(items);
+    }
+
+    public static MenuSearchIndex empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Items matching the query within a category, in menu order.
+     * A blank query matches everything; a null category means all categories.
+     */
+    public List<MenuItem> search(String query, String category) {
+        BitSet scope = category == null ? all : categories.get(category);
+        if (scope == null) {
+            return List.of();
+        }
+
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return collect(scope);
+        }
+        String[] terms = normalized.split(" ");
+
+        BitSet exact = (BitSet) scope.clone();
+        for (String term : terms) {
+            BitSet matches = matchExact(term);
+            if (terms.length == 1 && term.length() >= 2 && term.length() <= 4) {
+                BitSet byInitials = initials.get(term);
+                if (byInitials != null) {
+                    matches.or(byInitials);
+                }
+            }
+            exact.and(matches);
+            if (exact.isEmpty()) {
+                break;
+            }
+        }
+        if (!exact.isEmpty()) {
+            return collect(exact);
+        }
+
+        // Nothing matched exactly: allow typos in the longer words
+        BitSet fuzzy = (BitSet) scope.clone();
+        boolean anyFuzzy = false;
+        for (String term : terms) {
+            int maxEdits = term.length() >= 8 ? 2 : term.length() >= 4 ? 1 : 0;
+            BitSet matches = matchExact(term);
+            if (maxEdits > 0) {
+                matches.or(matchFuzzy(term, maxEdits));
+                anyFuzzy = true;
+            }
+            fuzzy.and(matches);
+            if (fuzzy.isEmpty()) {
+                break;
+            }
+        }
+        return anyFuzzy ? collect(fuzzy) : List.of();
+    }
+
+    private BitSet matchExact(String term) {
+        if (term.length() <= 2) {
+            BitSet prefixMatches = wordPrefixes.get(term);
+            return prefixMatches != null ? (BitSet) prefixMatches.clone() : new BitSet();
+        }
+
+        BitSet candidates = null;
+        for (int j = 0; j + 3 <= term.length(); j++) {
+            BitSet gramMatches = trigrams.get(term.substring(j, j + 3));
+            if (gramMatches == null) {
+                return new BitSet();
+            }
+            if (candidates == null) {
+                candidates = (BitSet) gramMatches.clone();
+            } else {
+                candidates.and(gramMatches);
+            }
+        }
+        // Trigrams only narrow the candidates; confirm the actual substring
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (!normalizedNames[i].contains(term)) {
+                candidates.clear(i);
+            }
+        }
+        return candidates;
+    }
+
+    private BitSet matchFuzzy(String term, int maxEdits) {
+        BitSet matches = new BitSet();
+        for (Map.Entry<String, BitSet> word : words.entrySet()) {
+            String candidate = word.getKey();
+            if (candidate.length() >= term.length() - maxEdits
+                    && prefixDistance(term, candidate, maxEdits) <= maxEdits) {
+                matches.or(word.getValue());
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Smallest edit distance (with adjacent transpositions) between the term
+     * and any prefix of the word; stops early once it must exceed maxEdits.
+     */
+    static int prefixDistance(String term, String word, int maxEdits) {
+        int cols = Math.min(word.length(), term.length() + maxEdits);
+        int[] previous2 = new int[cols + 1];
+        int[] previous = new int[cols + 1];
+        int[] current = new int[cols + 1];
+        for (int j = 0; j <= cols; j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= term.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char t = term.charAt(i - 1);
+            for (int j = 1; j <= cols; j++) {
+                char w = word.charAt(j - 1);
+                int cost = t == w ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && t == word.charAt(j - 2) && term.charAt(i - 2) == w) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxEdits) {
+                return rowMin;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+
+        int best = Integer.MAX_VALUE;
+        for (int j = 0; j <= cols; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return best;
+    }
+
+    private List<MenuItem> collect(BitSet matches) {
+        List<MenuItem> result = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            result.add(items.get(i));
+        }
+        return result;
+    }
+
+    private static BitSet postings(Map<String, BitSet> index, String key) {
+        return index.computeIfAbsent(key, k -> new BitSet());
+    }
+
+    /**
+     * Lower case, accents stripped, anything other than letters and digits
+     * collapsed to single spaces
+     */
+    static String normalize(String text) {
+        if (text == null || text.isBlank()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                pendingSpace = false;
+                sb.append(Character.toLowerCase(c));
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+}
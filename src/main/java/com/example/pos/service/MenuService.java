@@ -14,6 +14,7 @@ import java.util.Objects;
 import com.example.pos.db.DatabaseConnection;
 import com.example.pos.model.MenuItem;
 import com.example.pos.model.MenuProduct;
+import com.example.pos.util.BoundedCache;
 
 /**
  * Provides JDBC access to menu items and categories.
@@ -23,6 +24,11 @@ public class MenuService {
     private static final List<String> DEFAULT_CATEGORIES = List.of(
             "Beverages", "Main Course", "Snacks", "Desserts", "Starters");
 
+    // Billing menu (5 minutes TTL, refreshed in the background after 1 minute
+    // so edits from other terminals show up); cleared on every menu change here
+    private static final BoundedCache<String, List<MenuItem>> billingMenuCache =
+            new BoundedCache<>("billing-menu", 1, 300000, 60000);
+
     public Map<Long, String> loadCategories() {
         String sql = "SELECT id, name FROM menu_categories ORDER BY name";
         Map<Long, String> categories = new LinkedHashMap<>();
@@ -67,6 +73,11 @@ public class MenuService {
     }
 
     public List<MenuItem> loadMenuItemsForBilling() {
+        // Return copy to prevent modification of the cached list
+        return new ArrayList<>(billingMenuCache.get("all", key -> queryMenuItemsForBilling()));
+    }
+
+    private List<MenuItem> queryMenuItemsForBilling() {
         String sql = """
                 SELECT i.name, i.price, c.name AS category_name, i.image_url, i.quantity
                 FROM menu_items i
@@ -109,6 +120,7 @@ public class MenuService {
             try (PreparedStatement ps = connection.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS)) {
                 ps.setString(1, normalized);
                 ps.executeUpdate();
+                billingMenuCache.clear();
                 try (ResultSet keys = ps.getGeneratedKeys()) {
                     if (keys.next()) {
                         return keys.getLong(1);
@@ -137,6 +149,7 @@ public class MenuService {
             ps.setLong(6, product.getCategoryId());
             ps.setDouble(7, product.getTaxRate());
             ps.executeUpdate();
+            billingMenuCache.clear();
             try (ResultSet keys = ps.getGeneratedKeys()) {
                 if (keys.next()) {
                     return findProductById(connection, keys.getLong(1));
@@ -166,6 +179,7 @@ public class MenuService {
             ps.setDouble(7, product.getTaxRate());
             ps.setLong(8, product.getId());
             ps.executeUpdate();
+            billingMenuCache.clear();
         } catch (SQLException ex) {
             throw new IllegalStateException("Failed to update menu item", ex);
         }
@@ -177,6 +191,7 @@ public class MenuService {
              PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setLong(1, id);
             ps.executeUpdate();
+            billingMenuCache.clear();
         } catch (SQLException ex) {
             throw new IllegalStateException("Failed to delete menu item", ex);
         }
@@ -189,6 +204,7 @@ public class MenuService {
             ps.setString(1, newName.trim());
             ps.setLong(2, categoryId);
             ps.executeUpdate();
+            billingMenuCache.clear();
         } catch (SQLException ex) {
             throw new IllegalStateException("Failed to rename category", ex);
         }
@@ -206,6 +222,7 @@ public class MenuService {
                 psDelete.setLong(1, categoryId);
                 psDelete.executeUpdate();
                 connection.commit();
+                billingMenuCache.clear();
             } catch (SQLException ex) {
                 connection.rollback();
                 throw ex;
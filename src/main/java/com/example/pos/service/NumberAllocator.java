@@ -0,0 +1,470 @@
+package com.example.pos.service;
+
+import com.example.pos.db.DatabaseConnection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out bill and KOT numbers that are unique across terminals.
+ *
+ * Each terminal reserves a block of numbers at a time from a PostgreSQL
+ * sequence (bill_number_seq / kot_number_seq, whose INCREMENT BY is the block
+ * size) and issues them from memory with a single atomic increment, so taking
+ * a number never waits on another terminal or, normally, on the database: the
+ * next block is reserved in the background once the current one is 80% used.
+ *
+ * If no database is reachable, blocks come from a per-terminal range above
+ * OFFLINE_BASE instead, with the reserved high mark saved locally before any
+ * of it is issued. The terminal number comes from -Dpos.terminalId (0-49),
+ * otherwise the shared online database assigns one (50-99, pos_terminals) the
+ * first time the terminal reserves a block there, and it is saved in
+ * ~/.pos/terminal.properties. The two ranges are kept apart so a configured
+ * terminal never shares an offline range with an assigned one. A terminal
+ * with neither cannot issue offline numbers.
+ *
+ * Saved blocks come from one database's sequences, so they are kept in a
+ * file per database URL (~/.pos/number-blocks-<database>.properties); the
+ * offline high marks belong to the terminal and are kept with its id.
+ *
+ * Gaps: on a clean shutdown (close()) the unused rest of the block is saved
+ * and issued first after the next start. After a crash that rest is skipped
+ * and logged as a gap. Numbers are unique and increase per terminal, but are
+ * not gapless and not ordered across terminals.
+ */
+public final class NumberAllocator {
+
+    /** Offline numbers start here; the sequences are kept below it */
+    public static final long OFFLINE_BASE = 900_000_000_000L;
+    private static final long OFFLINE_RANGE_PER_TERMINAL = 1_000_000_000L;
+    private static final long OFFLINE_BLOCK_SIZE = 50;
+    private static final double PREFETCH_AT = 0.8;
+    private static final long DATABASE_RETRY_MS = 60_000;
+
+    private static final int MAX_TERMINALS = 100;
+    // Ids below this are for -Dpos.terminalId; the database assigns the rest
+    private static final int CONFIGURED_TERMINALS = 50;
+
+    private static final Path STATE_DIR = Paths.get(System.getProperty("user.home"), ".pos");
+    private static final Path TERMINAL_FILE = STATE_DIR.resolve("terminal.properties");
+    private static final Object STATE_LOCK = new Object();
+    private static volatile Long terminalId;
+    private static final ExecutorService RESERVER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "number-block-reserver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final NumberAllocator BILLS = new NumberAllocator("bill", "bill_number_seq");
+    private static final NumberAllocator KOTS = new NumberAllocator("kot", "kot_number_seq");
+
+    private final String kind;
+    private final String sequence;
+    private volatile Block current = Block.EXHAUSTED;
+    private CompletableFuture<Block> next; // guarded by this
+    private boolean started; // guarded by this
+    private final Deque<Block> spares = new ArrayDeque<>(); // guarded by this
+    private volatile long offlineUntil;
+
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder reserved = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    private NumberAllocator(String kind, String sequence) {
+        this.kind = kind;
+        this.sequence = sequence;
+    }
+
+    public static NumberAllocator bills() {
+        return BILLS;
+    }
+
+    public static NumberAllocator kots() {
+        return KOTS;
+    }
+
+    /**
+     * Next number. Lock-free except when a block runs out, which waits for
+     * the block being reserved in the background.
+     */
+    public long next() {
+        while (true) {
+            Block block = current;
+            long number = block.next.getAndIncrement();
+            if (number < block.end) {
+                issued.increment();
+                if (number == block.prefetchAt) {
+                    prefetch();
+                }
+                return number;
+            }
+            advance(block);
+        }
+    }
+
+    /**
+     * Save the unused rest of the current block, and any block already
+     * reserved after it, so the next start issues them instead of leaving a
+     * gap. Call once on shutdown.
+     */
+    public synchronized void close() {
+        if (!started) {
+            return; // nothing taken, saved blocks are still on disk
+        }
+        List<Block> unused = new ArrayList<>();
+        Block block = current;
+        // Claim the rest so nothing is issued from it after it is saved
+        long from = block.next.getAndAdd(Math.max(0, block.end - block.next.get()));
+        if (from < block.end) {
+            unused.add(new Block(from, block.end));
+        }
+        unused.addAll(spares);
+        spares.clear();
+        if (next != null && next.isDone() && !next.isCompletedExceptionally()) {
+            unused.add(next.join());
+        }
+        next = null;
+
+        List<String> ranges = new ArrayList<>();
+        long kept = 0;
+        for (Block saved : unused) {
+            ranges.add(saved.start + "," + saved.end);
+            kept += saved.size();
+        }
+        synchronized (STATE_LOCK) {
+            Path blocks = blockFile();
+            Properties state = loadState(blocks);
+            state.remove(kind + ".block");
+            if (ranges.isEmpty()) {
+                state.remove(kind + ".spare");
+            } else {
+                state.setProperty(kind + ".spare", String.join(";", ranges));
+            }
+            storeState(blocks, state);
+        }
+        System.out.printf("✓ %s numbers: %d issued, %d reserved, %d skipped, %d kept for next start%n",
+            kind, issued.sum(), reserved.sum(), skipped.sum(), kept);
+    }
+
+    public AllocatorStats stats() {
+        Block block = current;
+        return new AllocatorStats(issued.sum(), reserved.sum(), skipped.sum(),
+            Math.max(0, block.end - block.next.get()));
+    }
+
+    private synchronized void advance(Block exhausted) {
+        if (current != exhausted) {
+            return; // another thread already moved on
+        }
+        Block block;
+        if (!started) {
+            started = true;
+            spares.addAll(takeSpares());
+        }
+        if (!spares.isEmpty()) {
+            block = spares.poll();
+        } else {
+            if (next == null) {
+                prefetch();
+            }
+            try {
+                block = next.join();
+            } finally {
+                next = null;
+            }
+        }
+        markInUse(block);
+        current = block;
+    }
+
+    private synchronized void prefetch() {
+        if (next == null) {
+            next = CompletableFuture.supplyAsync(this::reserve, RESERVER);
+        }
+    }
+
+    /**
+     * Reserve a block from the database sequence, falling back to the local
+     * offline range
+     */
+    private Block reserve() {
+        if (System.currentTimeMillis() < offlineUntil) {
+            return reserveOffline();
+        }
+        String sql = "SELECT nextval(?::regclass), increment_by FROM pg_sequences WHERE sequencename = ?";
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, sequence);
+            ps.setString(2, sequence);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    Block block = new Block(rs.getLong(1), rs.getLong(1) + rs.getLong(2));
+                    reserved.add(block.size());
+                    registerTerminal(connection);
+                    return block;
+                }
+            }
+            System.err.println("⚠ Sequence " + sequence + " not found; using offline " + kind + " numbers");
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("⚠ Could not reserve " + kind + " numbers from the database ("
+                + e.getMessage() + "); using offline numbers");
+        }
+        // Don't wait on an unreachable database for every block
+        offlineUntil = System.currentTimeMillis() + DATABASE_RETRY_MS;
+        return reserveOffline();
+    }
+
+    private Block reserveOffline() {
+        long base = OFFLINE_BASE + terminalId() * OFFLINE_RANGE_PER_TERMINAL;
+        synchronized (STATE_LOCK) {
+            Properties state = loadState(TERMINAL_FILE);
+            long start = Math.max(base, Long.parseLong(state.getProperty(kind + ".offline.next", "0")));
+            if (start + OFFLINE_BLOCK_SIZE > base + OFFLINE_RANGE_PER_TERMINAL) {
+                throw new IllegalStateException("Offline " + kind + " number range for this terminal is used up");
+            }
+            // Saved before any of the block is issued, so a crash can only skip numbers
+            state.setProperty(kind + ".offline.next", Long.toString(start + OFFLINE_BLOCK_SIZE));
+            if (!storeState(TERMINAL_FILE, state)) {
+                throw new IllegalStateException("Cannot record offline " + kind + " numbers in " + TERMINAL_FILE);
+            }
+            reserved.add(OFFLINE_BLOCK_SIZE);
+            return new Block(start, start + OFFLINE_BLOCK_SIZE);
+        }
+    }
+
+    /**
+     * The blocks saved by the last clean shutdown. A block still marked in use
+     * means the last run ended without close(); its unissued numbers are
+     * unknown and skipped.
+     */
+    private List<Block> takeSpares() {
+        synchronized (STATE_LOCK) {
+            Path blocks = blockFile();
+            Properties state = loadState(blocks);
+            Block crashed = parse(state.getProperty(kind + ".block"));
+            if (crashed != null) {
+                skipped.add(crashed.size());
+                System.err.println("⚠ " + kind + " numbers " + crashed.start + "-" + (crashed.end - 1)
+                    + " were reserved before an unclean shutdown; unused ones are skipped");
+            }
+            List<Block> saved = new ArrayList<>();
+            String ranges = state.getProperty(kind + ".spare", "");
+            for (String range : ranges.split(";")) {
+                Block spare = parse(range.isBlank() ? null : range);
+                if (spare != null) {
+                    saved.add(spare);
+                }
+            }
+            state.remove(kind + ".spare");
+            state.remove(kind + ".block");
+            storeState(blocks, state);
+            return saved;
+        }
+    }
+
+    private void markInUse(Block block) {
+        synchronized (STATE_LOCK) {
+            Path blocks = blockFile();
+            Properties state = loadState(blocks);
+            state.setProperty(kind + ".block", block.start + "," + block.end);
+            storeState(blocks, state);
+        }
+    }
+
+    private static Block parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        String[] parts = value.split(",");
+        try {
+            long start = Long.parseLong(parts[0].trim());
+            long end = Long.parseLong(parts[1].trim());
+            return start < end ? new Block(start, end) : null;
+        } catch (RuntimeException e) {
+            System.err.println("⚠ Ignoring malformed number block '" + value + "'");
+            return null;
+        }
+    }
+
+    /**
+     * This terminal's number: -Dpos.terminalId, else the one the database
+     * assigned earlier. Throws if there is neither, or the configured one is
+     * outside 0-49.
+     */
+    private static long terminalId() {
+        Long known = terminalId;
+        if (known != null) {
+            return known;
+        }
+        Long configured = Long.getLong("pos.terminalId");
+        if (configured != null) {
+            if (configured < 0 || configured >= CONFIGURED_TERMINALS) {
+                throw new IllegalStateException("pos.terminalId must be between 0 and " + (CONFIGURED_TERMINALS - 1)
+                    + "; higher ids are assigned by the database");
+            }
+            terminalId = configured;
+            return configured;
+        }
+        synchronized (STATE_LOCK) {
+            Long saved = savedTerminalId(loadState(TERMINAL_FILE));
+            if (saved != null) {
+                terminalId = saved;
+                return saved;
+            }
+        }
+        throw new IllegalStateException("This terminal has no id for offline numbers; set -Dpos.terminalId "
+            + "or connect to the online database once");
+    }
+
+    /**
+     * Have the shared database assign this terminal an id, unless it already
+     * has one. Skipped on the local database, which every terminal has its
+     * own copy of.
+     */
+    private static void registerTerminal(Connection connection) {
+        if (terminalId != null || Long.getLong("pos.terminalId") != null
+                || DatabaseConnection.isUsingLocalDatabase()) {
+            return;
+        }
+        synchronized (STATE_LOCK) {
+            Properties state = loadState(TERMINAL_FILE);
+            if (savedTerminalId(state) != null) {
+                return; // read by terminalId() when needed
+            }
+            String sql = "INSERT INTO pos_terminals (host_name) VALUES (?) RETURNING id";
+            long id;
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, hostName());
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    id = rs.getLong(1);
+                }
+            } catch (SQLException e) {
+                System.err.println("⚠ Could not register this terminal: " + e.getMessage());
+                return;
+            }
+            state.setProperty("terminal.id", Long.toString(id));
+            if (storeState(TERMINAL_FILE, state)) {
+                terminalId = id;
+                System.out.println("✓ Registered as terminal " + id);
+            }
+        }
+    }
+
+    /**
+     * The id the database assigned, or null if none is saved or it is not
+     * one the database can assign
+     */
+    private static Long savedTerminalId(Properties state) {
+        String saved = state.getProperty("terminal.id");
+        if (saved == null) {
+            return null;
+        }
+        try {
+            long id = Long.parseLong(saved.trim());
+            if (id >= CONFIGURED_TERMINALS && id < MAX_TERMINALS) {
+                return id;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        System.err.println("⚠ Ignoring invalid terminal id '" + saved + "' in " + TERMINAL_FILE);
+        return null;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Saved blocks for the database in use, named after its host, port and
+     * database (never the query string, which may hold credentials)
+     */
+    private static Path blockFile() {
+        String url = DatabaseConnection.getDatabaseUrl();
+        String database = url.replaceFirst("^jdbc:[a-z]+://", "").replaceFirst("\\?.*$", "")
+            .replaceFirst("^[^@/]*@", "");
+        return STATE_DIR.resolve("number-blocks-" + database.replaceAll("[^A-Za-z0-9.-]", "_") + ".properties");
+    }
+
+    private static Properties loadState(Path file) {
+        Properties state = new Properties();
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                state.load(in);
+            } catch (IOException e) {
+                System.err.println("⚠ Could not read " + file + ": " + e.getMessage());
+            }
+        }
+        return state;
+    }
+
+    private static boolean storeState(Path file, Properties state) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                state.store(out, "Bill/KOT number state");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("⚠ Could not write " + file + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Numbers [start, end); next is the next one to issue
+     */
+    private static final class Block {
+        static final Block EXHAUSTED = new Block(0, 0);
+
+        final long start;
+        final long end;
+        final long prefetchAt;
+        final AtomicLong next;
+
+        Block(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.prefetchAt = start + (long) ((end - start) * PREFETCH_AT);
+            this.next = new AtomicLong(start);
+        }
+
+        long size() {
+            return end - start;
+        }
+    }
+
+    /**
+     * Issued and reserved since start; skipped are numbers lost to an unclean
+     * shutdown; remaining is what is left of the current block.
+     */
+    public record AllocatorStats(long issued, long reserved, long skipped, long remaining) {
+    }
+}
@@ -4,7 +4,7 @@ import com.example.pos.db.DatabaseConnection;
 import com.example.pos.model.StaffAttendance;
 import com.example.pos.model.StaffMember;
 import com.example.pos.model.StaffPayrollInfo;
-import com.example.pos.util.SimpleCache;
+import com.example.pos.util.BoundedCache;
 
 import java.sql.*;
 import java.time.LocalDate;
@@ -22,14 +22,56 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class PayrollService {
     
-    // Cache for staff data (5 minutes TTL)
-    private static final SimpleCache<Long, StaffMember> staffCache = new SimpleCache<>(300000);
+    // Cache for payroll calculations (refreshed after 1 minute, 10 minutes TTL,
+    // keyed by staff and month)
+    private static final BoundedCache<String, StaffPayrollInfo> payrollCache =
+        new BoundedCache<>("payroll", 2000, 600000, 60000);
     
-    // Cache for payroll calculations (1 minute TTL)
-    private static final SimpleCache<String, StaffPayrollInfo> payrollCache = new SimpleCache<>(60000);
-    
-    // Cache for all staff list (2 minutes TTL)
-    private static final SimpleCache<String, List<StaffMember>> allStaffCache = new SimpleCache<>(120000);
+    // Cache for all staff list (refreshed after 2 minutes, 10 minutes TTL)
+    private static final BoundedCache<String, List<StaffMember>> allStaffCache =
+        new BoundedCache<>("all_staff", 4, 600000, 120000);
+
+    // Cache for the whole payroll sheet per month (1 minute TTL)
+    private static final BoundedCache<YearMonth, List<StaffPayrollInfo>> payrollSheetCache =
+        new BoundedCache<>("payroll_sheet", 12, 60000);
+
+    /**
+     * Staff details plus their month's attendance, leave and payment totals
+     * and today's status, grouped per table before the join so each staff
+     * row meets at most one row from each. Date ranges (not EXTRACT) keep the
+     * (staff_id, date) unique indexes usable. Callers append the WHERE.
+     */
+    private static final String PAYROLL_SQL = """
+        SELECT s.id, s.name, s.role, s.shift, s.phone, s.email, s.monthly_salary,
+               s.join_date, s.allowed_leaves, s.is_active,
+               COALESCE(a.days_worked, 0) AS days_worked,
+               COALESCE(l.leaves, 0) AS leaves,
+               COALESCE(p.advance, 0) AS advance,
+               t.status AS today_status
+        FROM staff_members s
+        LEFT JOIN (
+            SELECT staff_id, COUNT(*) AS days_worked
+            FROM staff_attendance
+            WHERE attendance_date >= ? AND attendance_date < ?
+              AND status IN ('Present', 'Checked-in')
+            GROUP BY staff_id
+        ) a ON a.staff_id = s.id
+        LEFT JOIN (
+            SELECT staff_id, COUNT(*) AS leaves
+            FROM staff_leave_records
+            WHERE leave_date >= ? AND leave_date < ?
+              AND approved = true
+            GROUP BY staff_id
+        ) l ON l.staff_id = s.id
+        LEFT JOIN (
+            SELECT staff_id, SUM(amount_paid) AS advance
+            FROM staff_salary_payments
+            WHERE payment_month = ?
+            GROUP BY staff_id
+        ) p ON p.staff_id = s.id
+        LEFT JOIN staff_attendance t
+            ON t.staff_id = s.id AND t.attendance_date = CURRENT_DATE
+        """;
 
     // ========== STAFF MANAGEMENT ==========
 
@@ -65,12 +107,11 @@ public class PayrollService {
     }
 
     public List<StaffMember> getAllStaff() throws SQLException {
-        // Check cache first
-        List<StaffMember> cached = allStaffCache.get("all_staff");
-        if (cached != null) {
-            return new ArrayList<>(cached); // Return copy to prevent modification
-        }
-        
+        // Return copy to prevent modification of the cached list
+        return new ArrayList<>(allStaffCache.get("all_staff", key -> loadAllStaff()));
+    }
+
+    private List<StaffMember> loadAllStaff() throws SQLException {
         String sql = """
             SELECT id, name, role, shift, phone, email, monthly_salary, 
                    join_date, allowed_leaves, is_active
@@ -97,13 +138,9 @@ public class PayrollService {
                     rs.getBoolean("is_active")
                 );
                 staffList.add(member);
-                // Cache individual staff member
-                staffCache.put(member.getId(), member);
             }
         }
         
-        // Cache the list
-        allStaffCache.put("all_staff", staffList);
         return staffList;
     }
     
@@ -111,19 +148,19 @@ public class PayrollService {
      * Clear all caches (call after data modifications)
      */
     public void clearCache() {
-        staffCache.clear();
         payrollCache.clear();
         allStaffCache.clear();
+        payrollSheetCache.clear();
     }
     
     /**
      * Clear cache for specific staff member
      */
     public void clearStaffCache(Long staffId) {
-        staffCache.remove(staffId);
         allStaffCache.clear(); // Clear all staff list too
         // Clear payroll cache for this staff
         payrollCache.clear();
+        payrollSheetCache.clear();
     }
 
     // ========== ATTENDANCE MANAGEMENT ==========
@@ -203,20 +240,66 @@ public class PayrollService {
     // ========== SALARY CALCULATIONS ==========
 
     public StaffPayrollInfo calculatePayroll(Long staffId, YearMonth month) throws SQLException {
-        // Check cache first
-        String cacheKey = staffId + "_" + month.toString();
-        StaffPayrollInfo cached = payrollCache.get(cacheKey);
-        if (cached != null) {
-            return cached;
-        }
-        
-        StaffMember staff = getStaffById(staffId);
-        if (staff == null) {
+        return payrollCache.get(staffId + "_" + month, key -> computePayroll(staffId, month));
+    }
+
+    private StaffPayrollInfo computePayroll(Long staffId, YearMonth month) throws SQLException {
+        List<StaffPayrollInfo> payroll = loadPayroll(month, "WHERE s.id = ?", staffId);
+        if (payroll.isEmpty()) {
             throw new SQLException("Staff member not found");
         }
+        return payroll.get(0);
+    }
 
+    /**
+     * Run PAYROLL_SQL with the given filter and derive each row's payroll
+     */
+    private List<StaffPayrollInfo> loadPayroll(YearMonth month, String where, Long staffId) throws SQLException {
+        Date monthStart = Date.valueOf(month.atDay(1));
+        Date nextMonthStart = Date.valueOf(month.plusMonths(1).atDay(1));
+
+        List<StaffPayrollInfo> payrollList = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(PAYROLL_SQL + where + " ORDER BY s.name")) {
+            ps.setDate(1, monthStart);
+            ps.setDate(2, nextMonthStart);
+            ps.setDate(3, monthStart);
+            ps.setDate(4, nextMonthStart);
+            ps.setString(5, month.toString());
+            if (staffId != null) {
+                ps.setLong(6, staffId);
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    StaffMember staff = new StaffMember(
+                        rs.getLong("id"),
+                        rs.getString("name"),
+                        rs.getString("role"),
+                        rs.getString("shift"),
+                        rs.getString("phone"),
+                        rs.getString("email"),
+                        rs.getDouble("monthly_salary"),
+                        rs.getDate("join_date").toLocalDate(),
+                        rs.getInt("allowed_leaves"),
+                        rs.getBoolean("is_active")
+                    );
+                    String status = rs.getString("today_status");
+                    payrollList.add(buildPayroll(staff, month,
+                        rs.getInt("days_worked"),
+                        rs.getInt("leaves"),
+                        rs.getDouble("advance"),
+                        status != null ? status : "Not Checked-in"));
+                }
+            }
+        }
+        return payrollList;
+    }
+
+    private static StaffPayrollInfo buildPayroll(StaffMember staff, YearMonth month, int daysWorked,
+                                                 int leavesUsed, double advancePaid, String status) {
         StaffPayrollInfo payroll = new StaffPayrollInfo();
-        payroll.setStaffId(staffId);
+        payroll.setStaffId(staff.getId());
         payroll.setName(staff.getName());
         payroll.setRole(staff.getRole());
         payroll.setShift(staff.getShift());
@@ -224,10 +307,8 @@ public class PayrollService {
         payroll.setJoinDate(staff.getJoinDate());
         payroll.setAllowedLeaves(staff.getAllowedLeaves());
 
-        // Calculate days worked
-        int daysWorked = countDaysWorked(staffId, month);
         int totalDaysInMonth = month.lengthOfMonth();
-        
+
         // Adjust if joined mid-month
         LocalDate monthStart = month.atDay(1);
         LocalDate monthEnd = month.atEndOfMonth();
@@ -237,9 +318,6 @@ public class PayrollService {
 
         payroll.setDaysWorked(daysWorked);
         payroll.setTotalDaysInMonth(totalDaysInMonth);
-
-        // Calculate leaves
-        int leavesUsed = countLeaves(staffId, month);
         payroll.setLeavesUsed(leavesUsed);
 
         // Calculate earned salary (daily rate * days worked)
@@ -247,151 +325,16 @@ public class PayrollService {
         double earnedSalary = dailyRate * daysWorked;
         payroll.setEarnedSalary(earnedSalary);
 
-        // Get advance paid
-        double advancePaid = getAdvancePaid(staffId, month);
         payroll.setAdvancePaid(advancePaid);
 
         // Calculate pending salary
-        double pendingSalary = earnedSalary - advancePaid;
-        payroll.setPendingSalary(pendingSalary);
+        payroll.setPendingSalary(earnedSalary - advancePaid);
 
-        // Get current status
-        String status = getTodayStatus(staffId);
         payroll.setStatus(status);
 
-        // Cache the result
-        payrollCache.put(cacheKey, payroll);
-        
         return payroll;
     }
 
-    private StaffMember getStaffById(Long staffId) throws SQLException {
-        // Check cache first
-        StaffMember cached = staffCache.get(staffId);
-        if (cached != null) {
-            return cached;
-        }
-        
-        String sql = """
-            SELECT id, name, role, shift, phone, email, monthly_salary, 
-                   join_date, allowed_leaves, is_active
-            FROM staff_members
-            WHERE id = ?
-            """;
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, staffId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    StaffMember member = new StaffMember(
-                        rs.getLong("id"),
-                        rs.getString("name"),
-                        rs.getString("role"),
-                        rs.getString("shift"),
-                        rs.getString("phone"),
-                        rs.getString("email"),
-                        rs.getDouble("monthly_salary"),
-                        rs.getDate("join_date").toLocalDate(),
-                        rs.getInt("allowed_leaves"),
-                        rs.getBoolean("is_active")
-                    );
-                    // Cache it
-                    staffCache.put(staffId, member);
-                    return member;
-                }
-            }
-        }
-        return null;
-    }
-
-    private int countDaysWorked(Long staffId, YearMonth month) throws SQLException {
-        String sql = """
-            SELECT COUNT(*) as days
-            FROM staff_attendance
-            WHERE staff_id = ? 
-              AND EXTRACT(YEAR FROM attendance_date) = ?
-              AND EXTRACT(MONTH FROM attendance_date) = ?
-              AND status IN ('Present', 'Checked-in')
-            """;
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, staffId);
-            ps.setInt(2, month.getYear());
-            ps.setInt(3, month.getMonthValue());
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("days");
-                }
-            }
-        }
-        return 0;
-    }
-
-    private int countLeaves(Long staffId, YearMonth month) throws SQLException {
-        String sql = """
-            SELECT COUNT(*) as leaves
-            FROM staff_leave_records
-            WHERE staff_id = ? 
-              AND EXTRACT(YEAR FROM leave_date) = ?
-              AND EXTRACT(MONTH FROM leave_date) = ?
-              AND approved = true
-            """;
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, staffId);
-            ps.setInt(2, month.getYear());
-            ps.setInt(3, month.getMonthValue());
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("leaves");
-                }
-            }
-        }
-        return 0;
-    }
-
-    private double getAdvancePaid(Long staffId, YearMonth month) throws SQLException {
-        String sql = """
-            SELECT COALESCE(SUM(amount_paid), 0) as total
-            FROM staff_salary_payments
-            WHERE staff_id = ? AND payment_month = ?
-            """;
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, staffId);
-            ps.setString(2, month.toString());
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getDouble("total");
-                }
-            }
-        }
-        return 0.0;
-    }
-
-    private String getTodayStatus(Long staffId) throws SQLException {
-        String sql = """
-            SELECT status
-            FROM staff_attendance
-            WHERE staff_id = ? AND attendance_date = CURRENT_DATE
-            """;
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, staffId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getString("status");
-                }
-            }
-        }
-        return "Not Checked-in";
-    }
-
     // ========== SALARY PAYMENT ==========
 
     public void recordSalaryPayment(Long staffId, double amount, String paymentType, 
@@ -435,16 +378,18 @@ public class PayrollService {
         }
     }
 
+    /**
+     * Payroll for every active staff member from one grouped query
+     */
     public List<StaffPayrollInfo> getAllPayrollInfo(YearMonth month) throws SQLException {
-        List<StaffMember> allStaff = getAllStaff();
-        List<StaffPayrollInfo> payrollList = new ArrayList<>();
-        
-        for (StaffMember staff : allStaff) {
-            if (staff.isActive()) {
-                payrollList.add(calculatePayroll(staff.getId(), month));
-            }
+        return new ArrayList<>(payrollSheetCache.get(month, this::loadPayrollSheet));
+    }
+
+    private List<StaffPayrollInfo> loadPayrollSheet(YearMonth month) throws SQLException {
+        List<StaffPayrollInfo> payrollList = loadPayroll(month, "WHERE s.is_active", null);
+        for (StaffPayrollInfo payroll : payrollList) {
+            payrollCache.put(payroll.getStaffId() + "_" + month, payroll);
         }
-        
         return payrollList;
     }
 
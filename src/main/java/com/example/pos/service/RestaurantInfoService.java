@@ -2,6 +2,7 @@ package com.example.pos.service;
 
 import com.example.pos.db.DatabaseConnection;
 import com.example.pos.model.RestaurantInfo;
+import com.example.pos.util.BoundedCache;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -10,8 +11,21 @@ import java.sql.SQLException;
 
 public class RestaurantInfoService {
 
+    // Current details (5 minutes TTL); cleared on save
+    private static final BoundedCache<String, RestaurantInfo> infoCache =
+        new BoundedCache<>("restaurant-info", 1, 300000);
+
+    /**
+     * Latest saved details, or null if none are saved yet (a null result is
+     * not cached)
+     */
     public RestaurantInfo getRestaurantInfo() {
-        String sql = "SELECT * FROM restaurant_info LIMIT 1";
+        return infoCache.get("current", key -> loadRestaurantInfo());
+    }
+
+    private RestaurantInfo loadRestaurantInfo() {
+        // Saves insert a new row, so the latest one is current
+        String sql = "SELECT * FROM restaurant_info ORDER BY updated_at DESC, id DESC LIMIT 1";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
@@ -36,6 +50,10 @@ public class RestaurantInfoService {
         return null;
     }
 
+    /**
+     * Insert or update the restaurant details. Throws IllegalStateException
+     * if they could not be saved.
+     */
     public void saveRestaurantInfo(RestaurantInfo info) {
         String sql = """
             INSERT INTO restaurant_info (name, address, city, state, pin_code, contact_number, email, website, gstin, fssai_license, logo_path)
@@ -69,6 +87,7 @@ public class RestaurantInfoService {
             ps.setString(10, info.getFssaiLicense());
             ps.setString(11, info.getLogoPath());
             ps.executeUpdate();
+            infoCache.clear();
         } catch (SQLException e) {
             throw new IllegalStateException("Failed to save restaurant info", e);
         }
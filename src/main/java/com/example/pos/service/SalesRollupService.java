@@ -0,0 +1,125 @@
+package com.example.pos.service;
+
+import com.example.pos.db.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Maintains the sales_daily_rollup and sales_hourly_rollup aggregates.
+ *
+ * Each sale is folded into both tables inside the transaction that records it,
+ * keyed by day (or hour), payment method and order type, so the dashboard can
+ * read a handful of pre-aggregated rows instead of scanning sales.
+ * Buckets use the session time zone, the same as the rebuild queries.
+ */
+public class SalesRollupService {
+
+    private static final String DAILY_UPSERT = """
+        INSERT INTO sales_daily_rollup
+            (sale_date, payment_method, order_type, order_count, subtotal, tax, total)
+        SELECT created_at::date, COALESCE(payment_method, ''), COALESCE(order_type, ''),
+               1, subtotal, tax, total
+        FROM sales
+        WHERE id = ?
+        ON CONFLICT (sale_date, payment_method, order_type) DO UPDATE SET
+            order_count = sales_daily_rollup.order_count + EXCLUDED.order_count,
+            subtotal    = sales_daily_rollup.subtotal + EXCLUDED.subtotal,
+            tax         = sales_daily_rollup.tax + EXCLUDED.tax,
+            total       = sales_daily_rollup.total + EXCLUDED.total
+        """;
+
+    private static final String HOURLY_UPSERT = """
+        INSERT INTO sales_hourly_rollup
+            (sale_hour, payment_method, order_type, order_count, subtotal, tax, total)
+        SELECT date_trunc('hour', created_at), COALESCE(payment_method, ''), COALESCE(order_type, ''),
+               1, subtotal, tax, total
+        FROM sales
+        WHERE id = ?
+        ON CONFLICT (sale_hour, payment_method, order_type) DO UPDATE SET
+            order_count = sales_hourly_rollup.order_count + EXCLUDED.order_count,
+            subtotal    = sales_hourly_rollup.subtotal + EXCLUDED.subtotal,
+            tax         = sales_hourly_rollup.tax + EXCLUDED.tax,
+            total       = sales_hourly_rollup.total + EXCLUDED.total
+        """;
+
+    /**
+     * Add a freshly inserted sale to the rollups. Must run on the connection
+     * (and transaction) that inserted the sale.
+     */
+    public void applySale(Connection connection, long saleId) throws SQLException {
+        try (PreparedStatement daily = connection.prepareStatement(DAILY_UPSERT);
+             PreparedStatement hourly = connection.prepareStatement(HOURLY_UPSERT)) {
+            daily.setLong(1, saleId);
+            daily.executeUpdate();
+            hourly.setLong(1, saleId);
+            hourly.executeUpdate();
+        }
+    }
+
+    /**
+     * Recompute both rollups from the full sales history.
+     * Sales inserts are blocked until the rebuild commits so no sale is
+     * counted twice or missed.
+     */
+    public void rebuild() throws SQLException {
+        DatabaseConnection.executeInTransaction(connection -> {
+            rebuild(connection);
+            return null;
+        });
+    }
+
+    /**
+     * Rebuild only if the rollups are empty but sales exist, e.g. the first
+     * start after the rollup tables were added to an existing database.
+     * Runs on the caller's connection, which must be in a transaction: sales
+     * are locked before the check, so no sale lands between it and the
+     * rebuild.
+     */
+    public void rebuildIfEmpty(Connection connection) throws SQLException {
+        String sql = """
+            SELECT EXISTS (SELECT 1 FROM sales)
+               AND NOT EXISTS (SELECT 1 FROM sales_daily_rollup)
+            """;
+        try (Statement st = connection.createStatement()) {
+            lockSales(st);
+            try (ResultSet rs = st.executeQuery(sql)) {
+                if (!rs.next() || !rs.getBoolean(1)) {
+                    return;
+                }
+            }
+        }
+        rebuild(connection);
+    }
+
+    private static void lockSales(Statement st) throws SQLException {
+        st.execute("LOCK TABLE sales IN SHARE MODE");
+    }
+
+    private void rebuild(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            lockSales(st);
+            st.execute("DELETE FROM sales_daily_rollup");
+            st.execute("DELETE FROM sales_hourly_rollup");
+            st.execute("""
+                INSERT INTO sales_daily_rollup
+                    (sale_date, payment_method, order_type, order_count, subtotal, tax, total)
+                SELECT created_at::date, COALESCE(payment_method, ''), COALESCE(order_type, ''),
+                       COUNT(*), SUM(subtotal), SUM(tax), SUM(total)
+                FROM sales
+                GROUP BY 1, 2, 3
+                """);
+            st.execute("""
+                INSERT INTO sales_hourly_rollup
+                    (sale_hour, payment_method, order_type, order_count, subtotal, tax, total)
+                SELECT date_trunc('hour', created_at), COALESCE(payment_method, ''), COALESCE(order_type, ''),
+                       COUNT(*), SUM(subtotal), SUM(tax), SUM(total)
+                FROM sales
+                GROUP BY 1, 2, 3
+                """);
+        }
+    }
+}
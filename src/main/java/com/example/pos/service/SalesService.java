@@ -1,11 +1,13 @@
 package com.example.pos.service;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -20,7 +22,17 @@ import com.example.pos.model.Transaction;
  */
 public class SalesService {
 
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final String SALE_ROW_SELECT = """
+            SELECT id, bill_number, created_at, customer_name, order_type, payment_method,
+                   status, table_name, subtotal, tax, total
+            FROM sales
+            WHERE TRUE
+            """;
+
     private final InventoryService inventoryService = new InventoryService();
+    private final SalesRollupService rollupService = new SalesRollupService();
 
     public long recordSale(SaleRequest request) {
         Objects.requireNonNull(request, "Sale request required");
@@ -28,8 +40,13 @@ public class SalesService {
             return DatabaseConnection.executeInTransaction(connection -> {
                 long saleId = insertSale(connection, request);
                 insertSaleItems(connection, saleId, request.items());
+                rollupService.applySale(connection, saleId);
                 if (request.retailAdjustments() != null && !request.retailAdjustments().isEmpty()) {
-                    inventoryService.decrementStock(connection, request.retailAdjustments());
+                    List<String> outOfStock = inventoryService.decrementStock(connection, request.retailAdjustments());
+                    if (!outOfStock.isEmpty()) {
+                        // Rolls the whole sale back
+                        throw new IllegalStateException("Insufficient stock for " + String.join(", ", outOfStock));
+                    }
                 }
                 return saleId;
             });
@@ -38,9 +55,16 @@ public class SalesService {
         }
     }
 
-    public List<Transaction> loadTransactions() {
-        String sql = """
-                SELECT bill_number,
+    /**
+     * Load one page of sales history, newest first, with the filters applied in SQL.
+     * Paging is keyset-based on (created_at, id): pass the cursor returned with the
+     * previous page (or null for the first page), so each page costs an index range
+     * scan regardless of how deep the user has scrolled.
+     */
+    public TransactionPage loadTransactionPage(TransactionFilter filter, PageCursor after, int pageSize) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT id,
+                       bill_number,
                        customer_name,
                        order_type,
                        total,
@@ -48,28 +72,213 @@ public class SalesService {
                        status,
                        created_at
                 FROM sales
-                ORDER BY created_at DESC
-                """;
+                WHERE TRUE
+                """);
+        List<Object> params = new ArrayList<>();
+        appendFilter(sql, params, filter);
+        if (after != null) {
+            sql.append(" AND (created_at, id) < (?, ?)");
+            params.add(Timestamp.valueOf(after.createdAt()));
+            params.add(after.id());
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        params.add(pageSize + 1); // one extra row tells us whether another page exists
+
         List<Transaction> transactions = new ArrayList<>();
         try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement ps = connection.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                Timestamp timestamp = rs.getTimestamp("created_at");
-                LocalDateTime createdAt = timestamp != null ? timestamp.toLocalDateTime() : LocalDateTime.now();
-                transactions.add(new Transaction(
-                        String.valueOf(rs.getLong("bill_number")),
-                        createdAt,
-                        rs.getString("customer_name"),
-                        rs.getString("order_type"),
-                        (int) Math.round(rs.getDouble("total")),
-                        rs.getString("payment_method"),
-                        rs.getString("status")));
+             PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    transactions.add(mapTransaction(rs));
+                }
             }
         } catch (SQLException ex) {
             throw new IllegalStateException("Failed to load sales history", ex);
         }
-        return transactions;
+
+        PageCursor next = null;
+        if (transactions.size() > pageSize) {
+            transactions.remove(pageSize);
+            Transaction last = transactions.get(pageSize - 1);
+            next = new PageCursor(last.getDateTime(), last.getId());
+        }
+        return new TransactionPage(transactions, next);
+    }
+
+    /**
+     * Stream every sale matching the filter, newest first, to the sink.
+     * Uses a server-side cursor (autocommit off, fetch size set) so only one
+     * fetch batch is held in memory regardless of how many rows match.
+     * Returns the number of rows streamed.
+     */
+    public int streamSales(TransactionFilter filter, SaleRowSink sink) throws SQLException, IOException {
+        StringBuilder sql = new StringBuilder(SALE_ROW_SELECT);
+        List<Object> params = new ArrayList<>();
+        appendFilter(sql, params, filter);
+        sql.append(" ORDER BY created_at DESC, id DESC");
+
+        int[] count = {0};
+        streamQuery(sql.toString(), params, rs -> {
+            sink.accept(mapSaleRow(rs));
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    /**
+     * Stream sales matching the filter together with their line items, newest
+     * first. Sales and items come from one joined cursor; rows are grouped per
+     * bill as they arrive, so only the current bill's items are held in memory.
+     * Returns the number of sales streamed.
+     */
+    public int streamSalesWithItems(TransactionFilter filter, SaleWithItemsSink sink) throws SQLException, IOException {
+        StringBuilder sql = new StringBuilder("WITH s AS (").append(SALE_ROW_SELECT);
+        List<Object> params = new ArrayList<>();
+        appendFilter(sql, params, filter);
+        sql.append("""
+                )
+                SELECT s.*, si.id AS item_id, si.name AS item_name, si.quantity AS item_quantity,
+                       si.price AS item_price, si.total AS item_total
+                FROM s
+                LEFT JOIN sale_items si ON si.sale_id = s.id
+                ORDER BY s.created_at DESC, s.id DESC, si.id
+                """);
+
+        int[] count = {0};
+        SaleRow[] current = {null};
+        List<SaleItem> items = new ArrayList<>();
+        streamQuery(sql.toString(), params, rs -> {
+            long saleId = rs.getLong("id");
+            if (current[0] == null || current[0].id() != saleId) {
+                if (current[0] != null) {
+                    sink.accept(current[0], List.copyOf(items));
+                    count[0]++;
+                }
+                current[0] = mapSaleRow(rs);
+                items.clear();
+            }
+            rs.getLong("item_id");
+            if (!rs.wasNull()) {
+                items.add(new SaleItem(
+                        rs.getString("item_name"),
+                        rs.getInt("item_quantity"),
+                        rs.getDouble("item_price"),
+                        rs.getDouble("item_total")));
+            }
+        });
+        if (current[0] != null) {
+            sink.accept(current[0], List.copyOf(items));
+            count[0]++;
+        }
+        return count[0];
+    }
+
+    /**
+     * Count sales matching the filter, e.g. to report export progress
+     */
+    public int countSales(TransactionFilter filter) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM sales WHERE TRUE");
+        List<Object> params = new ArrayList<>();
+        appendFilter(sql, params, filter);
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private void streamQuery(String sql, List<Object> params, RowHandler handler) throws SQLException, IOException {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            boolean originalAutoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false); // required for the driver to use a cursor
+            try (PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(STREAM_FETCH_SIZE);
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        handler.handle(rs);
+                    }
+                }
+            } finally {
+                connection.rollback(); // read-only; just close the transaction
+                connection.setAutoCommit(originalAutoCommit);
+            }
+        }
+    }
+
+    private SaleRow mapSaleRow(ResultSet rs) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp("created_at");
+        return new SaleRow(
+                rs.getLong("id"),
+                rs.getLong("bill_number"),
+                timestamp != null ? timestamp.toLocalDateTime() : null,
+                rs.getString("customer_name"),
+                rs.getString("order_type"),
+                rs.getString("payment_method"),
+                rs.getString("status"),
+                rs.getString("table_name"),
+                rs.getDouble("subtotal"),
+                rs.getDouble("tax"),
+                rs.getDouble("total"));
+    }
+
+    /**
+     * Append the WHERE conditions for a filter. Date bounds are half-open
+     * timestamp ranges so they can use the created_at index.
+     */
+    static void appendFilter(StringBuilder sql, List<Object> params, TransactionFilter filter) {
+        if (filter == null) {
+            return;
+        }
+        if (filter.search() != null && !filter.search().isBlank()) {
+            String pattern = "%" + filter.search().trim().toLowerCase()
+                    .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            sql.append(" AND (CAST(bill_number AS TEXT) LIKE ? OR LOWER(customer_name) LIKE ?)");
+            params.add(pattern);
+            params.add(pattern);
+        }
+        if (filter.from() != null) {
+            sql.append(" AND created_at >= ?");
+            params.add(Timestamp.valueOf(filter.from().atStartOfDay()));
+        }
+        if (filter.to() != null) {
+            sql.append(" AND created_at < ?");
+            params.add(Timestamp.valueOf(filter.to().plusDays(1).atStartOfDay()));
+        }
+        if (filter.paymentMode() != null && !filter.paymentMode().equals("All")) {
+            sql.append(" AND payment_method = ?");
+            params.add(filter.paymentMode());
+        }
+        if (filter.status() != null && !filter.status().equals("All")) {
+            sql.append(" AND status = ?");
+            params.add(filter.status());
+        }
+    }
+
+    private Transaction mapTransaction(ResultSet rs) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp("created_at");
+        LocalDateTime createdAt = timestamp != null ? timestamp.toLocalDateTime() : LocalDateTime.now();
+        Transaction transaction = new Transaction(
+                String.valueOf(rs.getLong("bill_number")),
+                createdAt,
+                rs.getString("customer_name"),
+                rs.getString("order_type"),
+                (int) Math.round(rs.getDouble("total")),
+                rs.getString("payment_method"),
+                rs.getString("status"));
+        transaction.setId(rs.getLong("id"));
+        return transaction;
     }
 
     private long insertSale(Connection connection, SaleRequest request) throws SQLException {
@@ -125,6 +334,47 @@ public class SalesService {
         }
     }
 
+    public record TransactionFilter(String search,
+                                    LocalDate from,
+                                    LocalDate to,
+                                    String paymentMode,
+                                    String status) {
+    }
+
+    public record PageCursor(LocalDateTime createdAt, long id) {
+    }
+
+    public record TransactionPage(List<Transaction> transactions, PageCursor next) {
+    }
+
+    public record SaleRow(long id,
+                          long billNumber,
+                          LocalDateTime createdAt,
+                          String customerName,
+                          String orderType,
+                          String paymentMethod,
+                          String status,
+                          String tableName,
+                          double subtotal,
+                          double tax,
+                          double total) {
+    }
+
+    @FunctionalInterface
+    public interface SaleRowSink {
+        void accept(SaleRow row) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface SaleWithItemsSink {
+        void accept(SaleRow row, List<SaleItem> items) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        void handle(ResultSet rs) throws SQLException, IOException;
+    }
+
     public record SaleItem(String name, int quantity, double price, double total) {
     }
 
@@ -11,7 +11,9 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import com.example.pos.db.DatabaseConnection;
@@ -19,6 +21,7 @@ import com.example.pos.model.TableFormData;
 import com.example.pos.model.TableModel;
 import com.example.pos.model.TableSession;
 import com.example.pos.model.TableSessionItem;
+import com.example.pos.util.BoundedCache;
 
 /**
  * Encapsulates PostgreSQL access for table metadata and live sessions.
@@ -27,6 +30,11 @@ public class TableService {
 
     private static final DateTimeFormatter DISPLAY_TIME = DateTimeFormatter.ofPattern("HH:mm");
 
+    // Table names for pickers (5 minutes TTL, background refresh after 1 minute);
+    // cleared when tables are created, updated or deleted here
+    private static final BoundedCache<String, List<String>> tableNamesCache =
+            new BoundedCache<>("table-names", 1, 300000, 60000);
+
     public List<TableModel> loadTables() {
         String sql = """
                 SELECT t.id,
@@ -57,6 +65,11 @@ public class TableService {
     }
 
     public List<String> loadTableNames() {
+        // Return copy to prevent modification of the cached list
+        return new ArrayList<>(tableNamesCache.get("all", key -> queryTableNames()));
+    }
+
+    private List<String> queryTableNames() {
         String sql = "SELECT name FROM restaurant_tables ORDER BY name";
         List<String> names = new ArrayList<>();
         try (Connection connection = DatabaseConnection.getConnection();
@@ -88,6 +101,7 @@ public class TableService {
             ps.setTimestamp(6, Timestamp.from(now));
             ps.setTimestamp(7, Timestamp.from(now));
             ps.executeUpdate();
+            tableNamesCache.clear();
             try (ResultSet keys = ps.getGeneratedKeys()) {
                 if (keys.next()) {
                     long id = keys.getLong(1);
@@ -118,6 +132,7 @@ public class TableService {
             ps.setTimestamp(6, Timestamp.from(Instant.now()));
             ps.setLong(7, Long.parseLong(id));
             ps.executeUpdate();
+            tableNamesCache.clear();
         } catch (SQLException ex) {
             throw new IllegalStateException("Failed to update table", ex);
         }
@@ -141,6 +156,7 @@ public class TableService {
                 psTable.setLong(1, tableId);
                 psTable.executeUpdate();
                 connection.commit();
+                tableNamesCache.clear();
             } catch (SQLException ex) {
                 connection.rollback();
                 throw ex;
@@ -161,7 +177,8 @@ public class TableService {
                        ts.payment_method,
                        ts.order_type,
                        ts.status,
-                       ts.updated_at
+                       ts.updated_at,
+                       ts.version
                 FROM restaurant_tables t
                 LEFT JOIN table_sessions ts ON ts.table_id = t.id
                 WHERE t.id = ?
@@ -195,42 +212,77 @@ public class TableService {
                         rs.getString("order_type"),
                         items,
                         rs.getString("status"),
-                        updatedAt);
+                        updatedAt,
+                        rs.getLong("version"));
             }
         } catch (SQLException ex) {
             throw new IllegalStateException("Failed to load table session", ex);
         }
     }
 
-    public void saveSession(TableSession session) {
+    /**
+     * Save a session as a diff against the state it was based on.
+     *
+     * The session row is only updated if its version is still expectedVersion
+     * (0 meaning no session is stored yet); otherwise another terminal changed
+     * it and SessionConflictException is thrown with nothing written. Item
+     * lines are compared with persistedItems, the lines stored at that
+     * version: only added or changed lines are upserted and removed lines
+     * deleted, each as one batch. Returns the new version.
+     */
+    public long saveSession(TableSession session, long expectedVersion, List<TableSessionItem> persistedItems) {
         Objects.requireNonNull(session, "Table session required");
-        String upsert = """
-                INSERT INTO table_sessions (table_id, bill_label, customer_name, payment_method, order_type, status, updated_at)
-                VALUES (?, ?, ?, ?, ?, ?, ?)
-                ON CONFLICT (table_id)
-                DO UPDATE SET bill_label = EXCLUDED.bill_label,
-                              customer_name = EXCLUDED.customer_name,
-                              payment_method = EXCLUDED.payment_method,
-                              order_type = EXCLUDED.order_type,
-                              status = EXCLUDED.status,
-                              updated_at = EXCLUDED.updated_at
+        String insert = """
+                INSERT INTO table_sessions (table_id, bill_label, customer_name, payment_method, order_type, status, updated_at, version)
+                VALUES (?, ?, ?, ?, ?, ?, ?, 1)
+                ON CONFLICT (table_id) DO NOTHING
                 """;
+        String update = """
+                UPDATE table_sessions
+                SET bill_label = ?, customer_name = ?, payment_method = ?, order_type = ?, status = ?, updated_at = ?,
+                    version = version + 1
+                WHERE table_id = ? AND version = ?
+                """;
+        long tableId = Long.parseLong(session.getTableId());
         try (Connection connection = DatabaseConnection.getConnection()) {
             connection.setAutoCommit(false);
-            try (PreparedStatement ps = connection.prepareStatement(upsert)) {
-                long tableId = Long.parseLong(session.getTableId());
-                ps.setLong(1, tableId);
-                ps.setString(2, session.getBillLabel());
-                ps.setString(3, session.getCustomerName());
-                ps.setString(4, session.getPaymentMethod());
-                ps.setString(5, session.getOrderType());
-                ps.setString(6, session.getStatus());
-                ps.setObject(7, session.getUpdatedAt());
-                ps.executeUpdate();
-                replaceSessionItems(connection, tableId, session.getItems());
+            try {
+                int updated;
+                try (PreparedStatement ps = connection.prepareStatement(expectedVersion == 0 ? insert : update)) {
+                    int i = 1;
+                    if (expectedVersion == 0) {
+                        ps.setLong(i++, tableId);
+                    }
+                    ps.setString(i++, session.getBillLabel());
+                    ps.setString(i++, session.getCustomerName());
+                    ps.setString(i++, session.getPaymentMethod());
+                    ps.setString(i++, session.getOrderType());
+                    ps.setString(i++, session.getStatus());
+                    ps.setObject(i++, session.getUpdatedAt());
+                    if (expectedVersion != 0) {
+                        ps.setLong(i++, tableId);
+                        ps.setLong(i, expectedVersion);
+                    }
+                    updated = ps.executeUpdate();
+                }
+                if (updated == 0) {
+                    throw new SessionConflictException(session.getTableId());
+                }
+
+                if (expectedVersion == 0) {
+                    // New session: drop any lines left without a session row
+                    try (PreparedStatement ps = connection.prepareStatement(
+                            "DELETE FROM table_session_items WHERE table_id = ?")) {
+                        ps.setLong(1, tableId);
+                        ps.executeUpdate();
+                    }
+                    persistedItems = List.of();
+                }
+                applyItemChanges(connection, tableId, persistedItems, session.getItems());
                 updateTableStatus(connection, tableId, "Occupied");
                 connection.commit();
-            } catch (SQLException ex) {
+                return expectedVersion + 1;
+            } catch (SQLException | RuntimeException ex) {
                 connection.rollback();
                 throw ex;
             } finally {
@@ -333,6 +385,7 @@ public class TableService {
                 SELECT item_name, quantity, price
                 FROM table_session_items
                 WHERE table_id = ?
+                ORDER BY position
                 """;
         List<TableSessionItem> items = new ArrayList<>();
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
@@ -349,23 +402,84 @@ public class TableService {
         return items;
     }
 
-    private void replaceSessionItems(Connection connection, long tableId, List<TableSessionItem> items) throws SQLException {
-        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM table_session_items WHERE table_id = ?");
-             PreparedStatement insert = connection.prepareStatement(
-                     "INSERT INTO table_session_items (table_id, item_name, quantity, price) VALUES (?, ?, ?, ?)")) {
-            delete.setLong(1, tableId);
-            delete.executeUpdate();
-            if (items == null) {
-                return;
+    /**
+     * Upsert added and changed lines and delete removed ones. Lines are keyed
+     * by item name; position keeps the order they were added in.
+     */
+    private void applyItemChanges(Connection connection, long tableId,
+                                  List<TableSessionItem> before, List<TableSessionItem> after) throws SQLException {
+        Map<String, StoredLine> previous = toLines(before);
+        Map<String, StoredLine> current = toLines(after);
+
+        List<String> removed = new ArrayList<>();
+        for (String name : previous.keySet()) {
+            if (!current.containsKey(name)) {
+                removed.add(name);
             }
-            for (TableSessionItem item : items) {
-                insert.setLong(1, tableId);
-                insert.setString(2, item.name());
-                insert.setInt(3, item.quantity());
-                insert.setDouble(4, item.price());
-                insert.addBatch();
+        }
+        if (!removed.isEmpty()) {
+            try (PreparedStatement delete = connection.prepareStatement(
+                    "DELETE FROM table_session_items WHERE table_id = ? AND item_name = ANY (?)")) {
+                delete.setLong(1, tableId);
+                delete.setArray(2, connection.createArrayOf("text", removed.toArray()));
+                delete.executeUpdate();
             }
-            insert.executeBatch();
+        }
+
+        String upsertSql = """
+                INSERT INTO table_session_items (table_id, item_name, quantity, price, position)
+                VALUES (?, ?, ?, ?, ?)
+                ON CONFLICT (table_id, item_name)
+                DO UPDATE SET quantity = EXCLUDED.quantity, price = EXCLUDED.price, position = EXCLUDED.position
+                """;
+        try (PreparedStatement upsert = connection.prepareStatement(upsertSql)) {
+            int changed = 0;
+            for (Map.Entry<String, StoredLine> entry : current.entrySet()) {
+                StoredLine line = entry.getValue();
+                if (line.equals(previous.get(entry.getKey()))) {
+                    continue;
+                }
+                upsert.setLong(1, tableId);
+                upsert.setString(2, entry.getKey());
+                upsert.setInt(3, line.quantity());
+                upsert.setDouble(4, line.price());
+                upsert.setInt(5, line.position());
+                upsert.addBatch();
+                changed++;
+            }
+            if (changed > 0) {
+                upsert.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * One line per item name (quantities of repeated names are merged), in list order
+     */
+    private static Map<String, StoredLine> toLines(List<TableSessionItem> items) {
+        Map<String, StoredLine> lines = new LinkedHashMap<>();
+        if (items == null) {
+            return lines;
+        }
+        for (TableSessionItem item : items) {
+            lines.merge(item.name(), new StoredLine(item.quantity(), item.price(), lines.size()),
+                    (existing, added) -> new StoredLine(existing.quantity() + added.quantity(),
+                            existing.price(), existing.position()));
+        }
+        return lines;
+    }
+
+    private record StoredLine(int quantity, double price, int position) {
+    }
+
+    /**
+     * The stored session was changed by another terminal since it was read
+     */
+    public static class SessionConflictException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        public SessionConflictException(String tableId) {
+            super("Session for table " + tableId + " was changed on another terminal");
         }
     }
 
@@ -0,0 +1,472 @@
+package com.example.pos.service;
+
+import com.example.pos.model.TableSession;
+import com.example.pos.model.TableSessionItem;
+import com.example.pos.service.TableService.SessionConflictException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind persistence for open table sessions.
+ *
+ * The billing screen hands every edit to save()/clear() and returns at once.
+ * Only the latest state per table is kept, so a burst of taps becomes one
+ * write, and a single writer thread flushes it shortly afterwards
+ * (-Dpos.session.flushDelayMs, default 250). Because there is one writer and
+ * a pending write is only dropped once that exact write has committed, the
+ * last state handed in for a table is always the last one written. Failed
+ * writes stay queued and are retried with a doubling delay (2s up to 30s);
+ * after MAX_ATTEMPTS failures in a row a table's write is dropped and
+ * onSaveFailed() listeners are told, so the cashier knows it is not saved.
+ * The next edit queues it again. flush() forces pending writes out, e.g.
+ * on settle, when a billing window closes, or before tables are read back.
+ *
+ * Each write only sends the lines that changed since the version last
+ * written or read through track(). If another terminal saved the table in
+ * between, the write is rebased: this screen's changes since its base are
+ * applied to the stored lines, so both terminals' items are kept, and
+ * onConflict() listeners get the merged session to show. Until the screen
+ * hands that back through saveRebased(), its later saves are merged the same
+ * way. If the session was settled or cleared elsewhere it is not re-created;
+ * saves for the table are dropped until it is tracked again, and listeners
+ * are told.
+ */
+public class TableSessionStore {
+
+    private static final TableSessionStore INSTANCE = new TableSessionStore(
+        new TableService(), Long.getLong("pos.session.flushDelayMs", 250L));
+
+    private static final long RETRY_DELAY_MS = 2000;
+    private static final long MAX_RETRY_DELAY_MS = 30_000;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final boolean LOG_FLUSHES = Boolean.getBoolean("pos.session.perf");
+
+    private final TableService tableService;
+    private final long flushDelayMs;
+    private final Map<String, PendingWrite> pending = new ConcurrentHashMap<>();
+    // Last version known to be stored per table; writer thread only
+    private final Map<String, Persisted> persisted = new HashMap<>();
+    // Lines the screen's saves are based on, while they differ from the stored
+    // ones after a merge; tables closed on another terminal. Writer thread only.
+    private final Map<String, List<TableSessionItem>> shownBase = new HashMap<>();
+    private final Set<String> closedElsewhere = new HashSet<>();
+    // Failed writes in a row per table, and failed flushes in a row; writer thread only
+    private final Map<String, Integer> failedAttempts = new HashMap<>();
+    private int failedFlushes;
+    private final List<Consumer<SessionConflict>> conflictListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<String>> failureListeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "table-session-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private volatile long maxLatencyNanos;
+
+    TableSessionStore(TableService tableService, long flushDelayMs) {
+        this.tableService = tableService;
+        this.flushDelayMs = flushDelayMs;
+    }
+
+    public static TableSessionStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Record the session just read from the database for a table (null if it
+     * has none) as the base that later saves are diffed against
+     */
+    public void track(String tableId, TableSession loaded) {
+        if (tableId == null) {
+            return;
+        }
+        writer.execute(() -> {
+            remember(tableId, loaded);
+            shownBase.remove(tableId);
+            closedElsewhere.remove(tableId);
+        });
+    }
+
+    /**
+     * Called on the writer thread whenever a save had to be rebased over
+     * changes from another terminal, or was dropped because the session was
+     * closed there. Returns a handle that removes the listener.
+     */
+    public Runnable onConflict(Consumer<SessionConflict> listener) {
+        conflictListeners.add(listener);
+        return () -> conflictListeners.remove(listener);
+    }
+
+    /**
+     * Called on the writer thread with the table id when its write was given
+     * up after failing MAX_ATTEMPTS times in a row. Returns a handle that
+     * removes the listener.
+     */
+    public Runnable onSaveFailed(Consumer<String> listener) {
+        failureListeners.add(listener);
+        return () -> failureListeners.remove(listener);
+    }
+
+    /**
+     * Queue the full current state of a table's session
+     */
+    public void save(TableSession session) {
+        enqueue(session.getTableId(), new PendingWrite(sequence.incrementAndGet(), session, null, false));
+    }
+
+    /**
+     * Queue the state a screen shows after applying SessionConflict.rebase(),
+     * which already includes the other terminal's lines
+     */
+    public void saveRebased(TableSession session) {
+        enqueue(session.getTableId(), new PendingWrite(sequence.incrementAndGet(), session, null, true));
+    }
+
+    /**
+     * Queue removal of a table's session, setting the table to newStatus.
+     * Supersedes any save still pending for that table.
+     */
+    public void clear(String tableId, String newStatus) {
+        enqueue(tableId, new PendingWrite(sequence.incrementAndGet(), null, newStatus, false));
+    }
+
+    /**
+     * Write anything pending for the table now. The future completes once
+     * everything queued for it before this call is committed, or fails with
+     * the write error.
+     */
+    public CompletableFuture<Void> flush(String tableId) {
+        return CompletableFuture.runAsync(() -> {
+            if (!writePending(tableId)) {
+                throw new IllegalStateException("Failed to save session for table " + tableId);
+            }
+        }, writer);
+    }
+
+    /**
+     * Write everything pending now
+     */
+    public CompletableFuture<Void> flushAll() {
+        return CompletableFuture.runAsync(() -> {
+            if (!writeAllPending()) {
+                throw new IllegalStateException("Failed to save some table sessions");
+            }
+        }, writer);
+    }
+
+    /**
+     * Flush and wait up to the timeout, e.g. on shutdown. Returns false if
+     * writes are still pending afterwards.
+     */
+    public boolean flushAll(long timeout, TimeUnit unit) {
+        try {
+            flushAll().get(timeout, unit);
+        } catch (Exception e) {
+            System.err.println("⚠ Table sessions not fully saved: " + e.getMessage());
+        }
+        return pending.isEmpty();
+    }
+
+    public StoreStats stats() {
+        long count = written.sum();
+        return new StoreStats(pending.size(), count, coalesced.sum(), failures.sum(), conflicts.sum(),
+            count == 0 ? 0.0 : totalLatencyNanos.sum() / 1_000_000.0 / count,
+            maxLatencyNanos / 1_000_000.0);
+    }
+
+    private void enqueue(String tableId, PendingWrite write) {
+        if (tableId == null) {
+            return;
+        }
+        boolean[] replaced = new boolean[1];
+        pending.compute(tableId, (id, previous) -> {
+            replaced[0] = previous != null;
+            // A rebased state stays rebased when later edits to it coalesce over it
+            return previous != null && previous.rebased() && write.session() != null ? write.asRebased() : write;
+        });
+        if (replaced[0]) {
+            coalesced.increment();
+        }
+        scheduleFlush(flushDelayMs);
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (flushScheduled.compareAndSet(false, true)) {
+            writer.schedule(() -> {
+                // Reset first so edits arriving during the flush schedule another one
+                flushScheduled.set(false);
+                if (writeAllPending()) {
+                    failedFlushes = 0;
+                } else {
+                    failedFlushes++;
+                    scheduleFlush(Math.min(RETRY_DELAY_MS << Math.min(failedFlushes - 1, 10), MAX_RETRY_DELAY_MS));
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writer thread only. Returns false if any write failed.
+     */
+    private boolean writeAllPending() {
+        if (pending.isEmpty()) {
+            return true;
+        }
+        long start = System.nanoTime();
+        List<String> tableIds = new ArrayList<>(pending.keySet());
+        int failed = 0;
+        for (String tableId : tableIds) {
+            if (!writePending(tableId)) {
+                failed++;
+            }
+        }
+        if (LOG_FLUSHES || failed > 0) {
+            StoreStats stats = stats();
+            System.out.printf("Table session flush: %d tables in %.2f ms, %d failed, queue depth %d, "
+                    + "latency avg %.1f ms max %.1f ms, %d writes coalesced%n",
+                tableIds.size(), (System.nanoTime() - start) / 1_000_000.0, failed, stats.queueDepth(),
+                stats.averageLatencyMillis(), stats.maxLatencyMillis(), stats.coalesced());
+        }
+        return failed == 0;
+    }
+
+    /**
+     * Writer thread only. Returns false if the write failed; it then stays
+     * queued unless it has failed MAX_ATTEMPTS times in a row.
+     */
+    private boolean writePending(String tableId) {
+        PendingWrite write = pending.get(tableId);
+        if (write == null) {
+            return true;
+        }
+        try {
+            if (write.session() == null) {
+                tableService.clearSession(tableId, write.clearStatus());
+                persisted.remove(tableId);
+                shownBase.remove(tableId);
+            } else if (closedElsewhere.contains(tableId)) {
+                System.err.println("⚠ Not saving table " + tableId + ": it was closed on another terminal");
+            } else {
+                if (write.rebased()) {
+                    shownBase.remove(tableId);
+                }
+                saveMerging(tableId, write.session());
+            }
+        } catch (RuntimeException e) {
+            failures.increment();
+            int attempts = failedAttempts.merge(tableId, 1, Integer::sum);
+            System.err.println("⚠ Failed to save session for table " + tableId + " (attempt " + attempts
+                + "): " + e.getMessage());
+            if (attempts >= MAX_ATTEMPTS) {
+                giveUp(tableId, write);
+            }
+            return false;
+        }
+
+        // Only drop it if nothing newer arrived while writing
+        failedAttempts.remove(tableId);
+        pending.remove(tableId, write);
+        long latency = System.nanoTime() - write.enqueuedAt();
+        written.increment();
+        totalLatencyNanos.add(latency);
+        if (latency > maxLatencyNanos) {
+            maxLatencyNanos = latency;
+        }
+        return true;
+    }
+
+    private void giveUp(String tableId, PendingWrite write) {
+        failedAttempts.remove(tableId);
+        if (!pending.remove(tableId, write)) {
+            return; // a newer edit arrived meanwhile and gets its own attempts
+        }
+        System.err.println("✗ Gave up saving session for table " + tableId + " after " + MAX_ATTEMPTS + " attempts");
+        notifyListeners(failureListeners, tableId);
+    }
+
+    private <T> void notifyListeners(List<Consumer<T>> listeners, T event) {
+        for (Consumer<T> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException ex) {
+                System.err.println("Table session listener failed: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Save the screen's session, applying its changes to the stored lines
+     * rather than replacing them when the two have diverged
+     */
+    private void saveMerging(String tableId, TableSession shown) {
+        List<TableSessionItem> base = shownBase.get(tableId);
+        Persisted stored = persisted.getOrDefault(tableId, Persisted.NONE);
+        try {
+            save(tableId, base == null ? shown : withItems(shown, merge(base, shown.getItems(), stored.items())));
+        } catch (SessionConflictException e) {
+            conflicts.increment();
+            TableSession current = tableService.loadSession(tableId);
+            if (current == null) {
+                System.err.println("⚠ Table " + tableId + " was closed on another terminal; not re-opening it");
+                persisted.remove(tableId);
+                shownBase.remove(tableId);
+                closedElsewhere.add(tableId);
+                notifyListeners(conflictListeners, new SessionConflict(tableId, null, List.of()));
+                return;
+            }
+            System.err.println("⚠ Table " + tableId + " was changed on another terminal; merging this screen's changes");
+            if (base == null) {
+                base = stored.items();
+            }
+            remember(tableId, current);
+            // Kept before saving, so a failed save is merged again when retried
+            shownBase.put(tableId, base);
+            save(tableId, withItems(shown, merge(base, shown.getItems(), current.getItems())));
+            shownBase.put(tableId, List.copyOf(shown.getItems()));
+            Persisted merged = persisted.get(tableId);
+            notifyListeners(conflictListeners, new SessionConflict(tableId,
+                withItems(shown, merged.items(), merged.version()), List.copyOf(shown.getItems())));
+            return;
+        }
+        if (base != null) {
+            shownBase.put(tableId, List.copyOf(shown.getItems()));
+        }
+    }
+
+    private void save(String tableId, TableSession session) {
+        Persisted base = persisted.getOrDefault(tableId, Persisted.NONE);
+        long version = tableService.saveSession(session, base.version(), base.items());
+        persisted.put(tableId, new Persisted(version, List.copyOf(session.getItems())));
+    }
+
+    /**
+     * Three-way merge of item lines: the quantity change from base to local is
+     * applied to stored, lines falling to zero are dropped, and a price
+     * changed locally wins. Stored lines keep their order; lines only added
+     * locally follow.
+     */
+    static List<TableSessionItem> merge(List<TableSessionItem> base, List<TableSessionItem> local,
+                                        List<TableSessionItem> stored) {
+        Map<String, TableSessionItem> before = byName(base);
+        Map<String, TableSessionItem> mine = byName(local);
+        Map<String, TableSessionItem> theirs = byName(stored);
+
+        Set<String> names = new LinkedHashSet<>(theirs.keySet());
+        names.addAll(mine.keySet());
+        List<TableSessionItem> merged = new ArrayList<>();
+        for (String name : names) {
+            TableSessionItem was = before.get(name);
+            TableSessionItem now = mine.get(name);
+            TableSessionItem other = theirs.get(name);
+            int quantity = quantity(other) + quantity(now) - quantity(was);
+            if (quantity <= 0) {
+                continue;
+            }
+            boolean repriced = now != null && (was == null || now.price() != was.price());
+            double price = repriced || other == null ? now.price() : other.price();
+            merged.add(new TableSessionItem(name, quantity, price));
+        }
+        return merged;
+    }
+
+    private static Map<String, TableSessionItem> byName(List<TableSessionItem> items) {
+        Map<String, TableSessionItem> lines = new LinkedHashMap<>();
+        for (TableSessionItem item : items) {
+            lines.merge(item.name(), item, (existing, added) ->
+                new TableSessionItem(existing.name(), existing.quantity() + added.quantity(), existing.price()));
+        }
+        return lines;
+    }
+
+    private static int quantity(TableSessionItem item) {
+        return item != null ? item.quantity() : 0;
+    }
+
+    private static TableSession withItems(TableSession session, List<TableSessionItem> items) {
+        return withItems(session, items, session.getVersion());
+    }
+
+    private static TableSession withItems(TableSession session, List<TableSessionItem> items, long version) {
+        return new TableSession(session.getTableId(), session.getTableName(), session.getBillLabel(),
+            session.getCustomerName(), session.getPaymentMethod(), session.getOrderType(), items,
+            session.getStatus(), session.getUpdatedAt(), version);
+    }
+
+    private void remember(String tableId, TableSession stored) {
+        if (stored == null) {
+            persisted.remove(tableId);
+        } else {
+            persisted.put(tableId, new Persisted(stored.getVersion(), List.copyOf(stored.getItems())));
+        }
+    }
+
+    private record Persisted(long version, List<TableSessionItem> items) {
+        static final Persisted NONE = new Persisted(0, List.of());
+    }
+
+    // sequence keeps two writes of identical state distinct for pending.remove(key, value)
+    private record PendingWrite(long sequence, TableSession session, String clearStatus, boolean rebased,
+                                long enqueuedAt) {
+        PendingWrite(long sequence, TableSession session, String clearStatus, boolean rebased) {
+            this(sequence, session, clearStatus, rebased, System.nanoTime());
+        }
+
+        PendingWrite asRebased() {
+            return new PendingWrite(sequence, session, clearStatus, true, enqueuedAt);
+        }
+    }
+
+    /**
+     * A save that met changes from another terminal. saved is the merged
+     * session now stored, or null if the session was settled or cleared
+     * there and nothing was written; shown is the screen state it was merged
+     * from.
+     */
+    public record SessionConflict(String tableId, TableSession saved, List<TableSessionItem> shown) {
+
+        public boolean closedElsewhere() {
+            return saved == null;
+        }
+
+        /**
+         * What a screen now showing current should show instead: the saved
+         * lines plus any edits made on the screen since the merge
+         */
+        public TableSession rebase(TableSession current) {
+            return withItems(current, merge(shown, current.getItems(), saved.getItems()), saved.getVersion());
+        }
+    }
+
+    /**
+     * Queue depth is the number of tables with unwritten changes; latency is
+     * from the latest edit being queued until it was committed. Conflicts
+     * counts saves that met another terminal's changes.
+     */
+    public record StoreStats(int queueDepth, long written, long coalesced, long failures, long conflicts,
+                             double averageLatencyMillis, double maxLatencyMillis) {
+    }
+}
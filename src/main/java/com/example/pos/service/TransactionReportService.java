@@ -0,0 +1,172 @@
+package com.example.pos.service;
+
+import com.example.pos.service.SalesService.SaleItem;
+import com.example.pos.service.SalesService.SaleRow;
+import com.example.pos.service.SalesService.TransactionFilter;
+import com.example.pos.util.PdfWriter;
+import com.example.pos.util.PdfWriter.Font;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Builds the transaction history PDF report.
+ *
+ * Bills and their line items are streamed from SalesService and laid out
+ * page by page straight into a PdfWriter, so report size is limited by disk,
+ * not heap.
+ */
+public class TransactionReportService {
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(int done, int total);
+    }
+
+    private static final float MARGIN = 40f;
+    private static final float RIGHT = PdfWriter.PAGE_WIDTH - MARGIN;
+    private static final float BOTTOM = MARGIN + 20f; // leaves room for the page number
+    private static final float ROW_HEIGHT = 14f;
+    private static final float ITEM_HEIGHT = 11f;
+    private static final float FONT_SIZE = 9f;
+    private static final float ITEM_FONT_SIZE = 8f;
+    private static final int PROGRESS_STEP = 100;
+
+    // Column x positions: bill, date, customer, type, payment, status (total is right-aligned)
+    private static final float[] COLUMNS = {MARGIN, 105f, 185f, 310f, 380f, 445f};
+    private static final String[] HEADERS = {"Bill #", "Date & Time", "Customer", "Type", "Payment", "Status"};
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final SalesService salesService = new SalesService();
+
+    /**
+     * Write the report for all sales matching the filter. Returns the number of bills written.
+     */
+    public int exportPdf(TransactionFilter filter, OutputStream target, ProgressListener progress)
+            throws SQLException, IOException {
+        int total = salesService.countSales(filter);
+
+        try (PdfWriter pdf = new PdfWriter(target)) {
+            Layout layout = new Layout(pdf);
+            layout.startPage(true);
+            if (total == 0) {
+                pdf.text(MARGIN, layout.y, Font.REGULAR, FONT_SIZE, "No transactions found");
+            }
+
+            int[] done = {0};
+            salesService.streamSalesWithItems(filter, (sale, items) -> {
+                layout.writeSale(sale, items);
+                done[0]++;
+                if (progress != null && (done[0] % PROGRESS_STEP == 0 || done[0] == total)) {
+                    progress.onProgress(done[0], total);
+                }
+            });
+            layout.finishPage();
+            return done[0];
+        }
+    }
+
+    /**
+     * Tracks the write position and handles page breaks
+     */
+    private static final class Layout {
+        private final PdfWriter pdf;
+        private float y;
+        private int pageNumber;
+
+        Layout(PdfWriter pdf) {
+            this.pdf = pdf;
+        }
+
+        void startPage(boolean first) {
+            pdf.beginPage();
+            pageNumber++;
+            y = PdfWriter.PAGE_HEIGHT - MARGIN;
+
+            if (first) {
+                pdf.text(MARGIN, y - 14, Font.BOLD, 16, "Transaction Report");
+                pdf.text(MARGIN, y - 30, Font.REGULAR, FONT_SIZE,
+                        "Generated " + LocalDateTime.now().format(DATE_TIME));
+                y -= 50;
+            }
+
+            for (int i = 0; i < HEADERS.length; i++) {
+                pdf.text(COLUMNS[i], y, Font.BOLD, FONT_SIZE, HEADERS[i]);
+            }
+            rightAligned("Total", Font.BOLD, FONT_SIZE);
+            pdf.line(MARGIN, y - 4, RIGHT, y - 4, 0.75f);
+            y -= ROW_HEIGHT + 2;
+        }
+
+        void finishPage() throws IOException {
+            pdf.text(RIGHT - 40, MARGIN, Font.REGULAR, ITEM_FONT_SIZE, "Page " + pageNumber);
+            pdf.endPage();
+        }
+
+        void ensureSpace(float height) throws IOException {
+            if (y - height < BOTTOM) {
+                finishPage();
+                startPage(false);
+            }
+        }
+
+        void writeSale(SaleRow sale, List<SaleItem> items) throws IOException {
+            // Keep the bill row together with at least its first item
+            ensureSpace(ROW_HEIGHT + (items.isEmpty() ? 0 : ITEM_HEIGHT));
+
+            pdf.text(COLUMNS[0], y, Font.BOLD, FONT_SIZE, String.valueOf(sale.billNumber()));
+            pdf.text(COLUMNS[1], y, Font.REGULAR, FONT_SIZE,
+                    sale.createdAt() != null ? sale.createdAt().format(DATE_TIME) : "");
+            pdf.text(COLUMNS[2], y, Font.REGULAR, FONT_SIZE, truncate(sale.customerName(), 24));
+            pdf.text(COLUMNS[3], y, Font.REGULAR, FONT_SIZE, truncate(sale.orderType(), 12));
+            pdf.text(COLUMNS[4], y, Font.REGULAR, FONT_SIZE, truncate(sale.paymentMethod(), 12));
+            pdf.text(COLUMNS[5], y, Font.REGULAR, FONT_SIZE, truncate(sale.status(), 12));
+            rightAligned(amount(sale.total()), Font.BOLD, FONT_SIZE);
+            y -= ROW_HEIGHT - 2;
+
+            for (SaleItem item : items) {
+                ensureSpace(ITEM_HEIGHT);
+                pdf.text(COLUMNS[1] + 10, y, Font.REGULAR, ITEM_FONT_SIZE,
+                        item.quantity() + " x " + truncate(item.name(), 40) + " @ " + amount(item.price()));
+                rightAligned(amount(item.total()), Font.REGULAR, ITEM_FONT_SIZE);
+                y -= ITEM_HEIGHT;
+            }
+
+            pdf.line(MARGIN, y + 6, RIGHT, y + 6, 0.25f);
+            y -= 6;
+        }
+
+        private void rightAligned(String text, Font font, float size) {
+            pdf.text(RIGHT - estimateWidth(text, size), y, font, size, text);
+        }
+    }
+
+    private static String amount(double value) {
+        return String.format("%,.2f", value);
+    }
+
+    private static String truncate(String value, int maxChars) {
+        if (value == null) {
+            return "";
+        }
+        return value.length() <= maxChars ? value : value.substring(0, maxChars - 2) + "..";
+    }
+
+    /**
+     * Approximate Helvetica advance width; exact for digits and separators,
+     * which is what right-aligned amounts contain.
+     */
+    private static float estimateWidth(String text, float size) {
+        float em = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            em += (c >= '0' && c <= '9') ? 0.556f : (c == '.' || c == ',' || c == ' ') ? 0.278f : 0.6f;
+        }
+        return em * size;
+    }
+}
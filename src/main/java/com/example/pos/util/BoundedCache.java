@@ -0,0 +1,376 @@
+package com.example.pos.util;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded in-memory cache with per-entry expiry and statistics.
+ *
+ * Reads are lock-free (ConcurrentHashMap). Each entry records when it was
+ * last read; once the cache grows past its limit the least recently used
+ * tenth is evicted in one batch, so eviction cost is amortised across
+ * inserts. Expired entries are removed on read and by a shared background
+ * sweeper, so keys that are never read again (e.g. per-month or per-day
+ * keys) do not accumulate.
+ *
+ * get(key, loader) is single-flight: concurrent misses for the same key run
+ * the loader once and the other callers wait for its result. With a refresh
+ * interval shorter than the TTL, an entry past the refresh interval is still
+ * returned immediately while one background reload replaces it
+ * (stale-while-revalidate).
+ */
+public class BoundedCache<K, V> {
+
+    private static final long SWEEP_INTERVAL_SECONDS = 30;
+    private static final List<WeakReference<BoundedCache<?, ?>>> SWEPT_CACHES = new CopyOnWriteArrayList<>();
+    private static final ScheduledExecutorService SWEEPER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cache-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final ExecutorService REFRESHER = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "cache-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        SWEEPER.scheduleWithFixedDelay(BoundedCache::sweepAll,
+            SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long refreshNanos;
+    private final Map<K, Entry<V>> map = new ConcurrentHashMap<>();
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+    // Bumped by remove/clear so a load that started before an invalidation is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    public BoundedCache(String name, int maxEntries, long ttlMillis) {
+        this(name, maxEntries, ttlMillis, ttlMillis);
+    }
+
+    /**
+     * @param refreshAfterMillis age after which get(key, loader) serves the cached
+     *                           value but reloads it in the background; equal to
+     *                           ttlMillis to disable background refresh
+     */
+    public BoundedCache(String name, int maxEntries, long ttlMillis, long refreshAfterMillis) {
+        if (maxEntries <= 0 || ttlMillis <= 0 || refreshAfterMillis <= 0 || refreshAfterMillis > ttlMillis) {
+            throw new IllegalArgumentException(
+                "maxEntries and ttlMillis must be positive, refreshAfterMillis in (0, ttlMillis]");
+        }
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshAfterMillis);
+        SWEPT_CACHES.add(new WeakReference<>(this));
+    }
+
+    /**
+     * Loads a value on a cache miss
+     */
+    @FunctionalInterface
+    public interface Loader<K, V, E extends Exception> {
+        V load(K key) throws E;
+    }
+
+    /**
+     * Get value from cache, or null if absent or expired
+     */
+    public V get(K key) {
+        Entry<V> entry = map.get(key);
+        long now = System.nanoTime();
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired(now)) {
+            if (map.remove(key, entry)) {
+                expirations.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        entry.lastAccess = now;
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Get value from cache, loading it on a miss. Concurrent callers for the
+     * same key share one load; an entry due for refresh is returned as is while
+     * it is reloaded in the background. Load time is recorded in the statistics.
+     */
+    public <E extends Exception> V get(K key, Loader<K, V, E> loader) throws E {
+        Entry<V> entry = map.get(key);
+        long now = System.nanoTime();
+        if (entry != null && !entry.isExpired(now)) {
+            entry.lastAccess = now;
+            hits.increment();
+            if (now - entry.refreshAt > 0) {
+                refreshAsync(key, loader);
+            }
+            return entry.value;
+        }
+        if (entry != null && map.remove(key, entry)) {
+            expirations.increment();
+        }
+        misses.increment();
+
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            V value = load(key, loader);
+            pending.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    private <E extends Exception> void refreshAsync(K key, Loader<K, V, E> loader) {
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, pending) != null) {
+            return; // already loading
+        }
+        refreshes.increment();
+        try {
+            REFRESHER.execute(() -> {
+                try {
+                    pending.complete(load(key, loader));
+                } catch (Exception e) {
+                    // Keep serving the current value until it expires
+                    pending.completeExceptionally(e);
+                    System.err.println("⚠ Cache refresh failed for " + name + "/" + key + ": " + e.getMessage());
+                } finally {
+                    inFlight.remove(key, pending);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, pending);
+            pending.cancel(false);
+        }
+    }
+
+    /**
+     * Run the loader, record timing and cache a non-null result unless the
+     * cache was invalidated while loading
+     */
+    private <E extends Exception> V load(K key, Loader<K, V, E> loader) throws E {
+        long generation = invalidations.get();
+        long start = System.nanoTime();
+        V value;
+        try {
+            value = loader.load(key);
+        } catch (Exception e) {
+            loadFailures.increment();
+            throw e;
+        }
+        loads.increment();
+        totalLoadNanos.add(System.nanoTime() - start);
+
+        if (value != null && invalidations.get() == generation) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Wait for another caller's load and rethrow its failure. The failure came
+     * from a loader of the same type, so a checked exception is an E.
+     */
+    @SuppressWarnings("unchecked")
+    private static <V, E extends Exception> V await(CompletableFuture<V> future) throws E {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw (E) cause;
+        }
+    }
+
+    /**
+     * Put value in cache, evicting least recently used entries if over capacity
+     */
+    public void put(K key, V value) {
+        long now = System.nanoTime();
+        map.put(key, new Entry<>(value, now + refreshNanos, now + ttlNanos, now));
+        if (map.size() > maxEntries) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    /**
+     * Remove value from cache
+     */
+    public void remove(K key) {
+        invalidations.incrementAndGet();
+        inFlight.remove(key);
+        map.remove(key);
+    }
+
+    /**
+     * Clear entire cache
+     */
+    public void clear() {
+        invalidations.incrementAndGet();
+        inFlight.clear();
+        map.clear();
+    }
+
+    /**
+     * Get cache size
+     */
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * Clean expired entries (also done periodically by the shared sweeper)
+     */
+    public void cleanExpired() {
+        long now = System.nanoTime();
+        map.entrySet().removeIf(e -> {
+            if (e.getValue().isExpired(now)) {
+                expirations.increment();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(name, map.size(), maxEntries,
+            hits.sum(), misses.sum(), evictions.sum(), expirations.sum(),
+            loads.sum(), loadFailures.sum(), totalLoadNanos.sum(), refreshes.sum());
+    }
+
+    private void evictLeastRecentlyUsed() {
+        synchronized (evictionLock) {
+            int excess = map.size() - maxEntries;
+            if (excess <= 0) {
+                return;
+            }
+            // Snapshot access times first: readers keep updating lastAccess while we scan
+            List<Map.Entry<K, Entry<V>>> candidates = new ArrayList<>(map.entrySet());
+            if (candidates.isEmpty()) {
+                return;
+            }
+            // Evict a batch (the excess plus 10% headroom) so the scan is not repeated on every insert
+            int toEvict = Math.min(candidates.size(), excess + Math.max(1, maxEntries / 10));
+            long[] accessed = new long[candidates.size()];
+            for (int i = 0; i < accessed.length; i++) {
+                accessed[i] = candidates.get(i).getValue().lastAccess;
+            }
+            long[] sorted = accessed.clone();
+            Arrays.sort(sorted);
+            long cutoff = sorted[toEvict - 1];
+
+            int evicted = 0;
+            for (int i = 0; i < accessed.length && evicted < toEvict; i++) {
+                Map.Entry<K, Entry<V>> candidate = candidates.get(i);
+                if (accessed[i] - cutoff <= 0 && map.remove(candidate.getKey(), candidate.getValue())) {
+                    evicted++;
+                }
+            }
+            evictions.add(evicted);
+        }
+    }
+
+    private static void sweepAll() {
+        for (WeakReference<BoundedCache<?, ?>> ref : SWEPT_CACHES) {
+            BoundedCache<?, ?> cache = ref.get();
+            if (cache == null) {
+                SWEPT_CACHES.remove(ref);
+            } else {
+                try {
+                    cache.cleanExpired();
+                } catch (RuntimeException e) {
+                    System.err.println("Cache sweep failed for " + cache.name + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long refreshAt;
+        final long expiresAt;
+        volatile long lastAccess;
+
+        Entry(V value, long refreshAt, long expiresAt, long lastAccess) {
+            this.value = value;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+            this.lastAccess = lastAccess;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+    }
+
+    /**
+     * Point-in-time cache statistics
+     */
+    public record CacheStats(String name, int size, int maxEntries,
+                             long hits, long misses, long evictions, long expirations,
+                             long loads, long loadFailures, long totalLoadNanos, long refreshes) {
+
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+
+        public double averageLoadMillis() {
+            return loads == 0 ? 0.0 : totalLoadNanos / 1_000_000.0 / loads;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: size %d/%d, hit rate %.1f%%, hits %d, misses %d, evictions %d, "
+                    + "expirations %d, loads %d (avg %.2f ms, %d failed), background refreshes %d",
+                name, size, maxEntries, hitRate() * 100, hits, misses, evictions,
+                expirations, loads, averageLoadMillis(), loadFailures, refreshes);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.pos.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 CSV reader: one record at a time, without holding the
+ * file in memory.
+ *
+ * Fields may be quoted; a quoted field can contain commas, line breaks and
+ * doubled quotes (""). Records end at LF, CR or CRLF. Unquoted fields are
+ * returned as is, including surrounding spaces.
+ */
+public final class CsvReader implements Closeable {
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int length;
+    private int position;
+    private long lineNumber;
+    private long recordLine;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Next record's fields, or null at end of input. A blank line is an
+     * empty list.
+     */
+    public List<String> readRecord() throws IOException {
+        int c = read();
+        if (c < 0) {
+            return null;
+        }
+        lineNumber++;
+        recordLine = lineNumber;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean afterQuote = false;
+        boolean empty = true;
+        while (true) {
+            if (c < 0) {
+                if (quoted) {
+                    throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                }
+                break;
+            }
+            char ch = (char) c;
+            if (quoted) {
+                if (ch == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        afterQuote = true;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    if (ch == '\n') {
+                        lineNumber++;
+                    }
+                    field.append(ch);
+                }
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                afterQuote = false;
+                empty = false;
+            } else if (ch == '\n' || ch == '\r') {
+                if (ch == '\r') {
+                    int next = read();
+                    if (next != '\n' && next >= 0) {
+                        position--; // keep it for the next record
+                    }
+                }
+                break;
+            } else if (ch == '"' && field.length() == 0 && !afterQuote) {
+                quoted = true;
+                empty = false;
+            } else {
+                // Text after a closing quote is kept, as lenient readers do
+                field.append(ch);
+                empty = false;
+            }
+            c = read();
+        }
+        if (empty && fields.isEmpty()) {
+            return List.of();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Line the last record started on (1-based)
+     */
+    public long recordLine() {
+        return recordLine;
+    }
+
+    private int read() throws IOException {
+        if (position == length) {
+            length = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (length <= 0) {
+                length = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
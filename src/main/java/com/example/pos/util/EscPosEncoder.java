@@ -0,0 +1,258 @@
+package com.example.pos.util;
+
+import java.nio.ByteBuffer;
+import java.text.Normalizer;
+
+/**
+ * Writes ESC/POS commands and text straight into a reusable byte buffer.
+ *
+ * Text is written as single-byte characters, one byte per printed column, so
+ * padding and column widths are exact. Printers start in an ASCII code page:
+ * accented letters are written without their accents, the rupee sign as "Rs"
+ * and anything else unprintable as '?', rather than as UTF-8 sequences the
+ * printer would show as garbage.
+ *
+ * Not thread-safe; reset() and reuse one instance per thread.
+ */
+public final class EscPosEncoder {
+
+    private static final byte ESC = 0x1B;
+    private static final byte GS = 0x1D;
+    private static final byte LF = 0x0A;
+    private static final byte SPACE = ' ';
+
+    public static final int SIZE_NORMAL = 0x00;
+    public static final int SIZE_DOUBLE = 0x11;
+    public static final int SIZE_LARGE = 0x22;
+
+    public enum Align {
+        LEFT(0), CENTER(1), RIGHT(2);
+
+        private final byte code;
+
+        Align(int code) {
+            this.code = (byte) code;
+        }
+    }
+
+    private ByteBuffer buffer;
+
+    public EscPosEncoder() {
+        this(4096);
+    }
+
+    public EscPosEncoder(int initialCapacity) {
+        this.buffer = ByteBuffer.allocate(initialCapacity);
+    }
+
+    /**
+     * Discard what was written, keeping the buffer
+     */
+    public EscPosEncoder reset() {
+        buffer.clear();
+        return this;
+    }
+
+    /** ESC @: reset printer modes */
+    public EscPosEncoder initialize() {
+        return command(ESC, '@');
+    }
+
+    /** ESC a n */
+    public EscPosEncoder align(Align align) {
+        return command(ESC, 'a', align.code);
+    }
+
+    /** GS ! n, e.g. SIZE_DOUBLE */
+    public EscPosEncoder size(int size) {
+        return command(GS, '!', size);
+    }
+
+    /** ESC E n */
+    public EscPosEncoder bold(boolean on) {
+        return command(ESC, 'E', on ? 1 : 0);
+    }
+
+    /** GS V A n: feed n dots and partial cut */
+    public EscPosEncoder cut() {
+        return command(GS, 'V', 'A', 3);
+    }
+
+    public EscPosEncoder newline() {
+        ensureCapacity(1);
+        buffer.put(LF);
+        return this;
+    }
+
+    public EscPosEncoder text(CharSequence text) {
+        if (text == null) {
+            return this;
+        }
+        ensureCapacity(text.length() * 2);
+        for (int i = 0; i < text.length(); i++) {
+            putChar(text.charAt(i));
+        }
+        return this;
+    }
+
+    public EscPosEncoder line(CharSequence text) {
+        return text(text).newline();
+    }
+
+    public EscPosEncoder repeat(char c, int count) {
+        ensureCapacity(count);
+        byte b = c < 0x80 ? (byte) c : (byte) '?';
+        for (int i = 0; i < count; i++) {
+            buffer.put(b);
+        }
+        return this;
+    }
+
+    /**
+     * Text left-aligned in a column of width characters, cut to fit
+     */
+    public EscPosEncoder padRight(CharSequence text, int width) {
+        int start = buffer.position();
+        text(text);
+        int written = buffer.position() - start;
+        if (written > width) {
+            buffer.position(start + width);
+        } else {
+            repeat(' ', width - written);
+        }
+        return this;
+    }
+
+    /**
+     * Text right-aligned in a column of width characters. Wider text is kept
+     * whole (see amount())
+     */
+    public EscPosEncoder padLeft(CharSequence text, int width) {
+        int start = buffer.position();
+        text(text);
+        return alignRight(start, width);
+    }
+
+    /**
+     * An amount with two decimals right-aligned in a column, formatted
+     * without building a String. An amount wider than its column is never
+     * cut: it takes spaces left of the column, then runs past its end.
+     */
+    public EscPosEncoder amount(double value, int width) {
+        return amount("", value, width);
+    }
+
+    /**
+     * An amount after a prefix such as "Rs ", right-aligned together
+     */
+    public EscPosEncoder amount(CharSequence prefix, double value, int width) {
+        int start = buffer.position();
+        text(prefix);
+        ensureCapacity(24);
+        long cents = Math.round(Math.abs(value) * 100);
+        if (value < 0 && cents != 0) {
+            buffer.put((byte) '-');
+        }
+        putDigits(cents / 100);
+        buffer.put((byte) '.');
+        buffer.put((byte) ('0' + (cents % 100) / 10));
+        buffer.put((byte) ('0' + cents % 10));
+        return alignRight(start, width);
+    }
+
+    /**
+     * Append bytes already encoded, e.g. a cached receipt header
+     */
+    public EscPosEncoder raw(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        buffer.put(bytes);
+        return this;
+    }
+
+    public int size() {
+        return buffer.position();
+    }
+
+    /**
+     * Read-only view of what was written, valid until the next write or reset
+     */
+    public ByteBuffer buffer() {
+        ByteBuffer view = buffer.duplicate();
+        view.flip();
+        return view.asReadOnlyBuffer();
+    }
+
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private EscPosEncoder command(int... bytes) {
+        ensureCapacity(bytes.length);
+        for (int b : bytes) {
+            buffer.put((byte) b);
+        }
+        return this;
+    }
+
+    /**
+     * Move what was written since start to the right of a width-wide column.
+     * If it is wider, it is moved left over the spaces before the column
+     * (keeping one) as far as needed, and otherwise left to overflow.
+     */
+    private EscPosEncoder alignRight(int start, int width) {
+        int written = buffer.position() - start;
+        if (written >= width) {
+            byte[] array = buffer.array();
+            int spaces = 0;
+            while (start - spaces > 0 && array[start - spaces - 1] == SPACE) {
+                spaces++;
+            }
+            int shift = Math.min(written - width, Math.max(0, spaces - 1));
+            if (shift > 0) {
+                System.arraycopy(array, start, array, start - shift, written);
+                buffer.position(start - shift + written);
+            }
+            return this;
+        }
+        int padding = width - written;
+        ensureCapacity(padding);
+        byte[] array = buffer.array();
+        System.arraycopy(array, start, array, start + padding, written);
+        for (int i = start; i < start + padding; i++) {
+            array[i] = SPACE;
+        }
+        buffer.position(start + width);
+        return this;
+    }
+
+    private void putDigits(long value) {
+        if (value >= 10) {
+            putDigits(value / 10);
+        }
+        buffer.put((byte) ('0' + value % 10));
+    }
+
+    private void putChar(char c) {
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c == '₹') {
+            buffer.put((byte) 'R').put((byte) 's');
+        } else {
+            // Strip accents: "é" decomposes to "e" + combining mark
+            String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            char base = decomposed.charAt(0);
+            buffer.put(base < 0x80 ? (byte) base : (byte) '?');
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (buffer.remaining() < extra) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + extra));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+}
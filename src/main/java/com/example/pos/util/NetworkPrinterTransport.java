@@ -0,0 +1,95 @@
+package com.example.pos.util;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Sends raw ESC/POS bytes to a network receipt printer over TCP (raw port
+ * 9100), without going through a print service.
+ *
+ * One connection per job: it is opened, the whole job written and the
+ * connection closed, since most printers only serve one client at a time.
+ * Connecting and writing are bounded by the timeout, so an unplugged printer
+ * fails the job instead of hanging the spooler.
+ */
+public class NetworkPrinterTransport implements PrintSpooler.PrintSink {
+
+    public static final int DEFAULT_PORT = 9100;
+
+    private final InetSocketAddress address;
+    private final long timeoutMillis;
+
+    public NetworkPrinterTransport(String host, int port, long timeoutMillis) {
+        // Resolved per connection so a printer's DHCP address change is picked up
+        this.address = InetSocketAddress.createUnresolved(host, port);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Parse "host" or "host:port"
+     */
+    public static NetworkPrinterTransport forAddress(String hostAndPort, long timeoutMillis) {
+        String value = hostAndPort.trim();
+        int colon = value.lastIndexOf(':');
+        if (colon > 0 && value.indexOf(':') == colon) {
+            return new NetworkPrinterTransport(value.substring(0, colon),
+                Integer.parseInt(value.substring(colon + 1)), timeoutMillis);
+        }
+        return new NetworkPrinterTransport(value, DEFAULT_PORT, timeoutMillis);
+    }
+
+    public String describe() {
+        return address.getHostString() + ":" + address.getPort();
+    }
+
+    @Override
+    public void send(byte[] data) throws IOException {
+        send(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Write the remaining bytes of data to the printer
+     */
+    public void send(ByteBuffer data) throws IOException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        InetSocketAddress resolved = new InetSocketAddress(address.getHostString(), address.getPort());
+        if (resolved.isUnresolved()) {
+            throw new IOException("Unknown printer host " + address.getHostString());
+        }
+
+        try (Selector selector = Selector.open();
+             SocketChannel channel = SocketChannel.open()) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, 0);
+
+            if (!channel.connect(resolved)) {
+                key.interestOps(SelectionKey.OP_CONNECT);
+                while (!channel.finishConnect()) {
+                    await(selector, deadline, "connecting to");
+                }
+            }
+
+            key.interestOps(SelectionKey.OP_WRITE);
+            while (data.hasRemaining()) {
+                // Normally the whole job goes out in this first write
+                if (channel.write(data) == 0) {
+                    await(selector, deadline, "writing to");
+                }
+            }
+        }
+    }
+
+    private void await(Selector selector, long deadline, String action) throws IOException {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0 || selector.select(remaining) == 0 && System.currentTimeMillis() >= deadline) {
+            throw new SocketTimeoutException("Timed out " + action + " printer " + describe());
+        }
+        selector.selectedKeys().clear();
+    }
+}
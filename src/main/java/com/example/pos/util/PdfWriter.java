@@ -0,0 +1,191 @@
+package com.example.pos.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Minimal streaming PDF writer for text reports.
+ *
+ * Each page is written to the output as soon as it is finished, so only the
+ * current page's content is held in memory; the writer keeps just the byte
+ * offset of every object for the cross-reference table. Uses the standard
+ * Helvetica fonts with WinAnsi encoding, so characters outside Latin-1 are
+ * replaced (the rupee sign becomes "Rs.").
+ */
+public class PdfWriter implements Closeable {
+
+    public static final float PAGE_WIDTH = 595f;  // A4 in points
+    public static final float PAGE_HEIGHT = 842f;
+
+    public enum Font { REGULAR, BOLD }
+
+    private static final int CATALOG_ID = 1;
+    private static final int PAGES_ID = 2;
+    private static final int FONT_REGULAR_ID = 3;
+    private static final int FONT_BOLD_ID = 4;
+
+    private final CountingOutputStream out;
+    private final List<Long> offsets = new ArrayList<>();
+    private final List<Integer> pageIds = new ArrayList<>();
+    private StringBuilder content;
+
+    public PdfWriter(OutputStream target) throws IOException {
+        this.out = new CountingOutputStream(new BufferedOutputStream(target, 64 * 1024));
+        // Object 0 is the free-list head; 1-4 are the fixed objects above
+        for (int id = 0; id <= FONT_BOLD_ID; id++) {
+            offsets.add(0L);
+        }
+
+        write("%PDF-1.4\n%âãÏÓ\n");
+        beginObject(CATALOG_ID);
+        write("<< /Type /Catalog /Pages " + PAGES_ID + " 0 R >>\nendobj\n");
+        beginObject(FONT_REGULAR_ID);
+        write("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>\nendobj\n");
+        beginObject(FONT_BOLD_ID);
+        write("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>\nendobj\n");
+    }
+
+    public void beginPage() {
+        if (content != null) {
+            throw new IllegalStateException("Previous page not finished");
+        }
+        content = new StringBuilder(8 * 1024);
+    }
+
+    /**
+     * Draw text with its baseline at (x, y), measured from the bottom-left corner
+     */
+    public void text(float x, float y, Font font, float size, String text) {
+        content.append("BT /").append(font == Font.BOLD ? "F2 " : "F1 ").append(fmt(size)).append(" Tf ")
+               .append(fmt(x)).append(' ').append(fmt(y)).append(" Td (");
+        appendEscaped(text);
+        content.append(") Tj ET\n");
+    }
+
+    public void line(float x1, float y1, float x2, float y2, float width) {
+        content.append(fmt(width)).append(" w ")
+               .append(fmt(x1)).append(' ').append(fmt(y1)).append(" m ")
+               .append(fmt(x2)).append(' ').append(fmt(y2)).append(" l S\n");
+    }
+
+    /**
+     * Compress the current page's content and write it and the page object out
+     */
+    public void endPage() throws IOException {
+        byte[] raw = content.toString().getBytes(StandardCharsets.ISO_8859_1);
+        content = null;
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 3 + 64);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+            deflater.write(raw);
+        }
+
+        int contentId = nextId();
+        beginObject(contentId);
+        write("<< /Length " + compressed.size() + " /Filter /FlateDecode >>\nstream\n");
+        compressed.writeTo(out);
+        write("\nendstream\nendobj\n");
+
+        int pageId = nextId();
+        beginObject(pageId);
+        write("<< /Type /Page /Parent " + PAGES_ID + " 0 R /MediaBox [0 0 "
+                + fmt(PAGE_WIDTH) + " " + fmt(PAGE_HEIGHT) + "] "
+                + "/Resources << /Font << /F1 " + FONT_REGULAR_ID + " 0 R /F2 " + FONT_BOLD_ID + " 0 R >> >> "
+                + "/Contents " + contentId + " 0 R >>\nendobj\n");
+        pageIds.add(pageId);
+    }
+
+    public int getPageCount() {
+        return pageIds.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (content != null) {
+            endPage();
+        }
+        if (pageIds.isEmpty()) {
+            beginPage();
+            endPage(); // a PDF needs at least one page
+        }
+
+        beginObject(PAGES_ID);
+        StringBuilder kids = new StringBuilder();
+        for (int id : pageIds) {
+            kids.append(id).append(" 0 R ");
+        }
+        write("<< /Type /Pages /Count " + pageIds.size() + " /Kids [" + kids + "] >>\nendobj\n");
+
+        long xrefOffset = out.count;
+        StringBuilder xref = new StringBuilder("xref\n0 ").append(offsets.size()).append('\n');
+        xref.append("0000000000 65535 f \n");
+        for (int i = 1; i < offsets.size(); i++) {
+            xref.append(String.format("%010d 00000 n \n", offsets.get(i)));
+        }
+        write(xref.toString());
+        write("trailer\n<< /Size " + offsets.size() + " /Root " + CATALOG_ID + " 0 R >>\nstartxref\n"
+                + xrefOffset + "\n%%EOF\n");
+        out.close();
+    }
+
+    private int nextId() {
+        offsets.add(0L);
+        return offsets.size() - 1;
+    }
+
+    private void beginObject(int id) throws IOException {
+        offsets.set(id, out.count);
+        write(id + " 0 obj\n");
+    }
+
+    private void write(String s) throws IOException {
+        out.write(s.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void appendEscaped(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '(', ')', '\\' -> content.append('\\').append(c);
+                case '₹' -> content.append("Rs.");
+                default -> content.append(c >= 0x20 && c <= 0xff ? c : '?');
+            }
+        }
+    }
+
+    private static String fmt(float value) {
+        return value == (int) value ? Integer.toString((int) value) : String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    /**
+     * Tracks bytes written so object offsets can be recorded for the xref table
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
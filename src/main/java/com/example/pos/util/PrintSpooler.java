@@ -0,0 +1,388 @@
+package com.example.pos.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Background print queue so a slow or offline printer never holds up billing.
+ *
+ * Each printer has its own bounded queue (-Dpos.print.queueSize, default 32)
+ * and worker thread, so jobs for one printer print in order and a stuck
+ * printer does not delay another. A job is written to a spool file under
+ * ~/.pos/spool/&lt;printer&gt; before it is queued, so jobs still waiting when
+ * the app exits or crashes are printed after the next start. A job that was
+ * being sent at a crash may print twice.
+ *
+ * Failed sends are retried with backoff (1s doubling to 30s) up to
+ * MAX_ATTEMPTS times. The spool file is deleted only once the job prints or
+ * is cancelled: a job that failed keeps it until it is resubmitted, and is
+ * otherwise printed again after the next start.
+ *
+ * Status changes go to the job's listener on the worker thread, so UI code
+ * must hop to the FX thread itself. Jobs recovered from the spool have no
+ * listener of their own and report to the printer's listeners (onStatus)
+ * instead; a failure reported before any listener was added is passed to the
+ * first one added.
+ */
+public class PrintSpooler {
+
+    private static final PrintSpooler INSTANCE = new PrintSpooler(
+        Paths.get(System.getProperty("user.home"), ".pos", "spool"),
+        Integer.getInteger("pos.print.queueSize", 32));
+
+    static final int MAX_ATTEMPTS = 5;
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final String SPOOL_SUFFIX = ".job";
+
+    private final Path spoolRoot;
+    private final int queueSize;
+    private final Map<String, Worker> workers = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<PrintJob>>> printerListeners = new ConcurrentHashMap<>();
+    // Failures of recovered jobs that no printer listener has seen yet
+    private final List<PrintJob> unannouncedFailures = new ArrayList<>();
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    PrintSpooler(Path spoolRoot, int queueSize) {
+        this.spoolRoot = spoolRoot;
+        this.queueSize = queueSize;
+    }
+
+    public static PrintSpooler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start a worker for a printer and queue any jobs spooled for it before
+     * the last exit. Registering a name again replaces how it is sent to.
+     */
+    public synchronized void registerPrinter(String printer, PrintSink sink) {
+        Worker worker = workers.computeIfAbsent(printer, name -> new Worker(name, sink));
+        worker.sink = sink;
+        if (!worker.isAlive()) {
+            worker.recover();
+            worker.start();
+        }
+    }
+
+    public boolean hasPrinter(String printer) {
+        return workers.containsKey(printer);
+    }
+
+    /**
+     * Spool and queue a job. Returns at once; the job is already FAILED if the
+     * printer is unknown or its queue is full.
+     */
+    public PrintJob submit(String printer, String description, byte[] data, Consumer<PrintJob> onStatus) {
+        return submit(new PrintJob(sequence.incrementAndGet(), printer, description, data, onStatus));
+    }
+
+    /**
+     * Queue a failed job again, e.g. after the printer was fixed. The new job
+     * takes over the failed one's spool file.
+     */
+    public PrintJob resubmit(PrintJob failed) {
+        PrintJob job = new PrintJob(sequence.incrementAndGet(), failed.printer, failed.description,
+            failed.data, failed.onStatus);
+        synchronized (failed) {
+            job.spoolFile = failed.spoolFile;
+            failed.spoolFile = null;
+        }
+        return submit(job);
+    }
+
+    /**
+     * Give up on a failed job for good, deleting its spool file so it is not
+     * printed after the next start
+     */
+    public void cancel(PrintJob failed) {
+        synchronized (failed) {
+            deleteSpoolFile(failed);
+        }
+    }
+
+    /**
+     * Called on the worker thread with each status change of a job for
+     * printer that was recovered from the spool after a restart. Failures
+     * reported before the first listener was added are passed to it at once.
+     * Returns a handle that removes the listener.
+     */
+    public Runnable onStatus(String printer, Consumer<PrintJob> listener) {
+        List<Consumer<PrintJob>> listeners = listenersFor(printer);
+        List<PrintJob> missed = new ArrayList<>();
+        synchronized (unannouncedFailures) {
+            listeners.add(listener);
+            unannouncedFailures.removeIf(job -> job.printer.equals(printer) && missed.add(job));
+        }
+        missed.forEach(job -> notifyListener(listener, job));
+        return () -> listeners.remove(listener);
+    }
+
+    /**
+     * Jobs waiting or printing for a printer
+     */
+    public int queueDepth(String printer) {
+        Worker worker = workers.get(printer);
+        return worker != null ? worker.queue.size() + (worker.printing != null ? 1 : 0) : 0;
+    }
+
+    private PrintJob submit(PrintJob job) {
+        Worker worker = workers.get(job.printer);
+        if (worker == null) {
+            job.update(JobStatus.FAILED, "Printer '" + job.printer + "' is not set up");
+            return job;
+        }
+        worker.enqueue(job);
+        return job;
+    }
+
+    private List<Consumer<PrintJob>> listenersFor(String printer) {
+        return printerListeners.computeIfAbsent(printer, name -> new CopyOnWriteArrayList<>());
+    }
+
+    /**
+     * Status listener of recovered jobs: passes the change to the printer's
+     * listeners, or keeps a failure for the first one added
+     */
+    private void announce(PrintJob job) {
+        List<Consumer<PrintJob>> listeners = listenersFor(job.printer);
+        synchronized (unannouncedFailures) {
+            if (listeners.isEmpty()) {
+                if (job.status == JobStatus.FAILED) {
+                    unannouncedFailures.add(job);
+                }
+                return;
+            }
+        }
+        listeners.forEach(listener -> notifyListener(listener, job));
+    }
+
+    private static void notifyListener(Consumer<PrintJob> listener, PrintJob job) {
+        try {
+            listener.accept(job);
+        } catch (RuntimeException e) {
+            System.err.println("Print job listener failed: " + e.getMessage());
+        }
+    }
+
+    private static void deleteSpoolFile(PrintJob job) {
+        if (job.spoolFile != null) {
+            deleteQuietly(job.spoolFile);
+            job.spoolFile = null;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("⚠ Could not delete spool file " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sends raw job bytes to a printer
+     */
+    @FunctionalInterface
+    public interface PrintSink {
+        void send(byte[] data) throws Exception;
+    }
+
+    public enum JobStatus {
+        QUEUED, PRINTING, RETRYING, PRINTED, FAILED
+    }
+
+    /**
+     * A queued print job. Status fields are updated by the worker.
+     */
+    public static final class PrintJob {
+        private final long id;
+        private final String printer;
+        private final String description;
+        private final byte[] data;
+        private final Consumer<PrintJob> onStatus;
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile int attempts;
+        private volatile String lastError;
+        private Path spoolFile;
+
+        private PrintJob(long id, String printer, String description, byte[] data, Consumer<PrintJob> onStatus) {
+            this.id = id;
+            this.printer = printer;
+            this.description = description;
+            this.data = data;
+            this.onStatus = onStatus;
+        }
+
+        public long id() { return id; }
+        public String printer() { return printer; }
+        public String description() { return description; }
+        public JobStatus status() { return status; }
+        public int attempts() { return attempts; }
+        public String lastError() { return lastError; }
+
+        private void update(JobStatus next, String error) {
+            status = next;
+            lastError = error;
+            if (onStatus != null) {
+                notifyListener(onStatus, this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return description + " [" + status + (lastError != null ? ": " + lastError : "") + "]";
+        }
+    }
+
+    private final class Worker extends Thread {
+        private final BlockingQueue<PrintJob> queue = new LinkedBlockingQueue<>(queueSize);
+        private final String printer;
+        private final Path directory;
+        private volatile PrintSink sink;
+        private volatile PrintJob printing;
+
+        Worker(String printer, PrintSink sink) {
+            super("print-spooler-" + printer);
+            setDaemon(true);
+            this.printer = printer;
+            this.directory = spoolRoot.resolve(printer.replaceAll("[^A-Za-z0-9._-]", "_"));
+            this.sink = sink;
+        }
+
+        void enqueue(PrintJob job) {
+            if (job.spoolFile == null) {
+                try {
+                    job.spoolFile = writeSpoolFile(job);
+                } catch (IOException e) {
+                    // Still print it, just without crash safety
+                    System.err.println("⚠ Could not spool " + job.description + ": " + e.getMessage());
+                }
+            }
+            job.update(JobStatus.QUEUED, null);
+            if (!queue.offer(job)) {
+                // The spool file stays, so the job is not lost
+                job.update(JobStatus.FAILED, "Print queue is full");
+            }
+        }
+
+        /**
+         * Queue jobs left in the spool directory, oldest first
+         */
+        void recover() {
+            if (!Files.isDirectory(directory)) {
+                return;
+            }
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SPOOL_SUFFIX)) {
+                stream.forEach(files::add);
+            } catch (IOException e) {
+                System.err.println("⚠ Could not read print spool " + directory + ": " + e.getMessage());
+                return;
+            }
+            files.sort(null);
+            for (Path file : files) {
+                try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+                    String description = in.readUTF();
+                    byte[] data = in.readNBytes(in.readInt());
+                    PrintJob job = new PrintJob(sequence.incrementAndGet(), printer, description, data,
+                        PrintSpooler.this::announce);
+                    job.spoolFile = file;
+                    if (!queue.offer(job)) {
+                        System.err.println("⚠ Print queue full; " + (files.size() - files.indexOf(file))
+                            + " spooled jobs left for the next start");
+                        return;
+                    }
+                    System.out.println("✓ Reprinting spooled job: " + description);
+                } catch (IOException e) {
+                    System.err.println("⚠ Discarding unreadable spool file " + file + ": " + e.getMessage());
+                    deleteQuietly(file);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                PrintJob job;
+                try {
+                    job = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                printing = job;
+                try {
+                    print(job);
+                } finally {
+                    printing = null;
+                }
+            }
+        }
+
+        private void print(PrintJob job) {
+            long backoff = INITIAL_BACKOFF_MS;
+            while (true) {
+                job.attempts++;
+                job.update(JobStatus.PRINTING, null);
+                try {
+                    sink.send(job.data);
+                    synchronized (job) {
+                        deleteSpoolFile(job);
+                    }
+                    job.update(JobStatus.PRINTED, null);
+                    return;
+                } catch (Exception e) {
+                    String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                    if (job.attempts >= MAX_ATTEMPTS) {
+                        // The spool file stays until the job is resubmitted or cancelled
+                        System.err.println("✗ Giving up on " + job.description + " after " + job.attempts
+                            + " attempts: " + error);
+                        job.update(JobStatus.FAILED, error);
+                        return;
+                    }
+                    System.err.println("⚠ Printing " + job.description + " failed (" + error + "), retrying in "
+                        + backoff + " ms");
+                    job.update(JobStatus.RETRYING, error);
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return; // spool file stays for the next start
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+
+        private Path writeSpoolFile(PrintJob job) throws IOException {
+            Files.createDirectories(directory);
+            // Zero-padded ids sort in submission order on recovery
+            Path file = directory.resolve(String.format("%020d", job.id) + SPOOL_SUFFIX);
+            Path temp = directory.resolve(file.getFileName() + ".tmp");
+            try (OutputStream raw = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(raw)) {
+                out.writeUTF(job.description);
+                out.writeInt(job.data.length);
+                out.write(job.data);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return file;
+        }
+    }
+}
@@ -2,56 +2,90 @@ package com.example.pos.util;
 
 import com.example.pos.model.RestaurantInfo;
 import com.example.pos.service.RestaurantInfoService;
+import com.example.pos.util.EscPosEncoder.Align;
 
 import javax.print.*;
 import javax.print.attribute.HashPrintRequestAttributeSet;
 import javax.print.attribute.PrintRequestAttributeSet;
 import javax.print.attribute.standard.Copies;
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Thermal Printer Utility for 3-inch (80mm) receipt printers
  * Supports ESC/POS commands for formatting
+ *
+ * Receipts are encoded straight to ESC/POS bytes. With -Dpos.printer.address=host[:port]
+ * they go to a network printer over raw TCP (port 9100 by default); otherwise
+ * to the local thermal printer, or the default printer, through javax.print.
  */
 public class ThermalPrinter {
     
-    // ESC/POS Commands
-    private static final byte ESC = 0x1B;
-    private static final byte GS = 0x1D;
+    // Width for 3-inch (80mm) printer - approximately 42 characters
+    private static final int PAPER_WIDTH = 42;
     
-    // Text alignment
-    private static final String ALIGN_LEFT = new String(new char[]{0x1B, 0x61, 0x00});
-    private static final String ALIGN_CENTER = new String(new char[]{0x1B, 0x61, 0x01});
-    private static final String ALIGN_RIGHT = new String(new char[]{0x1B, 0x61, 0x02});
+    /** Spooler name of the receipt printer */
+    public static final String RECEIPT_PRINTER = "receipt";
+    // Network printer as host[:port]; otherwise the local thermal/default printer
+    private static final String NETWORK_PRINTER = System.getProperty("pos.printer.address");
+    private static final long NETWORK_TIMEOUT_MS = Long.getLong("pos.printer.timeoutMs", 5000L);
+    private static final PrintSpooler.PrintSink RECEIPT_SINK = NETWORK_PRINTER != null && !NETWORK_PRINTER.isBlank()
+            ? NetworkPrinterTransport.forAddress(NETWORK_PRINTER, NETWORK_TIMEOUT_MS)
+            : ThermalPrinter::sendRaw;
+    private static final ThreadLocal<EscPosEncoder> ENCODER = ThreadLocal.withInitial(EscPosEncoder::new);
     
-    // Text size
-    private static final String SIZE_NORMAL = new String(new char[]{0x1D, 0x21, 0x00});
-    private static final String SIZE_DOUBLE = new String(new char[]{0x1D, 0x21, 0x11});
-    private static final String SIZE_LARGE = new String(new char[]{0x1D, 0x21, 0x22});
+    // Resolved once and reused; cleared when a print to it fails
+    private static volatile PrintService cachedPrinter;
+    // Restaurant name/address block, encoded once and replaced on save
+    private static final AtomicReference<byte[]> cachedHeader = new AtomicReference<>();
     
-    // Text style
-    private static final String BOLD_ON = new String(new char[]{0x1B, 0x45, 0x01});
-    private static final String BOLD_OFF = new String(new char[]{0x1B, 0x45, 0x00});
+    private final RestaurantInfoService restaurantInfoService = new RestaurantInfoService();
     
-    // Line feed
-    private static final String LINE_FEED = "\n";
-    private static final String CUT_PAPER = new String(new char[]{0x1D, 0x56, 0x41, 0x03});
+    /**
+     * Re-encode the receipt header, e.g. after restaurant details were saved
+     */
+    public static void refreshHeader(RestaurantInfo info) {
+        cachedHeader.set(encodeHeader(info));
+    }
     
-    // Width for 3-inch (80mm) printer - approximately 42 characters
-    private static final int PAPER_WIDTH = 42;
+    /**
+     * Start the receipt printer's spooler, printing any receipts left queued
+     * when the app last exited
+     */
+    public static void startSpooler() {
+        PrintSpooler.getInstance().registerPrinter(RECEIPT_PRINTER, RECEIPT_SINK);
+    }
     
-    private final RestaurantInfoService restaurantInfoService = new RestaurantInfoService();
+    /**
+     * Look up the local print service ahead of the first receipt, since the
+     * lookup can take seconds. Nothing to do for a network printer.
+     */
+    public static void preloadPrinter() {
+        if (NETWORK_PRINTER == null || NETWORK_PRINTER.isBlank()) {
+            resolvePrinter();
+        }
+    }
+    
+    /**
+     * Queue a bill receipt on the spooler and return without waiting for the
+     * printer. onStatus receives the job's status changes on the spooler thread.
+     */
+    public PrintSpooler.PrintJob spoolBill(BillData billData, Consumer<PrintSpooler.PrintJob> onStatus) {
+        if (!PrintSpooler.getInstance().hasPrinter(RECEIPT_PRINTER)) {
+            startSpooler(); // startup did not get to it
+        }
+        byte[] receipt = generateReceipt(billData);
+        return PrintSpooler.getInstance().submit(RECEIPT_PRINTER, "Bill #" + billData.getBillNumber(), receipt, onStatus);
+    }
     
     /**
      * Print a bill receipt
      */
     public boolean printBill(BillData billData) {
         try {
-            String receipt = generateReceipt(billData);
-            return sendToPrinter(receipt);
+            RECEIPT_SINK.send(generateReceipt(billData));
+            return true;
         } catch (Exception e) {
             System.err.println("Error printing bill: " + e.getMessage());
             e.printStackTrace();
@@ -60,185 +94,212 @@ public class ThermalPrinter {
     }
     
     /**
-     * Generate receipt content
+     * Generate receipt content as ESC/POS bytes
      */
-    private String generateReceipt(BillData billData) {
-        StringBuilder receipt = new StringBuilder();
-        
-        // Get restaurant info
-        RestaurantInfo info = restaurantInfoService.getRestaurantInfo();
-        
-        // Header - Restaurant Info
-        receipt.append(ALIGN_CENTER).append(SIZE_DOUBLE).append(BOLD_ON);
-        receipt.append(info != null ? info.getName() : "RESTAURANT POS").append(LINE_FEED);
-        receipt.append(BOLD_OFF).append(SIZE_NORMAL);
-        
-        if (info != null) {
-            receipt.append(info.getAddress()).append(LINE_FEED);
-            receipt.append(info.getCity()).append(", ").append(info.getState()).append(LINE_FEED);
-            receipt.append("PHONE: ").append(info.getContactNumber()).append(LINE_FEED);
-            if (info.getGstin() != null && !info.getGstin().isEmpty()) {
-                receipt.append("GSTIN: ").append(info.getGstin()).append(LINE_FEED);
-            }
-            if (info.getFssaiLicense() != null && !info.getFssaiLicense().isEmpty()) {
-                receipt.append("FSSAI: ").append(info.getFssaiLicense()).append(LINE_FEED);
-            }
-        }
-        
-        receipt.append(LINE_FEED);
-        receipt.append(BOLD_ON).append("Retail Invoice").append(BOLD_OFF).append(LINE_FEED);
-        receipt.append(printLine()).append(LINE_FEED);
+    byte[] generateReceipt(BillData billData) {
+        EscPosEncoder receipt = ENCODER.get().reset();
+        receipt.raw(receiptHeader());
         
         // Date and Time
-        receipt.append(ALIGN_LEFT);
-        receipt.append("Date: ").append(billData.getDate()).append(LINE_FEED);
-        receipt.append(LINE_FEED);
+        receipt.align(Align.LEFT);
+        receipt.text("Date: ").line(billData.getDate());
+        receipt.newline();
         
         // Customer Name
         if (billData.getCustomerName() != null && !billData.getCustomerName().isEmpty()) {
-            receipt.append(billData.getCustomerName()).append(LINE_FEED);
-            receipt.append(LINE_FEED);
+            receipt.line(billData.getCustomerName());
+            receipt.newline();
         }
         
         // Bill Number and Payment Mode
-        receipt.append("Bill No: ").append(billData.getBillNumber()).append(LINE_FEED);
-        receipt.append("Payment Mode: ").append(billData.getPaymentMode()).append(LINE_FEED);
+        receipt.text("Bill No: ").line(billData.getBillNumber());
+        receipt.text("Payment Mode: ").line(billData.getPaymentMode());
         
         // Table info if available
         if (billData.getTableName() != null && !billData.getTableName().isEmpty()) {
-            receipt.append("Table: ").append(billData.getTableName()).append(LINE_FEED);
+            receipt.text("Table: ").line(billData.getTableName());
         }
         
         // Order Type
-        receipt.append("Order Type: ").append(billData.getOrderType()).append(LINE_FEED);
-        receipt.append(printLine()).append(LINE_FEED);
+        receipt.text("Order Type: ").line(billData.getOrderType());
+        printLine(receipt);
         
         // Items Header
-        receipt.append(BOLD_ON);
-        receipt.append(padRight("Item", 20)).append(padLeft("Qty", 8)).append(padLeft("Amt", 14)).append(LINE_FEED);
-        receipt.append(BOLD_OFF);
-        receipt.append(printLine()).append(LINE_FEED);
+        receipt.bold(true);
+        receipt.padRight("Item", 20).padLeft("Qty", 8).padLeft("Amt", 14).newline();
+        receipt.bold(false);
+        printLine(receipt);
         
         // Items
         for (BillItem item : billData.getItems()) {
-            String itemName = truncate(item.getName(), 20);
-            receipt.append(padRight(itemName, 20));
-            receipt.append(padLeft(String.valueOf(item.getQuantity()), 8));
-            receipt.append(padLeft(String.format("%.2f", item.getTotal()), 14));
-            receipt.append(LINE_FEED);
+            receipt.padRight(truncate(item.getName(), 20), 20);
+            receipt.padLeft(Integer.toString(item.getQuantity()), 8);
+            receipt.amount(item.getTotal(), 14);
+            receipt.newline();
         }
         
-        receipt.append(printLine()).append(LINE_FEED);
+        printLine(receipt);
         
         // Totals
-        receipt.append(padRight("Sub Total", 28)).append(padLeft(String.format("%.2f", billData.getSubtotal()), 14)).append(LINE_FEED);
+        receipt.padRight("Sub Total", 28).amount(billData.getSubtotal(), 14).newline();
         
         // Discount if any
         if (billData.getDiscount() > 0) {
-            receipt.append(padRight("(-) Discount", 28)).append(padLeft(String.format("%.2f", billData.getDiscount()), 14)).append(LINE_FEED);
+            receipt.padRight("(-) Discount", 28).amount(billData.getDiscount(), 14).newline();
         }
         
         // Tax breakdown
         if (billData.getCgst() > 0) {
-            receipt.append(padRight("CGST @ " + billData.getTaxRate()/2 + "%", 28))
-                   .append(padLeft(String.format("%.2f", billData.getCgst()), 14)).append(LINE_FEED);
+            receipt.padRight("CGST @ " + billData.getTaxRate()/2 + "%", 28).amount(billData.getCgst(), 14).newline();
         }
         if (billData.getSgst() > 0) {
-            receipt.append(padRight("SGST @ " + billData.getTaxRate()/2 + "%", 28))
-                   .append(padLeft(String.format("%.2f", billData.getSgst()), 14)).append(LINE_FEED);
+            receipt.padRight("SGST @ " + billData.getTaxRate()/2 + "%", 28).amount(billData.getSgst(), 14).newline();
         }
         
-        receipt.append(printLine()).append(LINE_FEED);
+        printLine(receipt);
         
         // Total
-        receipt.append(BOLD_ON).append(SIZE_DOUBLE);
-        receipt.append(padRight("TOTAL", 21)).append(padLeft("Rs " + String.format("%.2f", billData.getTotal()), 21)).append(LINE_FEED);
-        receipt.append(SIZE_NORMAL).append(BOLD_OFF);
-        receipt.append(printLine()).append(LINE_FEED);
+        receipt.bold(true).size(EscPosEncoder.SIZE_DOUBLE);
+        receipt.padRight("TOTAL", 21).amount("Rs ", billData.getTotal(), 21).newline();
+        receipt.size(EscPosEncoder.SIZE_NORMAL).bold(false);
+        printLine(receipt);
         
         // Payment details
-        receipt.append(padRight(billData.getPaymentMode() + ":", 28))
-               .append(padLeft("Rs " + String.format("%.2f", billData.getTotal()), 14)).append(LINE_FEED);
+        receipt.padRight(billData.getPaymentMode() + ":", 28)
+               .amount("Rs ", billData.getTotal(), 14).newline();
         
         if (billData.getCashTendered() > 0) {
-            receipt.append(padRight("Cash tendered:", 28))
-                   .append(padLeft("Rs " + String.format("%.2f", billData.getCashTendered()), 14)).append(LINE_FEED);
+            receipt.padRight("Cash tendered:", 28)
+                   .amount("Rs ", billData.getCashTendered(), 14).newline();
             double change = billData.getCashTendered() - billData.getTotal();
             if (change > 0) {
-                receipt.append(padRight("Change:", 28))
-                       .append(padLeft("Rs " + String.format("%.2f", change), 14)).append(LINE_FEED);
+                receipt.padRight("Change:", 28)
+                       .amount("Rs ", change, 14).newline();
             }
         }
         
-        receipt.append(LINE_FEED);
+        receipt.newline();
         
         // Footer
-        receipt.append(ALIGN_CENTER);
-        receipt.append("E & O.E").append(LINE_FEED);
-        receipt.append(LINE_FEED);
-        receipt.append("Thank you! Visit again!").append(LINE_FEED);
-        receipt.append(LINE_FEED);
-        receipt.append(LINE_FEED);
-        receipt.append(LINE_FEED);
+        receipt.align(Align.CENTER);
+        receipt.line("E & O.E");
+        receipt.newline();
+        receipt.line("Thank you! Visit again!");
+        receipt.newline();
+        receipt.newline();
+        receipt.newline();
         
         // Cut paper
-        receipt.append(CUT_PAPER);
+        receipt.cut();
         
-        return receipt.toString();
+        return receipt.toByteArray();
     }
     
     /**
-     * Send receipt to printer
+     * Header bytes, loading restaurant info the first time. Without saved
+     * info a generic header is used and not cached, so it is looked up again.
      */
-    private boolean sendToPrinter(String receipt) {
-        try {
-            // Find thermal printer
-            PrintService printer = findThermalPrinter();
-            
-            if (printer == null) {
-                System.err.println("No thermal printer found. Using default printer.");
-                printer = PrintServiceLookup.lookupDefaultPrintService();
+    private byte[] receiptHeader() {
+        byte[] header = cachedHeader.get();
+        if (header == null) {
+            RestaurantInfo info = restaurantInfoService.getRestaurantInfo();
+            header = encodeHeader(info);
+            // Only if still unset: a refreshHeader() meanwhile has newer details
+            if (info != null) {
+                cachedHeader.compareAndSet(null, header);
             }
-            
-            if (printer == null) {
-                System.err.println("No printer available!");
-                return false;
+        }
+        return header;
+    }
+    
+    private static byte[] encodeHeader(RestaurantInfo info) {
+        EscPosEncoder header = new EscPosEncoder(512);
+        
+        // Header - Restaurant Info
+        header.initialize();
+        header.align(Align.CENTER).size(EscPosEncoder.SIZE_DOUBLE).bold(true);
+        header.line(info != null ? info.getName() : "RESTAURANT POS");
+        header.bold(false).size(EscPosEncoder.SIZE_NORMAL);
+        
+        if (info != null) {
+            header.line(info.getAddress());
+            header.text(info.getCity()).text(", ").line(info.getState());
+            header.text("PHONE: ").line(info.getContactNumber());
+            if (info.getGstin() != null && !info.getGstin().isEmpty()) {
+                header.text("GSTIN: ").line(info.getGstin());
             }
-            
-            System.out.println("Printing to: " + printer.getName());
-            
-            // Create print job
-            DocPrintJob job = printer.createPrintJob();
-            
-            // Convert string to bytes
-            byte[] bytes = receipt.getBytes(StandardCharsets.UTF_8);
-            InputStream is = new ByteArrayInputStream(bytes);
-            
-            // Create document
-            DocFlavor flavor = DocFlavor.INPUT_STREAM.AUTOSENSE;
-            Doc doc = new SimpleDoc(is, flavor, null);
-            
-            // Print attributes
-            PrintRequestAttributeSet attrs = new HashPrintRequestAttributeSet();
-            attrs.add(new Copies(1));
-            
-            // Print
+            if (info.getFssaiLicense() != null && !info.getFssaiLicense().isEmpty()) {
+                header.text("FSSAI: ").line(info.getFssaiLicense());
+            }
+        }
+        
+        header.newline();
+        header.bold(true).text("Retail Invoice").bold(false).newline();
+        printLine(header);
+        return header.toByteArray();
+    }
+    
+    /**
+     * Send raw bytes to the thermal printer (or the default printer),
+     * throwing if there is none or the job is rejected
+     */
+    static void sendRaw(byte[] bytes) throws PrintException {
+        PrintService printer = resolvePrinter();
+        
+        if (printer == null) {
+            throw new PrintException("No printer available");
+        }
+        
+        // Create print job
+        DocPrintJob job = printer.createPrintJob();
+        
+        // Create document; the bytes are already ESC/POS
+        DocFlavor flavor = DocFlavor.BYTE_ARRAY.AUTOSENSE;
+        Doc doc = new SimpleDoc(bytes, flavor, null);
+        
+        // Print attributes
+        PrintRequestAttributeSet attrs = new HashPrintRequestAttributeSet();
+        attrs.add(new Copies(1));
+        
+        // Print
+        try {
             job.print(doc, attrs);
-            
-            System.out.println("Print job sent successfully!");
-            return true;
-            
-        } catch (Exception e) {
-            System.err.println("Error sending to printer: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+        } catch (PrintException | RuntimeException e) {
+            // The printer may have been removed or renamed; look it up again next time
+            cachedPrinter = null;
+            throw e;
         }
     }
     
+    /**
+     * The thermal printer, or the default printer if none is found. The
+     * lookup is slow, so the result is kept until a print to it fails.
+     */
+    private static PrintService resolvePrinter() {
+        PrintService printer = cachedPrinter;
+        if (printer != null) {
+            return printer;
+        }
+        
+        // Find thermal printer
+        printer = findThermalPrinter();
+        
+        if (printer == null) {
+            System.err.println("No thermal printer found. Using default printer.");
+            printer = PrintServiceLookup.lookupDefaultPrintService();
+        }
+        
+        if (printer != null) {
+            System.out.println("Printing to: " + printer.getName());
+            cachedPrinter = printer;
+        }
+        return printer;
+    }
+    
     /**
      * Find thermal printer (looks for common thermal printer names)
      */
-    private PrintService findThermalPrinter() {
+    private static PrintService findThermalPrinter() {
         PrintService[] services = PrintServiceLookup.lookupPrintServices(null, null);
         
         // Common thermal printer keywords
@@ -268,18 +329,8 @@ public class ThermalPrinter {
     }
     
     // Helper methods
-    private String printLine() {
-        return "-".repeat(PAPER_WIDTH);
-    }
-    
-    private String padRight(String text, int length) {
-        if (text.length() >= length) return text.substring(0, length);
-        return text + " ".repeat(length - text.length());
-    }
-    
-    private String padLeft(String text, int length) {
-        if (text.length() >= length) return text.substring(0, length);
-        return " ".repeat(length - text.length()) + text;
+    private static void printLine(EscPosEncoder receipt) {
+        receipt.repeat('-', PAPER_WIDTH).newline();
     }
     
     private String truncate(String text, int length) {
@@ -0,0 +1,187 @@
+package com.example.pos.util;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Shared cache of decoded menu image thumbnails, keyed by path and size.
+ *
+ * Files are checked and decoded on background threads, never on the FX
+ * thread; callers show a placeholder and swap the image in when it arrives.
+ * Concurrent requests for the same thumbnail share one decode. Decoded images
+ * are kept in LRU order up to a budget measured in pixels (-Dpos.thumbnails.maxPixels,
+ * default 4M, about 16 MB). Missing or unreadable files are remembered for a
+ * short while (-Dpos.thumbnails.missTtlSeconds, default 15) so they are not
+ * probed again on every redraw, yet an image added later still shows up.
+ */
+public class ThumbnailCache {
+
+    private static final ThumbnailCache INSTANCE = new ThumbnailCache(
+        Long.getLong("pos.thumbnails.maxPixels", 4_000_000L));
+    private static final long MISS_TTL_NANOS =
+        TimeUnit.SECONDS.toNanos(Long.getLong("pos.thumbnails.missTtlSeconds", 15L));
+
+    private final long maxPixels;
+    private long cachedPixels;
+    // Access-ordered for LRU; both maps guarded by this
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<Key, CompletableFuture<Image>> inFlight = new HashMap<>();
+    private final ExecutorService decoder = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "thumbnail-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ThumbnailCache(long maxPixels) {
+        this.maxPixels = maxPixels;
+    }
+
+    public static ThumbnailCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Cached thumbnail, or null if it is not decoded yet or the file has no image
+     */
+    public synchronized Image getIfPresent(String path, int size) {
+        Entry entry = current(new Key(path, size));
+        return entry != null ? entry.image : null;
+    }
+
+    /**
+     * Deliver the thumbnail for path at size (fitting a size x size box) to
+     * onLoaded on the FX thread. Called immediately when cached; otherwise
+     * after a background decode. onLoaded receives null for a blank path or a
+     * missing or unreadable file.
+     */
+    public void load(String path, int size, Consumer<Image> onLoaded) {
+        if (path == null || path.isBlank()) {
+            onLoaded.accept(null);
+            return;
+        }
+        Key key = new Key(path, size);
+        CompletableFuture<Image> pending;
+        synchronized (this) {
+            Entry entry = current(key);
+            if (entry != null) {
+                onLoaded.accept(entry.image);
+                return;
+            }
+            pending = inFlight.get(key);
+            if (pending == null) {
+                CompletableFuture<Image> started = new CompletableFuture<>();
+                inFlight.put(key, started);
+                decoder.execute(() -> decode(key, started));
+                pending = started;
+            }
+        }
+
+        pending.thenAccept(image -> Platform.runLater(() -> onLoaded.accept(image)));
+    }
+
+    /**
+     * Forget every size of a path, e.g. after the file was replaced or the
+     * item saved. A decode already running still answers its callers but is
+     * not cached.
+     */
+    public synchronized void invalidate(String path) {
+        if (path == null) {
+            return;
+        }
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getKey().path.equals(path)) {
+                cachedPixels -= e.getValue().pixels;
+                it.remove();
+            }
+        }
+        inFlight.keySet().removeIf(key -> key.path.equals(path));
+    }
+
+    /**
+     * The entry for key, dropping a remembered miss once it is too old
+     */
+    private Entry current(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.image == null && System.nanoTime() - entry.storedAt > MISS_TTL_NANOS) {
+            entries.remove(key);
+            cachedPixels -= entry.pixels;
+            return null;
+        }
+        return entry;
+    }
+
+    private void decode(Key key, CompletableFuture<Image> pending) {
+        Image image = null;
+        try {
+            File file = new File(key.path);
+            if (file.isFile()) {
+                // Decoded synchronously on this worker thread, scaled while decoding
+                Image decoded = new Image(file.toURI().toString(), key.size, key.size, true, true, false);
+                if (!decoded.isError()) {
+                    image = decoded;
+                } else {
+                    System.err.println("⚠ Could not decode image " + key.path);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("⚠ Could not load image " + key.path + ": " + e.getMessage());
+        }
+
+        synchronized (this) {
+            // Not cached if invalidated meanwhile
+            if (inFlight.remove(key, pending)) {
+                store(key, new Entry(image));
+            }
+        }
+        pending.complete(image);
+    }
+
+    private void store(Key key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            cachedPixels -= previous.pixels;
+        }
+        cachedPixels += entry.pixels;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (cachedPixels > maxPixels && eldest.hasNext()) {
+            Entry evicted = eldest.next();
+            if (evicted == entry) {
+                break; // never evict what was just decoded
+            }
+            cachedPixels -= evicted.pixels;
+            eldest.remove();
+        }
+    }
+
+    private record Key(String path, int size) {
+    }
+
+    /**
+     * A decoded thumbnail, or a remembered miss (image == null)
+     */
+    private static final class Entry {
+        final Image image;
+        final long pixels;
+        final long storedAt = System.nanoTime();
+
+        Entry(Image image) {
+            this.image = image;
+            // Misses cost a nominal pixel so an unbounded number of them cannot pile up
+            this.pixels = image != null ? Math.max(1, (long) (image.getWidth() * image.getHeight())) : 1;
+        }
+    }
+}
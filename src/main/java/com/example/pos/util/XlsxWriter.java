@@ -0,0 +1,203 @@
+package com.example.pos.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Minimal streaming XLSX (Office Open XML) writer for a single worksheet.
+ *
+ * Rows are written straight into the zipped sheet XML as they arrive, using
+ * inline strings instead of a shared-string table, so memory use does not
+ * grow with the number of rows. Supports text, numbers and date-times.
+ */
+public class XlsxWriter implements Closeable {
+
+    // Cell style indexes into cellXfs in styles.xml
+    private static final int STYLE_HEADER = 1;
+    private static final int STYLE_DATE_TIME = 2;
+    private static final int STYLE_AMOUNT = 3;
+
+    private static final LocalDateTime EXCEL_EPOCH = LocalDateTime.of(1899, 12, 30, 0, 0);
+
+    private final ZipOutputStream zip;
+    private final Writer out;
+    private int rowNumber;
+
+    public XlsxWriter(OutputStream target, String sheetName) throws IOException {
+        this.zip = new ZipOutputStream(target, StandardCharsets.UTF_8);
+        this.out = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 64 * 1024);
+
+        writeEntry("[Content_Types].xml", """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <Types xmlns="http://schemas.openxmlformats.org/package/2006/content-types">
+            <Default Extension="rels" ContentType="application/vnd.openxmlformats-package.relationships+xml"/>
+            <Default Extension="xml" ContentType="application/xml"/>
+            <Override PartName="/xl/workbook.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml"/>
+            <Override PartName="/xl/worksheets/sheet1.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml"/>
+            <Override PartName="/xl/styles.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml"/>
+            </Types>
+            """);
+        writeEntry("_rels/.rels", """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">
+            <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument" Target="xl/workbook.xml"/>
+            </Relationships>
+            """);
+        writeEntry("xl/workbook.xml", """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <workbook xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main" xmlns:r="http://schemas.openxmlformats.org/officeDocument/2006/relationships">
+            <sheets><sheet name="%s" sheetId="1" r:id="rId1"/></sheets>
+            </workbook>
+            """.formatted(escape(sheetName)));
+        writeEntry("xl/_rels/workbook.xml.rels", """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">
+            <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet" Target="worksheets/sheet1.xml"/>
+            <Relationship Id="rId2" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles" Target="styles.xml"/>
+            </Relationships>
+            """);
+        writeEntry("xl/styles.xml", """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <styleSheet xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main">
+            <numFmts count="2">
+            <numFmt numFmtId="164" formatCode="yyyy-mm-dd hh:mm"/>
+            <numFmt numFmtId="165" formatCode="#,##0.00"/>
+            </numFmts>
+            <fonts count="2"><font><sz val="11"/><name val="Calibri"/></font><font><b/><sz val="11"/><name val="Calibri"/></font></fonts>
+            <fills count="2"><fill><patternFill patternType="none"/></fill><fill><patternFill patternType="gray125"/></fill></fills>
+            <borders count="1"><border><left/><right/><top/><bottom/><diagonal/></border></borders>
+            <cellStyleXfs count="1"><xf numFmtId="0" fontId="0" fillId="0" borderId="0"/></cellStyleXfs>
+            <cellXfs count="4">
+            <xf numFmtId="0" fontId="0" fillId="0" borderId="0" xfId="0"/>
+            <xf numFmtId="0" fontId="1" fillId="0" borderId="0" xfId="0" applyFont="1"/>
+            <xf numFmtId="164" fontId="0" fillId="0" borderId="0" xfId="0" applyNumberFormat="1"/>
+            <xf numFmtId="165" fontId="0" fillId="0" borderId="0" xfId="0" applyNumberFormat="1"/>
+            </cellXfs>
+            </styleSheet>
+            """);
+
+        // The worksheet entry stays open while rows are streamed into it
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+                + "<sheetData>");
+    }
+
+    /**
+     * Write a bold header row
+     */
+    public void writeHeader(String... titles) throws IOException {
+        beginRow();
+        for (String title : titles) {
+            writeCell(title, STYLE_HEADER);
+        }
+        endRow();
+    }
+
+    /**
+     * Write a data row. Doubles become amount cells, other numbers plain
+     * numeric cells, LocalDateTime/LocalDate
+     * become date-time cells, null becomes an empty cell and anything else text.
+     */
+    public void writeRow(Object... values) throws IOException {
+        beginRow();
+        for (Object value : values) {
+            writeCell(value, 0);
+        }
+        endRow();
+    }
+
+    public int getRowCount() {
+        return rowNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.write("</sheetData></worksheet>");
+        out.flush();
+        zip.closeEntry();
+        zip.finish();
+        out.close();
+    }
+
+    private void beginRow() throws IOException {
+        rowNumber++;
+        out.write("<row r=\"");
+        out.write(Integer.toString(rowNumber));
+        out.write("\">");
+    }
+
+    private void endRow() throws IOException {
+        out.write("</row>");
+    }
+
+    private void writeCell(Object value, int style) throws IOException {
+        if (value == null) {
+            out.write("<c/>");
+        } else if (value instanceof Double || value instanceof Float) {
+            out.write("<c s=\"" + (style != 0 ? style : STYLE_AMOUNT) + "\"><v>");
+            out.write(value.toString());
+            out.write("</v></c>");
+        } else if (value instanceof Number number) {
+            out.write(style != 0 ? "<c s=\"" + style + "\"><v>" : "<c><v>");
+            out.write(number.toString());
+            out.write("</v></c>");
+        } else if (value instanceof LocalDateTime dateTime) {
+            writeSerial(dateTime, style);
+        } else if (value instanceof LocalDate date) {
+            writeSerial(date.atStartOfDay(), style);
+        } else {
+            out.write(style != 0 ? "<c s=\"" + style + "\" t=\"inlineStr\"><is><t>" : "<c t=\"inlineStr\"><is><t>");
+            out.write(escape(value.toString()));
+            out.write("</t></is></c>");
+        }
+    }
+
+    private void writeSerial(LocalDateTime dateTime, int style) throws IOException {
+        // Excel stores date-times as fractional days since 1899-12-30
+        double serial = ChronoUnit.SECONDS.between(EXCEL_EPOCH, dateTime) / 86400.0;
+        out.write("<c s=\"" + (style != 0 ? style : STYLE_DATE_TIME) + "\"><v>");
+        out.write(Double.toString(serial));
+        out.write("</v></c>");
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.strip().getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private static String escape(String text) {
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement = switch (c) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                default -> (c < 0x20 && c != '\t' && c != '\n' && c != '\r') ? "" : null;
+            };
+            if (replacement != null) {
+                if (sb == null) {
+                    sb = new StringBuilder(text.length() + 16);
+                    sb.append(text, 0, i);
+                }
+                sb.append(replacement);
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? text : sb.toString();
+    }
+}
@@ -3,6 +3,7 @@ module com.example.pos {
     requires javafx.fxml;
     requires javafx.graphics;
     requires java.sql;
+    requires org.postgresql.jdbc; // For LISTEN/NOTIFY (PGConnection)
     requires com.zaxxer.hikari;
     requires java.desktop; // For javax.print (thermal printer support)
 